@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.benchmarks;
+
+import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.List;
+
+/**
+ * The operations measured by the benchmarks, implemented by the raw ZooKeeper
+ * client and by the connector so their results may be compared.
+ *
+ * @author alexa
+ * @see OutboundBenchmark
+ */
+interface BenchmarkClient {
+
+    byte[] getData(String path) throws Exception;
+
+    Stat setData(String path, byte[] data) throws Exception;
+
+    String create(String path, byte[] data) throws Exception;
+
+    void delete(String path) throws Exception;
+
+    List<String> getChildren(String path) throws Exception;
+
+    /**
+     * Returns the client performing the operations with the given raw ZooKeeper client.
+     *
+     * @param zooKeeper the ZooKeeper client
+     * @return the benchmark client
+     */
+    static BenchmarkClient of(ZooKeeper zooKeeper) {
+        return new BenchmarkClient() {
+            @Override
+            public byte[] getData(String path) throws Exception {
+                return zooKeeper.getData(path, false, null);
+            }
+
+            @Override
+            public Stat setData(String path, byte[] data) throws Exception {
+                return zooKeeper.setData(path, data, -1);
+            }
+
+            @Override
+            public String create(String path, byte[] data) throws Exception {
+                return zooKeeper.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+            }
+
+            @Override
+            public void delete(String path) throws Exception {
+                zooKeeper.delete(path, -1);
+            }
+
+            @Override
+            public List<String> getChildren(String path) throws Exception {
+                return zooKeeper.getChildren(path, false);
+            }
+        };
+    }
+
+    /**
+     * Returns the client performing the operations with the given connection,
+     * either the managed connection or the connection handle.
+     *
+     * @param connection the connection
+     * @return the benchmark client
+     */
+    static BenchmarkClient of(ZooKeeperConnection connection) {
+        return new BenchmarkClient() {
+            @Override
+            public byte[] getData(String path) throws Exception {
+                return connection.getData(path);
+            }
+
+            @Override
+            public Stat setData(String path, byte[] data) throws Exception {
+                return connection.setData(path, data);
+            }
+
+            @Override
+            public String create(String path, byte[] data) throws Exception {
+                return connection.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+            }
+
+            @Override
+            public void delete(String path) throws Exception {
+                connection.delete(path);
+            }
+
+            @Override
+            public List<String> getChildren(String path) throws Exception {
+                return connection.getChildren(path);
+            }
+        };
+    }
+
+    /**
+     * Returns the client which gets a connection from the given factory for
+     * each operation, the way a component of the application server does.
+     *
+     * @param connectionFactory the connection factory
+     * @return the benchmark client
+     */
+    static BenchmarkClient of(ZooKeeperConnectionFactory connectionFactory) {
+        return new BenchmarkClient() {
+            @Override
+            public byte[] getData(String path) throws Exception {
+                try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+                    return connection.getData(path);
+                }
+            }
+
+            @Override
+            public Stat setData(String path, byte[] data) throws Exception {
+                try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+                    return connection.setData(path, data);
+                }
+            }
+
+            @Override
+            public String create(String path, byte[] data) throws Exception {
+                try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+                    return connection.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+                }
+            }
+
+            @Override
+            public void delete(String path) throws Exception {
+                try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+                    connection.delete(path);
+                }
+            }
+
+            @Override
+            public List<String> getChildren(String path) throws Exception {
+                try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+                    return connection.getChildren(path);
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.benchmarks;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.ConnectionEvent;
+import javax.resource.spi.ConnectionEventListener;
+import javax.resource.spi.ConnectionManager;
+import javax.resource.spi.ConnectionRequestInfo;
+import javax.resource.spi.ManagedConnection;
+import javax.resource.spi.ManagedConnectionFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Minimal pooling connection manager standing in for the application server.
+ *
+ * <p>The managed connections are created on demand and are returned to the
+ * pool when the application closes the connection handle. Transactions,
+ * security and lazy association are not supported.
+ *
+ * @author alexa
+ */
+public class BenchmarkConnectionManager implements ConnectionManager, ConnectionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger(BenchmarkConnectionManager.class.getName());
+
+    private final transient Queue<ManagedConnection> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object allocateConnection(ManagedConnectionFactory managedConnectionFactory,
+                                     ConnectionRequestInfo connectionRequestInfo) throws ResourceException {
+        ManagedConnection managedConnection = pool.poll();
+        if (managedConnection == null) {
+            managedConnection = managedConnectionFactory.createManagedConnection(null, connectionRequestInfo);
+            managedConnection.addConnectionEventListener(this);
+        }
+        return managedConnection.getConnection(null, connectionRequestInfo);
+    }
+
+    /**
+     * Returns the managed connection of the closed handle to the pool.
+     *
+     * @param event the connection closed event
+     */
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+        ManagedConnection managedConnection = (ManagedConnection) event.getSource();
+        try {
+            managedConnection.cleanup();
+            pool.offer(managedConnection);
+        } catch (ResourceException e) {
+            logger.log(Level.SEVERE, null, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void localTransactionStarted(ConnectionEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void localTransactionCommitted(ConnectionEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void localTransactionRolledback(ConnectionEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+        logger.log(Level.SEVERE, null, event.getException());
+    }
+
+    /**
+     * Destroys all the pooled managed connections.
+     *
+     * @throws ResourceException if a managed connection cannot be destroyed
+     */
+    public void destroy() throws ResourceException {
+        ManagedConnection managedConnection;
+        while ((managedConnection = pool.poll()) != null) {
+            managedConnection.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.benchmarks;
+
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+import cloud.connectors.zookeeper.ra.inbound.ZooKeeperListenerInvoker;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the invocation of the listener method of a message endpoint by a
+ * delivery worker:
+ * <ul>
+ *     <li>{@code reflection} - the {@link Method#invoke(Object, Object...)}, the baseline;</li>
+ *     <li>{@code invoker} - the {@link ZooKeeperListenerInvoker} used by the connector.</li>
+ * </ul>
+ *
+ * <p>Run it with {@code java -jar target/benchmarks.jar InboundDispatchBenchmark}.
+ *
+ * @author alexa
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class InboundDispatchBenchmark {
+
+    private Listener endpoint;
+    private Method method;
+    private ZooKeeperListenerInvoker invoker;
+    private WatchedEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        endpoint = new Listener();
+        method = Listener.class.getMethod("onEvent", WatchedEvent.class);
+        invoker = ZooKeeperListenerInvoker.of(method);
+        event = new WatchedEvent(Watcher.Event.EventType.NodeDataChanged,
+                                 Watcher.Event.KeeperState.SyncConnected,
+                                 "/benchmark/data");
+    }
+
+    @Benchmark
+    public WatchedEvent reflection() throws Exception {
+        method.invoke(endpoint, event);
+        return endpoint.event;
+    }
+
+    @Benchmark
+    public WatchedEvent invoker() throws Exception {
+        invoker.invoke(endpoint, event);
+        return endpoint.event;
+    }
+
+    /**
+     * A message endpoint keeping the last delivered event.
+     */
+    public static class Listener implements ZooKeeperListener {
+
+        private WatchedEvent event;
+
+        @OnZooKeeperEvent
+        public void onEvent(WatchedEvent event) {
+            this.event = event;
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.benchmarks;
+
+import org.apache.zookeeper.data.Stat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the outbound connection path against an in-process ZooKeeper server,
+ * see {@link OutboundState} for the measured clients and payload sizes.
+ *
+ * <p>The subclasses run the benchmarks with the different number of threads.
+ * Build the module and run all of them with {@code java -jar target/benchmarks.jar},
+ * or a subset, e.g. {@code java -jar target/benchmarks.jar SingleThread -p client=raw,handle}.
+ *
+ * @author alexa
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class OutboundBenchmark {
+
+    @Benchmark
+    public byte[] getData(OutboundState state) throws Exception {
+        return state.getClient().getData(OutboundState.DATA);
+    }
+
+    @Benchmark
+    public Stat setData(OutboundState state) throws Exception {
+        return state.getClient().setData(OutboundState.DATA, state.getPayload());
+    }
+
+    @Benchmark
+    public List<String> getChildren(OutboundState state) throws Exception {
+        return state.getClient().getChildren(OutboundState.CHILDREN);
+    }
+
+    @Benchmark
+    public String create(OutboundState state, OutboundState.CreatedNodes nodes) throws Exception {
+        String path = state.getClient().create(OutboundState.NODE, state.getPayload());
+        nodes.paths.add(path);
+        return path;
+    }
+
+    @Benchmark
+    public void delete(OutboundState state, OutboundState.DeletedNode node) throws Exception {
+        state.getClient().delete(node.path);
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.benchmarks;
+
+import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperManagedConnection;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperManagedConnectionFactory;
+import org.apache.curator.test.TestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state shared by the threads of an {@link OutboundBenchmark}: the in-process
+ * ZooKeeper server, its fixture nodes and the measured client.
+ *
+ * <p>The operations are performed by one of the {@code client} targets:
+ * <ul>
+ *     <li>{@code raw} - the raw ZooKeeper client, the baseline;</li>
+ *     <li>{@code managed} - the {@link ZooKeeperManagedConnection} directly;</li>
+ *     <li>{@code handle} - a long-lived connection handle;</li>
+ *     <li>{@code factory} - a connection handle got from the connection factory
+ *         and closed for each operation, as the application components do.</li>
+ * </ul>
+ * The difference from the {@code raw} target is the connector overhead.
+ *
+ * @author alexa
+ */
+@State(Scope.Benchmark)
+public class OutboundState {
+
+    static final String DATA = "/benchmark/data";
+    static final String CHILDREN = "/benchmark/children";
+    static final String NODE = "/benchmark/nodes/node";
+    private static final int CHILD_COUNT = 16;
+
+    @Param({"raw", "managed", "handle", "factory"})
+    private String client;
+
+    @Param({"16", "1024", "65536"})
+    private int payloadSize;
+
+    private TestingServer server;
+    private ZooKeeper zooKeeper;
+    private BenchmarkConnectionManager connectionManager;
+    private ZooKeeperManagedConnection managedConnection;
+    private ZooKeeperConnection connection;
+    private BenchmarkClient benchmarkClient;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer(true);
+        zooKeeper = connect(server.getConnectString());
+
+        payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) 'a');
+        zooKeeper.create("/benchmark", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        zooKeeper.create(DATA, payload, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        zooKeeper.create(CHILDREN, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            zooKeeper.create(CHILDREN + "/child" + i, payload, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+        zooKeeper.create("/benchmark/nodes", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+
+        ZooKeeperManagedConnectionFactory managedConnectionFactory = new ZooKeeperManagedConnectionFactory();
+        managedConnectionFactory.setConnectString(server.getConnectString());
+        connectionManager = new BenchmarkConnectionManager();
+        ZooKeeperConnectionFactory connectionFactory =
+                (ZooKeeperConnectionFactory) managedConnectionFactory.createConnectionFactory(connectionManager);
+
+        switch (client) {
+            case "raw":
+                benchmarkClient = BenchmarkClient.of(zooKeeper);
+                break;
+            case "managed":
+                managedConnection = (ZooKeeperManagedConnection) managedConnectionFactory.createManagedConnection(null, null);
+                benchmarkClient = BenchmarkClient.of(managedConnection);
+                break;
+            case "handle":
+                connection = connectionFactory.getConnection();
+                benchmarkClient = BenchmarkClient.of(connection);
+                break;
+            case "factory":
+                benchmarkClient = BenchmarkClient.of(connectionFactory);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown client " + client);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (managedConnection != null) {
+            managedConnection.destroy();
+        }
+        connectionManager.destroy();
+        zooKeeper.close();
+        server.close();
+    }
+
+    BenchmarkClient getClient() {
+        return benchmarkClient;
+    }
+
+    byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * Collects the nodes created by a thread and deletes them after each iteration,
+     * so the server state does not grow during the trial.
+     */
+    @State(Scope.Thread)
+    public static class CreatedNodes {
+
+        final List<String> paths = new ArrayList<>();
+
+        @TearDown(Level.Iteration)
+        public void tearDown(OutboundState state) throws Exception {
+            for (String path : paths) {
+                state.zooKeeper.delete(path, -1);
+            }
+            paths.clear();
+        }
+
+    }
+
+    /**
+     * Creates the node to delete before each invocation with the raw ZooKeeper client.
+     */
+    @State(Scope.Thread)
+    public static class DeletedNode {
+
+        String path;
+
+        @Setup(Level.Invocation)
+        public void setUp(OutboundState state) throws Exception {
+            path = state.zooKeeper.create(NODE, state.payload, ZooDefs.Ids.OPEN_ACL_UNSAFE,
+                                          CreateMode.PERSISTENT_SEQUENTIAL);
+        }
+
+    }
+
+    private static ZooKeeper connect(String connectString) throws Exception {
+        CountDownLatch connected = new CountDownLatch(1);
+        ZooKeeper zooKeeper = new ZooKeeper(connectString, 30000, event -> {
+            if (event.getState() == Watcher.Event.KeeperState.SyncConnected) {
+                connected.countDown();
+            }
+        });
+        if (!connected.await(30, TimeUnit.SECONDS)) {
+            zooKeeper.close();
+            throw new IllegalStateException("Cannot connect to " + connectString);
+        }
+        return zooKeeper;
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.api;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Represents an asynchronous view of an application-level connection handle.
+ * Each method sends the request to the ZooKeeper server and returns immediately
+ * without waiting for the response, so a caller may pipeline many requests over
+ * a single connection and fan out without extra threads.
+ *
+ * <p>The returned stage is completed from the ZooKeeper client event thread, so
+ * dependent actions should not block. If an operation fails the returned stage
+ * is completed exceptionally with a {@link javax.resource.ResourceException}
+ * the same as thrown by the corresponding {@link ZooKeeperConnection} method.
+ *
+ * <p>The output {@link Stat} arguments, if not {@code null}, are filled before
+ * the returned stage is completed.
+ *
+ * <p>A client gets a {@code AsyncZooKeeperConnection} instance by using the
+ * {@code async()} method on a {@code ZooKeeperConnection} instance.
+ *
+ * <p><strong>Example:</strong>
+ * <pre>
+ *      ...
+ *      try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+ *          AsyncZooKeeperConnection async = connection.async();
+ *          CompletableFuture&lt;byte[]&gt; foo = async.getData("/foo").toCompletableFuture();
+ *          CompletableFuture&lt;byte[]&gt; bar = async.getData("/bar").toCompletableFuture();
+ *          CompletableFuture.allOf(foo, bar).join();
+ *          ...
+ *      }
+ *      ...
+ * </pre>
+ *
+ * @author alexa
+ * @see ZooKeeperConnection#async()
+ */
+public interface AsyncZooKeeperConnection {
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#create(String, byte[], List, CreateMode)}.
+     *
+     * @param path the path for the node
+     * @param data the initial data for the node
+     * @param acl the acl for the node
+     * @param createMode specifying whether the node to be created is ephemeral and/or sequential
+     * @return the stage completed with the actual path of the created node
+     */
+    CompletionStage<String> create(String path, byte[] data, List<ACL> acl, CreateMode createMode);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#create(String, byte[], List, CreateMode, Stat)}.
+     *
+     * @param path the path for the node
+     * @param data the initial data for the node
+     * @param acl the acl for the node
+     * @param createMode specifying whether the node to be created is ephemeral and/or sequential
+     * @param stat the output {@link Stat} object
+     * @return the stage completed with the actual path of the created node
+     */
+    CompletionStage<String> create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#create(String, byte[], List, CreateMode, Stat, long)}.
+     *
+     * @param path the path for the node
+     * @param data the initial data for the node
+     * @param acl the acl for the node
+     * @param createMode specifying whether the node to be created is ephemeral and/or sequential
+     * @param stat the output {@link Stat} object
+     * @param ttl the time to live of a created node
+     * @return the stage completed with the actual path of the created node
+     */
+    CompletionStage<String> create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat, long ttl);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#delete(String)}.
+     *
+     * @param path the path of the node to be deleted
+     * @return the stage completed when the node is deleted
+     */
+    CompletionStage<Void> delete(String path);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#delete(String, int)}.
+     *
+     * @param path the path of the node to be deleted
+     * @param version the expected node version
+     * @return the stage completed when the node is deleted
+     */
+    CompletionStage<Void> delete(String path, int version);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#exists(String)}.
+     *
+     * @param path the node path
+     * @return the stage completed with the stat of the node or {@code null} if no such a node exists
+     */
+    CompletionStage<Stat> exists(String path);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#getACL(String)}.
+     *
+     * @param path the given path for the node
+     * @return the stage completed with the ACL array of the given node
+     */
+    CompletionStage<List<ACL>> getACL(String path);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#getACL(String, Stat)}.
+     *
+     * @param path the given path for the node
+     * @param stat the stat of the node wil be copied to this parameter if not {@code null}
+     * @return the stage completed with the ACL array of the given node
+     */
+    CompletionStage<List<ACL>> getACL(String path, Stat stat);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#getChildren(String)}.
+     *
+     * @param path the given path for the node
+     * @return the stage completed with an unordered list of children of the node
+     */
+    CompletionStage<List<String>> getChildren(String path);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#getChildren(String, Stat)}.
+     *
+     * @param path the given path for the node
+     * @param stat stat of the node designated by path
+     * @return the stage completed with an unordered list of children of the node
+     */
+    CompletionStage<List<String>> getChildren(String path, Stat stat);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#getData(String)}.
+     *
+     * @param path the given path for the node
+     * @return the stage completed with the data of the node
+     */
+    CompletionStage<byte[]> getData(String path);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#getData(String, Stat)}.
+     *
+     * @param path the given path for the node
+     * @param stat stat of the node designated by path
+     * @return the stage completed with the data of the node
+     */
+    CompletionStage<byte[]> getData(String path, Stat stat);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#setACL(String, List)}.
+     *
+     * @param path the given path for the node
+     * @param acl the given acl for the node
+     * @return the stage completed with the state of the node
+     */
+    CompletionStage<Stat> setACL(String path, List<ACL> acl);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#setACL(String, List, int)}.
+     *
+     * @param path the given path for the node
+     * @param acl the given acl for the node
+     * @param version the given acl version of the node
+     * @return the stage completed with the state of the node
+     */
+    CompletionStage<Stat> setACL(String path, List<ACL> acl, int version);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#setData(String, byte[])}.
+     *
+     * @param path the given path for the node
+     * @param data the data to be set
+     * @return the stage completed with the state of the node
+     */
+    CompletionStage<Stat> setData(String path, byte[] data);
+
+    /**
+     * The asynchronous version of {@link ZooKeeperConnection#setData(String, byte[], int)}.
+     *
+     * @param path the given path for the node
+     * @param data the data to be set
+     * @param version the expected version
+     * @return the stage completed with the state of the node
+     */
+    CompletionStage<Stat> setData(String path, byte[] data, int version);
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.api;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A data event carrying the data and the stat of its node read right after the
+ * event was received, so the listener needs no extra read of the node. Delivered
+ * for the {@code NodeCreated} and {@code NodeDataChanged} events if the
+ * {@code fetchData} activation property is set.
+ *
+ * <p>The data may be newer than the change which fired the event, but never
+ * older. The listener method may take this type instead of the
+ * {@link WatchedEvent}, then it is not invoked for the other events.
+ *
+ * <p><strong>Example:</strong>
+ * <pre>
+ *     ...
+ *     &#64;OnZooKeeperEvent
+ *     public void onEvent(EnrichedZooKeeperEvent event) {
+ *         byte[] data = event.getData();
+ *         ...
+ *     }
+ *     ...
+ * </pre>
+ *
+ * @author alexa
+ */
+public class EnrichedZooKeeperEvent extends WatchedEvent {
+
+    private final byte[] data;
+    private final Stat stat;
+
+    /**
+     * Creates new enriched event of the given event.
+     *
+     * @param event the received event
+     * @param data the data of the node
+     * @param stat the stat of the node
+     */
+    public EnrichedZooKeeperEvent(WatchedEvent event, byte[] data, Stat stat) {
+        super(event.getType(), event.getState(), event.getPath());
+        this.data = data;
+        this.stat = stat;
+    }
+
+    /**
+     * Returns the data of the node.
+     *
+     * @return the data of the node, may be {@code null}
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Returns the stat of the node.
+     *
+     * @return the stat of the node
+     */
+    public Stat getStat() {
+        return stat;
+    }
+
+    /**
+     * Returns the zxid of the last change of the node data, i.e. of the read data.
+     *
+     * @return the modification zxid
+     */
+    public long getZxid() {
+        return stat.getMzxid();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " zxid:" + getZxid();
+    }
+
+}
@@ -16,6 +16,8 @@
 
 package cloud.connectors.zookeeper.api;
 
+import org.apache.zookeeper.Watcher;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -26,9 +28,22 @@ import java.lang.annotation.Target;
  * when an data event is arrived from ZooKeeper. Method has exactly one argument
  * with type {@link org.apache.zookeeper.WatchedEvent WatchedEvent}.
  *
+ * <p>A bean may have several such methods handling the events of the different
+ * types or paths. An event is delivered to a single method: the methods
+ * restricted by both {@link #paths()} and {@link #types()} are tried first,
+ * then the methods restricted by the paths only, then by the types only and
+ * then the unrestricted ones. The methods of the same kind are tried in the
+ * order of their names. The events not handled by any method are not delivered
+ * to the bean at all.
+ *
  * <p><strong>Example:</strong>
  * <pre>
  *     ...
+ *     &#64;OnZooKeeperEvent(types = EventType.NodeCreated, paths = "/services/*")
+ *     public void onServiceCreated(WatchedEvent event) {
+ *         ...
+ *     }
+ *
  *     &#64;OnZooKeeperEvent
  *     public void onEvent(WatchedEvent event) {
  *         ...
@@ -42,4 +57,21 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface OnZooKeeperEvent {
 
+    /**
+     * The types of the events handled by the method, all the types if empty.
+     *
+     * @return the event types
+     */
+    Watcher.Event.EventType[] types() default {};
+
+    /**
+     * The glob patterns of the paths which events are handled by the method, all
+     * the paths if empty. In a path segment {@code *} matches any characters and
+     * {@code ?} matches any single character, while the {@code **} segment matches
+     * any number of segments, e.g. "/services/*" or "/config/**".
+     *
+     * @return the path patterns
+     */
+    String[] paths() default {};
+
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marker annotation to indicate the method to be called on an Message Driven Bean
+ * when a batch of data events is arrived from ZooKeeper. Method has exactly one
+ * argument with type {@code List<WatchedEvent>}. The events of a batch are delivered
+ * in one invocation, thus may be processed in one transaction.
+ *
+ * <p>The batch size is limited by the {@code maxBatchSize} activation property.
+ * The batch is delivered once it is full or the {@code maxBatchDelayMillis}
+ * milliseconds are elapsed since its first event was taken for delivery.
+ * If the bean has both the batch and the {@link OnZooKeeperEvent} methods,
+ * the batch one is used.
+ *
+ * <p><strong>Example:</strong>
+ * <pre>
+ *     ...
+ *     &#64;OnZooKeeperEvents
+ *     public void onEvents(List&lt;WatchedEvent&gt; events) {
+ *         ...
+ *     }
+ *     ...
+ * </pre>
+ *
+ * @author alexa
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OnZooKeeperEvents {
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.api;
+
+import org.apache.zookeeper.WatchedEvent;
+
+import java.util.List;
+
+/**
+ * A children event carrying the names of the children added to and removed
+ * from its node since the previous event, so the listener needs neither to
+ * read nor to diff the child list. Delivered instead of the
+ * {@code NodeChildrenChanged} events if the {@code childrenDiff} activation
+ * property is set.
+ *
+ * <p>The listener method may take this type instead of the {@link WatchedEvent},
+ * then it is not invoked for the other events.
+ *
+ * <p><strong>Example:</strong>
+ * <pre>
+ *     ...
+ *     &#64;OnZooKeeperEvent
+ *     public void onChildren(ZooKeeperChildrenEvent event) {
+ *         for (String child : event.getChildrenAdded()) {
+ *             ...
+ *         }
+ *     }
+ *     ...
+ * </pre>
+ *
+ * @author alexa
+ */
+public class ZooKeeperChildrenEvent extends WatchedEvent {
+
+    private final List<String> childrenAdded;
+    private final List<String> childrenRemoved;
+
+    /**
+     * Creates new children event of the given event.
+     *
+     * @param event the received event
+     * @param childrenAdded the sorted names of the added children
+     * @param childrenRemoved the sorted names of the removed children
+     */
+    public ZooKeeperChildrenEvent(WatchedEvent event, List<String> childrenAdded, List<String> childrenRemoved) {
+        super(event.getType(), event.getState(), event.getPath());
+        this.childrenAdded = childrenAdded;
+        this.childrenRemoved = childrenRemoved;
+    }
+
+    /**
+     * Returns the names of the children added since the previous event.
+     *
+     * @return the sorted names of the added children
+     */
+    public List<String> getChildrenAdded() {
+        return childrenAdded;
+    }
+
+    /**
+     * Returns the names of the children removed since the previous event.
+     *
+     * @return the sorted names of the removed children
+     */
+    public List<String> getChildrenRemoved() {
+        return childrenRemoved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " added:" + childrenAdded + " removed:" + childrenRemoved;
+    }
+
+}
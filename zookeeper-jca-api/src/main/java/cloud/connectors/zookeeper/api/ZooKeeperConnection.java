@@ -17,12 +17,17 @@
 package cloud.connectors.zookeeper.api;
 
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 
 import javax.resource.ResourceException;
 import java.io.Closeable;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an application-level handle that is used by an a client to access
@@ -390,6 +395,147 @@ public interface ZooKeeperConnection extends Closeable {
      */
     Stat setData(String path, byte[] data, int version) throws ResourceException;
 
+    /**
+     * Creates a node with the given {@code path} like {@link #create(String, byte[], List, CreateMode, Stat)}
+     * does, but reports the expected errors by the result instead of throwing an exception.
+     *
+     * <p>The {@link KeeperException.Code#NODEEXISTS NODEEXISTS},
+     * {@link KeeperException.Code#NONODE NONODE} (the parent node does not exist) and
+     * {@link KeeperException.Code#NOCHILDRENFOREPHEMERALS NOCHILDRENFOREPHEMERALS}
+     * codes are reported by the result.
+     *
+     * @param path the path for the node
+     * @param data the initial data for the node
+     * @param acl the acl for the node
+     * @param createMode specifying whether the node to be created is ephemeral and/or sequential
+     * @return the result which value is the actual path of the created node
+     * @throws javax.resource.spi.EISSystemException if the server returns an unexpected error code
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     */
+    ZooKeeperResult<String> tryCreate(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws ResourceException;
+
+    /**
+     * Deletes the node with the given {@code path} like {@link #delete(String, int)}
+     * does, but reports the expected errors by the result instead of throwing an exception.
+     *
+     * <p>The {@link KeeperException.Code#NONODE NONODE},
+     * {@link KeeperException.Code#BADVERSION BADVERSION} and
+     * {@link KeeperException.Code#NOTEMPTY NOTEMPTY} codes are reported by the result.
+     *
+     * @param path the path of the node to be deleted
+     * @param version the expected node version
+     * @return the result without value
+     * @throws javax.resource.spi.EISSystemException if the server returns an unexpected error code
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     */
+    ZooKeeperResult<Void> tryDelete(String path, int version) throws ResourceException;
+
+    /**
+     * Returns the data and the stat of the node of the given {@code path} like
+     * {@link #getData(String, Stat)} does, but reports the expected errors by the
+     * result instead of throwing an exception.
+     *
+     * <p>The {@link KeeperException.Code#NONODE NONODE} code is reported by the result.
+     *
+     * @param path the given path
+     * @return the result which value is the data of the node
+     * @throws javax.resource.spi.EISSystemException if the server returns an unexpected error code
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     */
+    ZooKeeperResult<byte[]> tryGetData(String path) throws ResourceException;
+
+    /**
+     * Sets the data for the node of the given {@code path} like {@link #setData(String, byte[], int)}
+     * does, but reports the expected errors by the result instead of throwing an exception.
+     *
+     * <p>The {@link KeeperException.Code#NONODE NONODE} and
+     * {@link KeeperException.Code#BADVERSION BADVERSION} codes are reported by the result.
+     *
+     * @param path the path of the node
+     * @param data the data to be set
+     * @param version the expected version
+     * @return the result without value
+     * @throws javax.resource.spi.EISSystemException if the server returns an unexpected error code
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     */
+    ZooKeeperResult<Void> trySetData(String path, byte[] data, int version) throws ResourceException;
+
+    /**
+     * Returns the data and the stat of each of the nodes of the given {@code paths}.
+     *
+     * <p>The nodes are read with as few read-only multi requests as possible. The
+     * paths are split into several requests if a single request would exceed the
+     * configured maximum batch size or the {@code jute.maxbuffer} packet size. A
+     * request which response exceeds the {@code jute.maxbuffer} packet size is
+     * split and sent again after the connection is restored.
+     * The reads are not atomic, and a missing node does not fail the whole batch,
+     * instead the error is reported by the result of the node.
+     *
+     * @param paths the paths of the nodes
+     * @return the results of the reads keyed by the paths in the order they were given
+     * @throws javax.resource.spi.EISSystemException if the server returns a non-zero error code
+     *         for a whole request, e.g. the connection has been lost
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     */
+    Map<String, ZooKeeperResult<byte[]>> getDataBatch(Collection<String> paths) throws ResourceException;
+
+    /**
+     * Returns the list of the children of each of the nodes of the given {@code paths}.
+     *
+     * <p>The nodes are read in the same way as by the {@link #getDataBatch(Collection)}
+     * method. The results of this method do not contain the stat of the nodes.
+     *
+     * @param paths the paths of the nodes
+     * @return the results of the reads keyed by the paths in the order they were given
+     * @throws javax.resource.spi.EISSystemException if the server returns a non-zero error code
+     *         for a whole request, e.g. the connection has been lost
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     */
+    Map<String, ZooKeeperResult<List<String>>> getChildrenBatch(Collection<String> paths) throws ResourceException;
+
+    /**
+     * Executes multiple ZooKeeper operations in a single request. Either all of the
+     * operations succeed or none of them are applied.
+     *
+     * <p>If any of the operations fails, the thrown exception describes the first
+     * failed operation and its cause is a {@link org.apache.zookeeper.KeeperException
+     * KeeperException} which {@link org.apache.zookeeper.KeeperException#getResults()
+     * getResults()} method returns the per-operation results.
+     *
+     * @param ops an iterable that contains the operations to be done
+     * @return the results of the operations in the order they were given
+     * @throws javax.resource.spi.EISSystemException if any of the operations fails
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     * @see #transaction()
+     */
+    List<OpResult> multi(Iterable<Op> ops) throws ResourceException;
+
+    /**
+     * Returns a builder of an atomic batch of operations which is committed
+     * with the {@link #multi(Iterable)} method of this connection.
+     *
+     * @return the new transaction builder
+     */
+    ZooKeeperTransaction transaction();
+
+    /**
+     * Returns an asynchronous view of this connection. The view is valid
+     * while this connection handle is not closed.
+     *
+     * @return the asynchronous view of this connection
+     * @throws javax.resource.spi.IllegalStateException if this connection is closed
+     * @throws ResourceException if the connection cannot be associated with
+     * a physical connection
+     */
+    AsyncZooKeeperConnection async() throws ResourceException;
+
     /**
      * Closes the connection handle at application level. A client should not use
      * a closed or inactive connection to interact with the ZooKeeper Server. This
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.api;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * The result of a single operation which reports the expected error codes, e.g.
+ * {@link KeeperException.Code#NONODE NONODE}, instead of throwing an exception.
+ * A batch operation does not fail as a whole if some of the nodes cannot be read,
+ * instead the error code of each read is reported by its result.
+ *
+ * <p>The result is immutable: the data and the stat of the node are copied
+ * each time they are returned, so the callers may modify them freely.
+ *
+ * @param <T> the type of the operation value
+ * @author alexa
+ * @see ZooKeeperConnection#getDataBatch(java.util.Collection)
+ * @see ZooKeeperConnection#getChildrenBatch(java.util.Collection)
+ * @see ZooKeeperConnection#tryGetData(String)
+ */
+public final class ZooKeeperResult<T> {
+
+    private final String path;
+    private final KeeperException.Code code;
+    private final T value;
+    private final Stat stat;
+
+    /**
+     * Creates new result.
+     *
+     * @param path the path of the node
+     * @param code the result code of the operation
+     * @param value the operation value or {@code null} if the operation failed
+     * @param stat the stat of the node or {@code null} if not available
+     */
+    public ZooKeeperResult(String path, KeeperException.Code code, T value, Stat stat) {
+        this.path = path;
+        this.code = code;
+        this.value = value;
+        this.stat = stat;
+    }
+
+    /**
+     * Returns the path of the node.
+     *
+     * @return the path of the node
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the result code of the operation, e.g. {@link KeeperException.Code#NONODE NONODE}
+     * if the node does not exist.
+     *
+     * @return the result code
+     */
+    public KeeperException.Code getCode() {
+        return code;
+    }
+
+    /**
+     * Checks whether the operation succeeded.
+     *
+     * @return {@code true} if the result code is {@link KeeperException.Code#OK OK}
+     */
+    public boolean isOk() {
+        return code == KeeperException.Code.OK;
+    }
+
+    /**
+     * Returns the operation value, e.g. the data of the node. The data of the
+     * node is returned as a copy.
+     *
+     * @return the operation value or {@code null} if the operation failed
+     */
+    @SuppressWarnings("unchecked")
+    public T getValue() {
+        if (value instanceof byte[]) {
+            return (T) ((byte[]) value).clone();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the stat of the node. The stat is not available for the children reads
+     * of the batch operations and for the delete operations. The stat is returned
+     * as a copy.
+     *
+     * @return the stat of the node or {@code null} if not available
+     */
+    public Stat getStat() {
+        if (stat == null) {
+            return null;
+        }
+        return new Stat(stat.getCzxid(), stat.getMzxid(), stat.getCtime(), stat.getMtime(), stat.getVersion(),
+                        stat.getCversion(), stat.getAversion(), stat.getEphemeralOwner(), stat.getDataLength(),
+                        stat.getNumChildren(), stat.getPzxid());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "ZooKeeperResult{path=" + path + ", code=" + code + '}';
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.api;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.data.ACL;
+
+import javax.resource.ResourceException;
+import java.util.List;
+
+/**
+ * A fluent builder of an atomic batch of ZooKeeper write operations. All the
+ * operations are sent to the ZooKeeper server in a single request when the
+ * transaction is committed, and either all of them succeed or none of them
+ * are applied.
+ *
+ * <p>A client gets a {@code ZooKeeperTransaction} instance by using the
+ * {@code transaction()} method on a {@code ZooKeeperConnection} instance.
+ *
+ * <p><strong>Example:</strong>
+ * <pre>
+ *      ...
+ *      try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+ *          connection.transaction()
+ *                    .create("/foo", data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT)
+ *                    .setData("/counter", counter, version)
+ *                    .commit();
+ *      }
+ *      ...
+ * </pre>
+ *
+ * @author alexa
+ * @see ZooKeeperConnection#transaction()
+ * @see ZooKeeperConnection#multi(Iterable)
+ */
+public interface ZooKeeperTransaction {
+
+    /**
+     * Adds the node creation to this transaction.
+     *
+     * @param path the path for the node
+     * @param data the initial data for the node
+     * @param acl the acl for the node
+     * @param createMode specifying whether the node to be created is ephemeral and/or sequential
+     * @return this transaction
+     * @see ZooKeeperConnection#create(String, byte[], List, CreateMode)
+     */
+    ZooKeeperTransaction create(String path, byte[] data, List<ACL> acl, CreateMode createMode);
+
+    /**
+     * Adds the node creation with the given {@code ttl} to this transaction.
+     *
+     * @param path the path for the node
+     * @param data the initial data for the node
+     * @param acl the acl for the node
+     * @param createMode specifying whether the node to be created is ephemeral and/or sequential
+     * @param ttl the time to live of a created node
+     * @return this transaction
+     * @see ZooKeeperConnection#create(String, byte[], List, CreateMode, org.apache.zookeeper.data.Stat, long)
+     */
+    ZooKeeperTransaction create(String path, byte[] data, List<ACL> acl, CreateMode createMode, long ttl);
+
+    /**
+     * Adds the node deletion to this transaction.
+     *
+     * @param path the path of the node to be deleted
+     * @param version the expected node version
+     * @return this transaction
+     * @see ZooKeeperConnection#delete(String, int)
+     */
+    ZooKeeperTransaction delete(String path, int version);
+
+    /**
+     * Adds the node version check to this transaction. The transaction fails
+     * if the version of the node does not match the given {@code version}.
+     *
+     * @param path the path of the node
+     * @param version the expected node version
+     * @return this transaction
+     */
+    ZooKeeperTransaction check(String path, int version);
+
+    /**
+     * Adds the node data update to this transaction.
+     *
+     * @param path the given path for the node
+     * @param data the data to be set
+     * @param version the expected version
+     * @return this transaction
+     * @see ZooKeeperConnection#setData(String, byte[], int)
+     */
+    ZooKeeperTransaction setData(String path, byte[] data, int version);
+
+    /**
+     * Commits this transaction in a single request.
+     *
+     * @return the results of the operations in the order they were added
+     * @throws javax.resource.spi.EISSystemException if any of the operations fails
+     * @throws javax.resource.spi.CommException if the operation was interrupted
+     * @throws IllegalArgumentException if an invalid path is specified
+     * @see ZooKeeperConnection#multi(Iterable)
+     */
+    List<OpResult> commit() throws ResourceException;
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registers the resource adapter statistics MBeans with the platform
+ * {@code MBeanServer}. All MBeans are registered under the
+ * {@value #DOMAIN} domain.
+ *
+ * <p>Management is optional, so registration failures are logged
+ * and never propagated to the caller.
+ *
+ * @author alexa
+ */
+public final class ManagementSupport {
+
+    private static final Logger logger = Logger.getLogger(ManagementSupport.class.getName());
+
+    /**
+     * The JMX domain of the resource adapter MBeans.
+     */
+    public static final String DOMAIN = "cloud.connectors.zookeeper";
+
+    private ManagementSupport() {
+    }
+
+    /**
+     * Registers the given MBean under the {@value #DOMAIN} domain.
+     *
+     * @param mbean the MBean to register
+     * @param type the value of the {@code type} key property
+     * @param properties the additional key properties as a sequence of key and value pairs,
+     *                   values are quoted if required
+     * @return the registered object name or {@code null} if registration failed
+     */
+    public static ObjectName register(Object mbean, String type, String... properties) {
+        try {
+            Hashtable<String, String> table = new Hashtable<>();
+            table.put("type", type);
+            for (int i = 0; i + 1 < properties.length; i += 2) {
+                table.put(properties[i], quoteIfRequired(properties[i + 1]));
+            }
+            ObjectName name = new ObjectName(DOMAIN, table);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            return server.registerMBean(mbean, name).getObjectName();
+        } catch (JMException | RuntimeException e) {
+            logger.log(Level.WARNING, "Unable to register " + type + " MBean", e);
+            return null;
+        }
+    }
+
+    /**
+     * Unregisters the MBean with the given name. Does nothing if
+     * {@code name} is {@code null} or not registered.
+     *
+     * @param name the object name of the MBean
+     */
+    public static void unregister(ObjectName name) {
+        if (name == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException | RuntimeException e) {
+            logger.log(Level.WARNING, "Unable to unregister MBean " + name, e);
+        }
+    }
+
+    private static String quoteIfRequired(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case ',':
+                case '=':
+                case ':':
+                case '"':
+                case '*':
+                case '?':
+                case '\n':
+                    return ObjectName.quote(value);
+                default:
+                    break;
+            }
+        }
+        return value;
+    }
+
+}
@@ -96,6 +96,178 @@ public class ZooKeeperActivationSpec implements ActivationSpec {
     @ConfigProperty(type = Boolean.class, defaultValue = "false")
     private Boolean recursive = Boolean.FALSE;
 
+    /**
+     * The maximum number of the message endpoints delivering the events concurrently.
+     * Each endpoint is kept by a long-lived delivery worker and is reused for the
+     * subsequent events. The events are delivered in order with the pool size of one.
+     * Ignored if the events are partitioned or delivered in the strict order.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "4")
+    private Integer endpointPoolSize = 4;
+
+    /**
+     * The maximum number of the events delivered in one invocation of the
+     * {@link cloud.connectors.zookeeper.api.OnZooKeeperEvents OnZooKeeperEvents}
+     * method.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "100")
+    private Integer maxBatchSize = 100;
+
+    /**
+     * The maximum time in milliseconds to wait for the events to fill a batch since
+     * its first event was taken for delivery. If zero, the batch contains only the
+     * events already queued.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "0")
+    private Integer maxBatchDelayMillis = 0;
+
+    /**
+     * Whether an event is collapsed with the queued event of the same type and path.
+     * A node created and deleted before its creation event is delivered produces no
+     * events. Useful if the listener is interested in the latest state of the nodes
+     * only, e.g. the frequently updated status nodes.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean coalesceEvents = Boolean.FALSE;
+
+    /**
+     * The number of the ordered delivery lanes the events are partitioned to by their
+     * paths. The events of the same lane are delivered one by one in order by a single
+     * endpoint, while the lanes are delivered concurrently. If zero, the events are not
+     * partitioned and are delivered concurrently by the {@code endpointPoolSize} endpoints.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "0")
+    private Integer partitionCount = 0;
+
+    /**
+     * The number of the leading path segments the events are partitioned by, e.g. with
+     * the depth of one the events of {@code /a/b} and {@code /a/c} are delivered in order
+     * by the same lane. If zero, the events are partitioned by their whole paths.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "0")
+    private Integer partitionDepth = 0;
+
+    /**
+     * Whether all the events are delivered one by one in the order they were received.
+     * Overrides the {@code partitionCount} and the {@code endpointPoolSize}.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean strictOrder = Boolean.FALSE;
+
+    /**
+     * The maximum number of the events queued for delivery, per lane if the events
+     * are partitioned. If zero, the queue is unbounded.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "0")
+    private Integer queueCapacity = 0;
+
+    /**
+     * The handling of the events received while the bounded queue is full. One of
+     * {@code DROP_OLDEST}, the default, {@code DROP_NEWEST}, {@code SPILL}, which
+     * keeps the events in the journal until the queue has room, or {@code BLOCK},
+     * which makes the ZooKeeper event thread wait for the delivery thus delays the
+     * session events and must be chosen explicitly. Spilling requires the
+     * {@code journalDirectory} and is not supported with the {@code coalesceEvents},
+     * the {@code fetchData} and the {@code childrenDiff}, as the spilled events are
+     * read back as the plain {@code WatchedEvent}.
+     */
+    @ConfigProperty(type = String.class, defaultValue = "DROP_OLDEST")
+    private String overflowPolicy = "DROP_OLDEST";
+
+    /**
+     * A comma separated glob patterns of the paths which events are delivered, e.g.
+     * "/services/*,/config/**". In a path segment {@code *} matches any characters and
+     * {@code ?} matches any single character, while the {@code **} segment matches any
+     * number of segments. The events of all the paths are delivered if not specified.
+     */
+    @ConfigProperty(type = String.class)
+    private String includePaths;
+
+    /**
+     * A comma separated glob patterns of the paths which events are not delivered even
+     * if they are included, see {@code includePaths} for the pattern syntax.
+     */
+    @ConfigProperty(type = String.class)
+    private String excludePaths;
+
+    /**
+     * The maximum depth below the {@code basePath} of the paths which events are delivered,
+     * e.g. zero delivers the events of the {@code basePath} only. Not limited if not specified.
+     */
+    @ConfigProperty(type = Integer.class)
+    private Integer maxDepth;
+
+    /**
+     * A comma separated types of the delivered events, e.g. "NodeCreated,NodeDeleted".
+     * The events of all the types are delivered if not specified.
+     */
+    @ConfigProperty(type = String.class)
+    private String eventTypes;
+
+    /**
+     * Whether the changes made while no ZooKeeper session existed are delivered as the
+     * synthetic events once the expired session is re-created. The {@code mzxid} and
+     * {@code cversion} of the watched nodes are indexed to find the changed nodes.
+     * The index costs a walk of the subtree once it is watched, and an extra stat read
+     * of the node of each received event, coalesced while a read of the node is in-flight.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean resyncOnExpiry = Boolean.FALSE;
+
+    /**
+     * Whether the data and the stat of the node are read for the {@code NodeCreated}
+     * and {@code NodeDataChanged} events and are delivered with the event as an
+     * {@code EnrichedZooKeeperEvent}.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean fetchData = Boolean.FALSE;
+
+    /**
+     * Whether the {@code NodeChildrenChanged} events of the base path are delivered as
+     * the {@code ZooKeeperChildrenEvent} of the added and removed children. The last
+     * known child list is kept to compute the changes. Not supported by the recursive
+     * watches.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean childrenDiff = Boolean.FALSE;
+
+    /**
+     * Whether the existing nodes of the watched subtree are delivered as the synthetic
+     * {@code NodeCreated} events once the endpoint is activated. The subtree is walked
+     * with the pipelined reads after the watch is added, each node is delivered once
+     * and the changes made while it is walked are not missed.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean bootstrap = Boolean.FALSE;
+
+    /**
+     * The name of the consumer group of the activation. The activations of the same group,
+     * e.g. on the different application server nodes, share the events: the paths, or the
+     * path prefixes of the {@code partitionDepth}, are assigned to the group members by the
+     * consistent hashing and each event is delivered by a single member. The members are
+     * registered under {@code /zookeeper-jca/groups}. Every activation gets all the events
+     * if not specified.
+     */
+    @ConfigProperty(type = String.class)
+    private String consumerGroup;
+
+    /**
+     * The directory of the event journal. If specified, each accepted event is appended
+     * to the journal before it is delivered and is acknowledged once delivered, and the
+     * events left unacknowledged are replayed once the endpoint is activated again. The
+     * journal files are named by the endpoint class and the hash of the {@code connectString}
+     * and the {@code basePath}, and a journal is locked while its endpoint is active.
+     */
+    @ConfigProperty(type = String.class)
+    private String journalDirectory;
+
+    /**
+     * The size of a journal segment file in bytes. A new segment is started once the
+     * active one is full, the full segments are deleted once their events are acknowledged.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "4194304")
+    private Integer journalSegmentSize = 4 * 1024 * 1024;
+
     /**
      * The resource adapter
      */
@@ -197,6 +369,326 @@ public class ZooKeeperActivationSpec implements ActivationSpec {
         this.recursive = recursive;
     }
 
+    /**
+     * Get the {@code endpointPoolSize}.
+     * @return the endpoint pool size
+     */
+    public Integer getEndpointPoolSize() {
+        return endpointPoolSize;
+    }
+
+    /**
+     * Set the {@code endpointPoolSize}.
+     * @param endpointPoolSize the endpoint pool size
+     */
+    public void setEndpointPoolSize(Integer endpointPoolSize) {
+        this.endpointPoolSize = endpointPoolSize;
+    }
+
+    /**
+     * Get the {@code maxBatchSize}.
+     * @return the maximum batch size
+     */
+    public Integer getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Set the {@code maxBatchSize}.
+     * @param maxBatchSize the maximum batch size
+     */
+    public void setMaxBatchSize(Integer maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Get the {@code maxBatchDelayMillis}.
+     * @return the maximum batch delay in milliseconds
+     */
+    public Integer getMaxBatchDelayMillis() {
+        return maxBatchDelayMillis;
+    }
+
+    /**
+     * Set the {@code maxBatchDelayMillis}.
+     * @param maxBatchDelayMillis the maximum batch delay in milliseconds
+     */
+    public void setMaxBatchDelayMillis(Integer maxBatchDelayMillis) {
+        this.maxBatchDelayMillis = maxBatchDelayMillis;
+    }
+
+    /**
+     * Get the {@code coalesceEvents}.
+     * @return the coalesce events flag
+     */
+    public Boolean isCoalesceEvents() {
+        return coalesceEvents;
+    }
+
+    /**
+     * Set the {@code coalesceEvents}.
+     * @param coalesceEvents the coalesce events flag
+     */
+    public void setCoalesceEvents(Boolean coalesceEvents) {
+        this.coalesceEvents = coalesceEvents;
+    }
+
+    /**
+     * Get the {@code partitionCount}.
+     * @return the partition count
+     */
+    public Integer getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * Set the {@code partitionCount}.
+     * @param partitionCount the partition count
+     */
+    public void setPartitionCount(Integer partitionCount) {
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * Get the {@code partitionDepth}.
+     * @return the partition depth
+     */
+    public Integer getPartitionDepth() {
+        return partitionDepth;
+    }
+
+    /**
+     * Set the {@code partitionDepth}.
+     * @param partitionDepth the partition depth
+     */
+    public void setPartitionDepth(Integer partitionDepth) {
+        this.partitionDepth = partitionDepth;
+    }
+
+    /**
+     * Get the {@code strictOrder}.
+     * @return the strict order flag
+     */
+    public Boolean isStrictOrder() {
+        return strictOrder;
+    }
+
+    /**
+     * Set the {@code strictOrder}.
+     * @param strictOrder the strict order flag
+     */
+    public void setStrictOrder(Boolean strictOrder) {
+        this.strictOrder = strictOrder;
+    }
+
+    /**
+     * Get the {@code queueCapacity}.
+     * @return the queue capacity
+     */
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Set the {@code queueCapacity}.
+     * @param queueCapacity the queue capacity
+     */
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Get the {@code overflowPolicy}.
+     * @return the overflow policy
+     */
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set the {@code overflowPolicy}.
+     * @param overflowPolicy the overflow policy
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Get the {@code includePaths}.
+     * @return the included path patterns
+     */
+    public String getIncludePaths() {
+        return includePaths;
+    }
+
+    /**
+     * Set the {@code includePaths}.
+     * @param includePaths the included path patterns
+     */
+    public void setIncludePaths(String includePaths) {
+        this.includePaths = includePaths;
+    }
+
+    /**
+     * Get the {@code excludePaths}.
+     * @return the excluded path patterns
+     */
+    public String getExcludePaths() {
+        return excludePaths;
+    }
+
+    /**
+     * Set the {@code excludePaths}.
+     * @param excludePaths the excluded path patterns
+     */
+    public void setExcludePaths(String excludePaths) {
+        this.excludePaths = excludePaths;
+    }
+
+    /**
+     * Get the {@code maxDepth}.
+     * @return the maximum depth
+     */
+    public Integer getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Set the {@code maxDepth}.
+     * @param maxDepth the maximum depth
+     */
+    public void setMaxDepth(Integer maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Get the {@code eventTypes}.
+     * @return the event types
+     */
+    public String getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Set the {@code eventTypes}.
+     * @param eventTypes the event types
+     */
+    public void setEventTypes(String eventTypes) {
+        this.eventTypes = eventTypes;
+    }
+
+    /**
+     * Get the {@code resyncOnExpiry}.
+     * @return the resync on expiry flag
+     */
+    public Boolean isResyncOnExpiry() {
+        return resyncOnExpiry;
+    }
+
+    /**
+     * Set the {@code resyncOnExpiry}.
+     * @param resyncOnExpiry the resync on expiry flag
+     */
+    public void setResyncOnExpiry(Boolean resyncOnExpiry) {
+        this.resyncOnExpiry = resyncOnExpiry;
+    }
+
+    /**
+     * Get the {@code fetchData}.
+     * @return the fetch data flag
+     */
+    public Boolean isFetchData() {
+        return fetchData;
+    }
+
+    /**
+     * Set the {@code fetchData}.
+     * @param fetchData the fetch data flag
+     */
+    public void setFetchData(Boolean fetchData) {
+        this.fetchData = fetchData;
+    }
+
+    /**
+     * Get the {@code childrenDiff}.
+     * @return the children diff flag
+     */
+    public Boolean isChildrenDiff() {
+        return childrenDiff;
+    }
+
+    /**
+     * Set the {@code childrenDiff}.
+     * @param childrenDiff the children diff flag
+     */
+    public void setChildrenDiff(Boolean childrenDiff) {
+        this.childrenDiff = childrenDiff;
+    }
+
+    /**
+     * Get the {@code bootstrap}.
+     * @return the bootstrap flag
+     */
+    public Boolean isBootstrap() {
+        return bootstrap;
+    }
+
+    /**
+     * Set the {@code bootstrap}.
+     * @param bootstrap the bootstrap flag
+     */
+    public void setBootstrap(Boolean bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    /**
+     * Get the {@code consumerGroup}.
+     * @return the consumer group name
+     */
+    public String getConsumerGroup() {
+        return consumerGroup;
+    }
+
+    /**
+     * Set the {@code consumerGroup}.
+     * @param consumerGroup the consumer group name
+     */
+    public void setConsumerGroup(String consumerGroup) {
+        this.consumerGroup = consumerGroup;
+    }
+
+    /**
+     * Get the {@code journalDirectory}.
+     * @return the journal directory
+     */
+    public String getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    /**
+     * Set the {@code journalDirectory}.
+     * @param journalDirectory the journal directory
+     */
+    public void setJournalDirectory(String journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * Get the {@code journalSegmentSize}.
+     * @return the journal segment size in bytes
+     */
+    public Integer getJournalSegmentSize() {
+        return journalSegmentSize;
+    }
+
+    /**
+     * Set the {@code journalSegmentSize}.
+     * @param journalSegmentSize the journal segment size in bytes
+     */
+    public void setJournalSegmentSize(Integer journalSegmentSize) {
+        this.journalSegmentSize = journalSegmentSize;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -205,6 +697,54 @@ public class ZooKeeperActivationSpec implements ActivationSpec {
         if (!basePath.startsWith("/")) {
             throw new InvalidPropertyException("basePath must starts with '/'");
         }
+        if (endpointPoolSize == null || endpointPoolSize < 1) {
+            throw new InvalidPropertyException("endpointPoolSize must be positive");
+        }
+        if (maxBatchSize == null || maxBatchSize < 1) {
+            throw new InvalidPropertyException("maxBatchSize must be positive");
+        }
+        if (maxBatchDelayMillis == null || maxBatchDelayMillis < 0) {
+            throw new InvalidPropertyException("maxBatchDelayMillis must not be negative");
+        }
+        if (partitionCount == null || partitionCount < 0) {
+            throw new InvalidPropertyException("partitionCount must not be negative");
+        }
+        if (partitionDepth == null || partitionDepth < 0) {
+            throw new InvalidPropertyException("partitionDepth must not be negative");
+        }
+        if (queueCapacity == null || queueCapacity < 0) {
+            throw new InvalidPropertyException("queueCapacity must not be negative");
+        }
+        try {
+            ZooKeeperEndpointPool.OverflowPolicy.valueOf(overflowPolicy);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new InvalidPropertyException("overflowPolicy must be one of BLOCK, DROP_OLDEST, DROP_NEWEST or SPILL");
+        }
+        if (ZooKeeperEndpointPool.OverflowPolicy.SPILL.name().equals(overflowPolicy)) {
+            if (journalDirectory == null) {
+                throw new InvalidPropertyException("overflowPolicy SPILL requires the journalDirectory");
+            }
+            if (coalesceEvents || fetchData || childrenDiff) {
+                throw new InvalidPropertyException("overflowPolicy SPILL is not supported with coalesceEvents, fetchData or childrenDiff");
+            }
+        }
+        if (maxDepth != null && maxDepth < 0) {
+            throw new InvalidPropertyException("maxDepth must not be negative");
+        }
+        if (childrenDiff && recursive) {
+            throw new InvalidPropertyException("childrenDiff is not supported by the recursive watches");
+        }
+        if (consumerGroup != null && (consumerGroup.isEmpty() || consumerGroup.indexOf('/') >= 0)) {
+            throw new InvalidPropertyException("consumerGroup must be a node name");
+        }
+        if (journalSegmentSize == null || journalSegmentSize < 4096) {
+            throw new InvalidPropertyException("journalSegmentSize must be at least 4096");
+        }
+        try {
+            new ZooKeeperEventFilter(this);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPropertyException("Invalid event filter: " + e.getMessage());
+        }
     }
 
     /**
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams the existing nodes of the watched subtree to the endpoint as the
+ * synthetic {@code NodeCreated} events once the watch is added. The subtree
+ * is walked with the {@link ZooKeeperTreeWalker pipelined reads} of the
+ * watching client, parents first.
+ *
+ * <p>The read results and the watched events of a client are handed over by
+ * its event thread in the order of their zxids, so each visited node reflects
+ * all the events received before it. Until the walk is complete, an event of
+ * a node not visited yet is dropped, since the node is reported by its visit,
+ * or was deleted before it. A {@code NodeCreated} event is delivered instead,
+ * and the visit of its node reports nothing. Thus each node is reported once,
+ * and no change made after it was reported is missed.
+ *
+ * <p>The walk is done once per activation, if it fails the events are
+ * delivered as is.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#isBootstrap()
+ */
+class ZooKeeperBootstrap implements ZooKeeperTreeWalker.Visitor {
+
+    private static final Logger logger = Logger.getLogger(ZooKeeperBootstrap.class.getName());
+
+    /**
+     * The maximum number of the reads in-flight while the subtree is walked.
+     */
+    private static final int MAX_IN_FLIGHT = 100;
+
+    private final String basePath;
+    private final boolean recursive;
+
+    /**
+     * Delivers the events of the watched subtree with the client they are read by.
+     */
+    private final BiConsumer<WatchedEvent, ZooKeeper> delivery;
+
+    /**
+     * The reported nodes, guarded by this bootstrap. Cleared once the walk is
+     * complete.
+     */
+    private final Set<String> reported;
+
+    /**
+     * The client the subtree is walked with, guarded by this bootstrap.
+     */
+    private ZooKeeper walkedBy;
+
+    /**
+     * Whether the walk is complete, guarded by this bootstrap.
+     */
+    private boolean done;
+
+    /**
+     * Creates new bootstrap of the given activation.
+     *
+     * @param activationSpec the activation spec
+     * @param delivery delivers the events of the watched subtree
+     */
+    ZooKeeperBootstrap(ZooKeeperActivationSpec activationSpec, BiConsumer<WatchedEvent, ZooKeeper> delivery) {
+        this.basePath = activationSpec.getBasePath();
+        this.recursive = activationSpec.isRecursive();
+        this.delivery = delivery;
+        this.reported = new HashSet<>();
+    }
+
+    /**
+     * Walks the watched subtree with the given client, once the watch is added.
+     * Does nothing if the subtree is already walked.
+     *
+     * @param zooKeeper the ZooKeeper client the watch is added with
+     */
+    synchronized void watch(ZooKeeper zooKeeper) {
+        if (walkedBy != null) {
+            return;
+        }
+        walkedBy = zooKeeper;
+        ZooKeeperTreeWalker.walk(zooKeeper, basePath, recursive, MAX_IN_FLIGHT, this).whenComplete((ignore, e) -> {
+            if (e != null) {
+                logger.log(Level.SEVERE, "Unable to bootstrap " + basePath, e);
+            }
+            complete();
+        });
+    }
+
+    /**
+     * Returns whether the given watched event is delivered.
+     *
+     * @param event the received event
+     * @return {@code false} if the event is reported by the walk
+     */
+    synchronized boolean accept(WatchedEvent event) {
+        if (done || event.getPath() == null || reported.contains(event.getPath())) {
+            return true;
+        }
+        if (event.getType() == Watcher.Event.EventType.NodeCreated) {
+            reported.add(event.getPath());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void visit(String path, Stat stat, List<String> children) {
+        if (!done && reported.add(path)) {
+            delivery.accept(new WatchedEvent(Watcher.Event.EventType.NodeCreated,
+                                             Watcher.Event.KeeperState.SyncConnected,
+                                             path),
+                            walkedBy);
+        }
+    }
+
+    private synchronized void complete() {
+        done = true;
+        reported.clear();
+    }
+
+}
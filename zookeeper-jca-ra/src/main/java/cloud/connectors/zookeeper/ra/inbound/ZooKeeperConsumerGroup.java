@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.ra.ManagementSupport;
+import org.apache.zookeeper.AsyncCallback;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+
+import javax.management.ObjectName;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A membership of the activation in a consumer group. The activations of the
+ * group, usually deployed to the different application server nodes, share
+ * the events of their subtrees: each event is delivered by a single member.
+ *
+ * <p>Each member registers an ephemeral sequential node under
+ * {@code /zookeeper-jca/groups/<group>} with the client of its watch session
+ * and watches the children of the group node. The events are assigned to the
+ * members by the consistent hashing of their paths, or of the path prefixes
+ * of the {@code partitionDepth}, so the events of a partition are delivered
+ * by the same member, and only a share of the partitions moves once a member
+ * joins or leaves the group.
+ *
+ * <p>Until the member is registered and the group is read, the activation
+ * delivers all the events. The events received while the members change may
+ * be delivered by the both old and new owners, or by none of them.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#getConsumerGroup()
+ */
+class ZooKeeperConsumerGroup implements ZooKeeperConsumerGroupMXBean, Watcher, AsyncCallback.StringCallback, AsyncCallback.ChildrenCallback {
+
+    private static final Logger logger = Logger.getLogger(ZooKeeperConsumerGroup.class.getName());
+
+    /**
+     * The parent node of the group nodes.
+     */
+    static final String GROUPS_PATH = "/zookeeper-jca/groups";
+
+    /**
+     * The number of the points of each member on the hash ring.
+     */
+    private static final int VIRTUAL_NODES = 64;
+
+    private final String group;
+    private final String groupPath;
+    private final int partitionDepth;
+
+    /**
+     * The client the member is registered with, guarded by this group.
+     */
+    private ZooKeeper zooKeeper;
+
+    /**
+     * The name of the member node, guarded by this group.
+     */
+    private String member;
+
+    /**
+     * Whether the activation has left the group, guarded by this group.
+     */
+    private boolean closed;
+
+    /**
+     * The current assignment, {@code null} until the member is found in the group.
+     */
+    private volatile Assignment assignment;
+
+    /**
+     * The object name of the MBean, guarded by this group.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Creates new membership of the given activation.
+     *
+     * @param activationSpec the activation spec
+     */
+    ZooKeeperConsumerGroup(ZooKeeperActivationSpec activationSpec) {
+        this.group = activationSpec.getConsumerGroup();
+        this.groupPath = GROUPS_PATH + '/' + group;
+        this.partitionDepth = activationSpec.getPartitionDepth();
+    }
+
+    /**
+     * Registers the MBean of this membership.
+     *
+     * @param connectString the connect string of the activation
+     * @param basePath the base path of the activation
+     */
+    synchronized void register(String connectString, String basePath) {
+        objectName = ManagementSupport.register(this, "ZooKeeperConsumerGroup",
+                                                "name", connectString,
+                                                "group", group,
+                                                "basePath", basePath,
+                                                "id", Integer.toHexString(System.identityHashCode(this)));
+    }
+
+    /**
+     * Registers the member with the given client and reads the group. Does
+     * nothing if the member is already registered with the client. The
+     * requests are pipelined, so the event thread is never blocked.
+     *
+     * @param zooKeeper the ZooKeeper client of the watch session
+     */
+    synchronized void watch(ZooKeeper zooKeeper) {
+        if (closed || zooKeeper == this.zooKeeper) {
+            return;
+        }
+        this.zooKeeper = zooKeeper;
+        this.member = null;
+        this.assignment = null;
+
+        // the group nodes are removed by the server once the group is empty
+        for (int index = groupPath.indexOf('/', 1); index > 0; index = groupPath.indexOf('/', index + 1)) {
+            zooKeeper.create(groupPath.substring(0, index), null, ZooDefs.Ids.OPEN_ACL_UNSAFE,
+                             CreateMode.CONTAINER, this, null);
+        }
+        zooKeeper.create(groupPath, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.CONTAINER, this, null);
+        zooKeeper.create(groupPath + "/member-", null, ZooDefs.Ids.OPEN_ACL_UNSAFE,
+                         CreateMode.EPHEMERAL_SEQUENTIAL, this, zooKeeper);
+        zooKeeper.getChildren(groupPath, this, this, zooKeeper);
+    }
+
+    /**
+     * Returns whether the events of the given path are delivered by this member.
+     *
+     * @param path the path of the event, may be {@code null}
+     * @return {@code true} if the path is assigned to this member, or the
+     * assignment is not known yet
+     */
+    boolean owns(String path) {
+        Assignment current = assignment;
+        return path == null || current == null || current.owns(path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String getMember() {
+        return member;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMemberCount() {
+        Assignment current = assignment;
+        return current != null ? current.memberCount : 0;
+    }
+
+    /**
+     * Leaves the group and unregisters the MBean. The member node is deleted,
+     * so the group rebalances without waiting for the session to close.
+     */
+    synchronized void close() {
+        ManagementSupport.unregister(objectName);
+        objectName = null;
+        closed = true;
+        assignment = null;
+        if (member != null) {
+            zooKeeper.delete(groupPath + '/' + member, -1, (rc, path, ctx) -> { }, null);
+        }
+    }
+
+    /**
+     * Reads the group once its members change.
+     *
+     * @param event the watched event
+     */
+    @Override
+    public synchronized void process(WatchedEvent event) {
+        if (event.getType() == Event.EventType.NodeChildrenChanged && !closed && zooKeeper != null) {
+            zooKeeper.getChildren(groupPath, this, this, zooKeeper);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void processResult(int rc, String path, Object ctx, String name) {
+        KeeperException.Code code = KeeperException.Code.get(rc);
+        if (ctx == null) {
+            if (code != KeeperException.Code.OK && code != KeeperException.Code.NODEEXISTS) {
+                logger.log(Level.SEVERE, "Unable to create " + path, KeeperException.create(code, path));
+            }
+        } else if (ctx == zooKeeper) {
+            if (code == KeeperException.Code.OK) {
+                member = name.substring(name.lastIndexOf('/') + 1);
+                if (closed) {
+                    zooKeeper.delete(name, -1, (ignore, p, c) -> { }, null);
+                }
+            } else {
+                logger.log(Level.SEVERE, "Unable to join " + groupPath, KeeperException.create(code, path));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void processResult(int rc, String path, Object ctx, List<String> children) {
+        if (ctx != zooKeeper || closed) {
+            return;
+        }
+        KeeperException.Code code = KeeperException.Code.get(rc);
+        if (code == KeeperException.Code.OK && member != null && children.contains(member)) {
+            assignment = new Assignment(member, children, partitionDepth);
+        } else {
+            assignment = null;
+            if (code != KeeperException.Code.OK) {
+                logger.log(Level.WARNING, "Unable to read " + groupPath, KeeperException.create(code, path));
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of the given hash, the finalization step of MurmurHash3.
+     *
+     * @param hash the hash
+     * @return the mixed hash
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * The hash ring of the group members.
+     */
+    private static final class Assignment {
+
+        private final String member;
+        private final NavigableMap<Integer, String> ring;
+        private final int partitionDepth;
+        private final int memberCount;
+
+        Assignment(String member, List<String> members, int partitionDepth) {
+            this.member = member;
+            this.ring = new TreeMap<>();
+            this.partitionDepth = partitionDepth;
+            this.memberCount = members.size();
+            for (String m : members) {
+                for (int i = 0; i < VIRTUAL_NODES; i++) {
+                    ring.put(mix((m + '#' + i).hashCode()), m);
+                }
+            }
+        }
+
+        boolean owns(String path) {
+            Map.Entry<Integer, String> owner = ring.ceilingEntry(
+                    mix(ZooKeeperEventDispatcher.partitionHash(path, partitionDepth)));
+            if (owner == null) {
+                owner = ring.firstEntry();
+            }
+            return owner.getValue().equals(member);
+        }
+    }
+
+}
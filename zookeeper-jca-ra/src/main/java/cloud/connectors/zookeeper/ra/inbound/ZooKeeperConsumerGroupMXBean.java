@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+/**
+ * Management interface for the membership of an endpoint activation in a
+ * consumer group. Exposes the member node and the number of the members the
+ * events are currently assigned to.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#getConsumerGroup()
+ */
+@SuppressWarnings("unused")
+public interface ZooKeeperConsumerGroupMXBean {
+
+    /**
+     * Returns the name of the member node.
+     *
+     * @return the member node, {@code null} until the member is registered
+     */
+    String getMember();
+
+    /**
+     * Returns the number of the members the events are assigned to.
+     *
+     * @return the number of members, {@code 0} until the group is read
+     */
+    int getMemberCount();
+
+}
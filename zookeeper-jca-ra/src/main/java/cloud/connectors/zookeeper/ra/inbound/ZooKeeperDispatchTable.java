@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.OnZooKeeperEvents;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The listener methods of an endpoint class, computed once per class when the
+ * endpoint is activated. The {@link OnZooKeeperEvent} methods are indexed by
+ * the event types they handle, so an event is matched against the methods of
+ * its type only.
+ *
+ * <p>A listener method taking the {@link EnrichedZooKeeperEvent} or the
+ * {@link ZooKeeperChildrenEvent} handles the events of that class only, and is
+ * tried before the methods taking the plain {@link WatchedEvent} with the same
+ * specificity of the types and the paths.
+ *
+ * <p>If the endpoint class has an {@link OnZooKeeperEvents} method, all the
+ * events are delivered to it in batches.
+ *
+ * @author alexa
+ * @see OnZooKeeperEvent#types()
+ * @see OnZooKeeperEvent#paths()
+ */
+class ZooKeeperDispatchTable {
+
+    private static final ClassValue<ZooKeeperDispatchTable> tables = new ClassValue<ZooKeeperDispatchTable>() {
+        @Override
+        protected ZooKeeperDispatchTable computeValue(Class<?> type) {
+            return new ZooKeeperDispatchTable(type);
+        }
+    };
+
+    private static final Route[] NO_ROUTES = new Route[0];
+
+    /**
+     * The invoker of the batch listener method, {@code null} if none.
+     */
+    private final ZooKeeperListenerInvoker batchInvoker;
+
+    /**
+     * The routes to the event listener methods indexed by the event type ordinal.
+     */
+    private final Route[][] routes;
+
+    private ZooKeeperDispatchTable(Class<?> endpointClass) {
+        ZooKeeperListenerInvoker batch = null;
+        List<Route> candidates = new ArrayList<>();
+        for (Method m : endpointClass.getMethods()) {
+            if (m.getParameterCount() != 1) {
+                continue;
+            }
+            if (batch == null &&
+                m.isAnnotationPresent(OnZooKeeperEvents.class) &&
+                m.getParameterTypes()[0].isAssignableFrom(List.class)) {
+                batch = ZooKeeperListenerInvoker.of(m);
+            }
+            OnZooKeeperEvent annotation = m.getAnnotation(OnZooKeeperEvent.class);
+            if (annotation != null &&
+                (m.getParameterTypes()[0] == WatchedEvent.class ||
+                 m.getParameterTypes()[0] == EnrichedZooKeeperEvent.class ||
+                 m.getParameterTypes()[0] == ZooKeeperChildrenEvent.class)) {
+                candidates.add(new Route(m, annotation));
+            }
+        }
+        this.batchInvoker = batch;
+
+        // the more specific methods are tried first, the methods taking the plain
+        // event last within a rank, since they handle the events of any class
+        candidates.sort(Comparator.comparingInt(Route::rank)
+                                  .thenComparing(route -> route.eventClass == WatchedEvent.class)
+                                  .thenComparing(route -> route.invoker.getMethod().getName()));
+        EventType[] types = EventType.values();
+        this.routes = new Route[types.length][];
+        for (EventType type : types) {
+            List<Route> typeRoutes = new ArrayList<>();
+            for (Route route : candidates) {
+                if (route.handles(type)) {
+                    typeRoutes.add(route);
+                }
+            }
+            routes[type.ordinal()] = typeRoutes.isEmpty() ? NO_ROUTES : typeRoutes.toArray(NO_ROUTES);
+        }
+    }
+
+    /**
+     * Returns the dispatch table of the given endpoint class.
+     *
+     * @param endpointClass the endpoint class
+     * @return the dispatch table
+     * @throws IllegalArgumentException if a path pattern is invalid or a listener
+     * method is not accessible
+     */
+    static ZooKeeperDispatchTable of(Class<?> endpointClass) {
+        return tables.get(endpointClass);
+    }
+
+    /**
+     * Returns the invoker of the batch listener method.
+     *
+     * @return the batch invoker, {@code null} if the endpoint has no batch method
+     */
+    ZooKeeperListenerInvoker getBatchInvoker() {
+        return batchInvoker;
+    }
+
+    /**
+     * Returns the invoker of the listener method handling the given event.
+     *
+     * @param event the watched event
+     * @return the invoker, {@code null} if no method handles the event
+     */
+    ZooKeeperListenerInvoker lookup(WatchedEvent event) {
+        String path = event.getPath();
+        for (Route route : routes[event.getType().ordinal()]) {
+            if (route.eventClass.isInstance(event) &&
+                (route.paths == null || path != null && route.paths.matches(path))) {
+                return route.invoker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the given event is delivered to the endpoint, either to
+     * the batch method or to a listener method handling it.
+     *
+     * @param event the watched event
+     * @return {@code true} if the event is delivered
+     */
+    boolean accept(WatchedEvent event) {
+        return batchInvoker != null || lookup(event) != null;
+    }
+
+    /**
+     * A route to a listener method.
+     */
+    private static final class Route {
+
+        private final ZooKeeperListenerInvoker invoker;
+
+        /**
+         * The event class the method takes.
+         */
+        private final Class<?> eventClass;
+
+        /**
+         * The handled types, all the types if empty.
+         */
+        private final EventType[] types;
+
+        /**
+         * The handled paths, {@code null} if all the paths are handled.
+         */
+        private final ZooKeeperPathMatcher paths;
+
+        Route(Method method, OnZooKeeperEvent annotation) {
+            this.invoker = ZooKeeperListenerInvoker.of(method);
+            this.eventClass = method.getParameterTypes()[0];
+            this.types = annotation.types();
+            this.paths = annotation.paths().length == 0
+                         ? null
+                         : new ZooKeeperPathMatcher(String.join(",", annotation.paths()));
+        }
+
+        boolean handles(EventType type) {
+            if (types.length == 0) {
+                return true;
+            }
+            for (EventType t : types) {
+                if (t == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int rank() {
+            if (paths != null) {
+                return types.length > 0 ? 0 : 1;
+            }
+            return types.length > 0 ? 2 : 3;
+        }
+    }
+
+}
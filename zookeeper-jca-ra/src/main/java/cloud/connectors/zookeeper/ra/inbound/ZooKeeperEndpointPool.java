@@ -0,0 +1,681 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+
+import javax.resource.spi.endpoint.MessageEndpointFactory;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers the watched events of an endpoint activation with a bounded pool of
+ * long-lived delivery workers.
+ *
+ * <p>Each {@link ZooKeeperWork worker} keeps its message endpoint and loops over
+ * the queued events, so the delivery of an event costs an enqueue and a method
+ * call instead of a work submission and an endpoint creation. The workers are
+ * started on demand up to the pool size, and a worker idle for
+ * {@value #IDLE_TIMEOUT_MILLIS} milliseconds releases its endpoint and returns
+ * its thread to the {@code WorkManager}.
+ *
+ * <p>If the listener has a batch method, a worker delivers the events queued
+ * within the maximum batch delay in one invocation, see
+ * {@link cloud.connectors.zookeeper.api.OnZooKeeperEvents OnZooKeeperEvents}.
+ *
+ * <p>If the event coalescing is enabled, an event is collapsed with the queued
+ * event of the same type and path, since the listener notified by the queued
+ * event observes the latest state of the node anyway. An enriched event
+ * replaces the queued one instead, since it carries the newer data. A node
+ * created and deleted before its creation event is taken for delivery produces
+ * no events at all. The coalesced events are queued in a mutable slot per
+ * path, and an event is collapsed by swapping or clearing the event of the
+ * slot in place. A cleared slot stays queued and takes the next event of its
+ * path, thus the number of the queued slots is bounded by the number of the
+ * distinct paths instead of the rate of the changes.
+ *
+ * <p>If the journal is enabled, the delivered events are acknowledged to the
+ * journal, as well as the collapsed and dropped ones. The events discarded
+ * once the pool is closed, or failed to be delivered, are left to replay.
+ *
+ * <p>The events are delivered concurrently by the workers, thus the delivery
+ * order is only guaranteed with the pool size of one. The
+ * {@link ZooKeeperEventDispatcher dispatcher} partitions the events to the
+ * pools of one worker to deliver the events of a path in order.
+ *
+ * <p>The queue is unbounded by default. A bounded queue is backed by a
+ * preallocated array, and once it is full the received events are handled
+ * by the {@link OverflowPolicy overflow policy}, dropping the oldest queued
+ * event by default. Only the blocking policy, which must be chosen explicitly,
+ * makes the ZooKeeper event thread wait for the delivery. The spilling policy
+ * keeps the overflowing events in the journal instead of the memory, and once
+ * an event is spilled the later ones are spilled too until the workers have
+ * read back all of them, so the order of the events is kept.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#getEndpointPoolSize()
+ * @see ZooKeeperActivationSpec#isCoalesceEvents()
+ * @see ZooKeeperActivationSpec#getQueueCapacity()
+ */
+class ZooKeeperEndpointPool implements ZooKeeperEndpointPoolMXBean {
+
+    private static final Logger logger = Logger.getLogger(ZooKeeperEndpointPool.class.getName());
+
+    /**
+     * The time in milliseconds an idle worker waits for an event before it exits.
+     */
+    static final long IDLE_TIMEOUT_MILLIS = 60_000L;
+
+    /**
+     * The event signaling the workers to exit. It is never removed from the queue.
+     */
+    private static final WatchedEvent CLOSED = new WatchedEvent(null, null, null);
+
+    private final MessageEndpointFactory endpointFactory;
+    private final WorkManager workManager;
+    private final int poolSize;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final boolean coalesceEvents;
+    private final OverflowPolicy overflowPolicy;
+    /**
+     * The queued events, or their {@link Slot slots} if the event coalescing is enabled.
+     */
+    private final BlockingQueue<Object> events;
+    private final Set<ZooKeeperWork> workers;
+
+    /**
+     * The journal the delivered and discarded events are acknowledged to,
+     * {@code null} if disabled.
+     */
+    private final ZooKeeperEventJournal journal;
+
+    /**
+     * The events spilled to the journal by the full queue, {@code null} unless
+     * spilling. Guards the queueing while spilling.
+     */
+    private final ZooKeeperEventJournal.Spill spill;
+
+    /**
+     * The last queued slot of each path, used only if the event coalescing
+     * is enabled. Guarded by itself.
+     */
+    private final Map<String, Slot> slots;
+
+    /**
+     * The number of the queued slots cleared by the collapsed events. Guarded
+     * by the {@code slots} lock.
+     */
+    private int clearedSlots;
+
+    /**
+     * The number of the started workers including the ones being scheduled.
+     */
+    private final AtomicInteger workerCount;
+
+    /**
+     * The number of the workers waiting for an event.
+     */
+    private final AtomicInteger idleCount;
+
+    private final LongAdder receivedCount;
+    private final LongAdder collapsedCount;
+    private final LongAdder droppedCount;
+    private final LongAdder spilledCount;
+
+    /**
+     * The number of the spilled events not read back yet. Written holding
+     * the {@code spill} lock.
+     */
+    private volatile int spilledEvents;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates new endpoint pool. No worker is started until the first event.
+     *
+     * @param endpointFactory the message endpoint factory
+     * @param workManager the work manager running the workers
+     * @param activationSpec the activation spec configuring the batches, the coalescing
+     *                       and the queue capacity
+     * @param poolSize the maximum number of the workers, thus the endpoints
+     * @param journal the journal of the events, {@code null} if disabled
+     */
+    ZooKeeperEndpointPool(MessageEndpointFactory endpointFactory, WorkManager workManager,
+                          ZooKeeperActivationSpec activationSpec, int poolSize,
+                          ZooKeeperEventJournal journal) {
+        this.endpointFactory = endpointFactory;
+        this.workManager = workManager;
+        this.poolSize = Math.max(1, poolSize);
+        this.maxBatchSize = Math.max(1, activationSpec.getMaxBatchSize());
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, activationSpec.getMaxBatchDelayMillis()));
+        this.coalesceEvents = activationSpec.isCoalesceEvents();
+        this.overflowPolicy = OverflowPolicy.valueOf(activationSpec.getOverflowPolicy());
+        this.events = activationSpec.getQueueCapacity() > 0
+                      ? new ArrayBlockingQueue<>(activationSpec.getQueueCapacity())
+                      : new LinkedBlockingQueue<>();
+        this.workers = ConcurrentHashMap.newKeySet();
+        this.journal = journal;
+        this.spill = overflowPolicy == OverflowPolicy.SPILL && journal != null ? journal.newSpill() : null;
+        this.slots = new HashMap<>();
+        this.workerCount = new AtomicInteger();
+        this.idleCount = new AtomicInteger();
+        this.receivedCount = new LongAdder();
+        this.collapsedCount = new LongAdder();
+        this.droppedCount = new LongAdder();
+        this.spilledCount = new LongAdder();
+    }
+
+    /**
+     * Queues the given event for delivery and starts a new worker if all the
+     * started workers are busy and the pool is not exhausted. If the event
+     * coalescing is enabled, the event may be collapsed with a queued one.
+     *
+     * @param event the event to deliver
+     */
+    void deliver(WatchedEvent event) {
+        if (closed) {
+            return;
+        }
+        boolean queued;
+        if (coalesceEvents && event.getPath() != null) {
+            synchronized (slots) {
+                if (collapse(event)) {
+                    queued = false;
+                } else {
+                    Slot slot = new Slot(event);
+                    queued = enqueue(slot, event);
+                    if (queued) {
+                        slots.put(event.getPath(), slot);
+                    }
+                }
+            }
+        } else {
+            queued = enqueue(event, event);
+        }
+        // counted once the event is either queued or discarded
+        receivedCount.increment();
+        if (queued && idleCount.get() == 0 && reserveWorker()) {
+            startWorker();
+        }
+    }
+
+    /**
+     * Stops the workers. The workers exit once their current deliveries are
+     * completed, the queued events are discarded.
+     */
+    void close() {
+        closed = true;
+        do {
+            events.clear();
+        } while (!events.offer(CLOSED));
+        synchronized (slots) {
+            slots.clear();
+            clearedSlots = 0;
+        }
+    }
+
+    /**
+     * Acknowledges the given delivered or discarded event to the journal.
+     *
+     * @param event the event
+     */
+    void acknowledge(WatchedEvent event) {
+        if (journal != null) {
+            journal.acknowledge(event);
+        }
+    }
+
+    /**
+     * Returns the message endpoint factory of this pool.
+     *
+     * @return the message endpoint factory
+     */
+    MessageEndpointFactory getEndpointFactory() {
+        return endpointFactory;
+    }
+
+    /**
+     * Waits for the next event to deliver by the given worker.
+     *
+     * @param worker the worker
+     * @return the next event or {@code null} if the worker must exit
+     * @throws InterruptedException if the worker was interrupted
+     */
+    WatchedEvent take(ZooKeeperWork worker) throws InterruptedException {
+        while (true) {
+            idleCount.incrementAndGet();
+            Object entry;
+            try {
+                entry = events.poll(IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } finally {
+                idleCount.decrementAndGet();
+            }
+            if (entry == CLOSED) {
+                // leave the signal for the other workers
+                events.offer(CLOSED);
+                exit(worker);
+                return null;
+            }
+            if (entry != null) {
+                refill();
+                WatchedEvent event = claim(entry);
+                if (event != null) {
+                    return event;
+                }
+                continue;
+            }
+            exit(worker);
+            // an event may be queued after the poll timed out but before
+            // this worker has exited, so it was not started a new worker
+            if (events.isEmpty() || !reserveWorker()) {
+                return null;
+            }
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Fills the batch started with the given event. Waits for the events until
+     * the batch is full or the maximum batch delay is elapsed.
+     *
+     * @param event the first event of the batch
+     * @return the batch of events
+     * @throws InterruptedException if the worker was interrupted
+     */
+    List<WatchedEvent> fillBatch(WatchedEvent event) throws InterruptedException {
+        List<WatchedEvent> batch = new ArrayList<>(Math.min(maxBatchSize, events.size() + 1));
+        batch.add(event);
+        long deadline = System.nanoTime() + maxBatchDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            Object next = events.poll();
+            if (next == null && remaining > 0) {
+                // the worker filling a batch takes the new events, so no worker is started for them
+                idleCount.incrementAndGet();
+                try {
+                    next = events.poll(remaining, TimeUnit.NANOSECONDS);
+                } finally {
+                    idleCount.decrementAndGet();
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            if (next == CLOSED) {
+                events.offer(CLOSED);
+                break;
+            }
+            refill();
+            WatchedEvent claimed = claim(next);
+            if (claimed != null) {
+                batch.add(claimed);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQueuedEvents() {
+        synchronized (slots) {
+            // a cleared slot may be taken but not claimed yet
+            return Math.max(0, events.size() - clearedSlots);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWorkers() {
+        return workerCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCollapsedCount() {
+        return collapsedCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSpilledEvents() {
+        return spilledEvents;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSpilledCount() {
+        return spilledCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetStatistics() {
+        receivedCount.reset();
+        collapsedCount.reset();
+        droppedCount.reset();
+        spilledCount.reset();
+    }
+
+    /**
+     * Queues the given event or its slot applying the overflow policy if the
+     * queue is full.
+     *
+     * @param entry the event or its slot
+     * @param event the event to queue
+     * @return {@code true} if the event was queued, {@code false} if it was dropped
+     */
+    private boolean enqueue(Object entry, WatchedEvent event) {
+        if (spill != null) {
+            if (spill(event)) {
+                return true;
+            }
+        } else if (events.offer(entry)) {
+            return true;
+        }
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                droppedCount.increment();
+                acknowledge(event);
+                return false;
+            case DROP_OLDEST:
+                do {
+                    Object oldest = events.poll();
+                    if (oldest == CLOSED) {
+                        // the pool was closed meanwhile
+                        close();
+                        return false;
+                    }
+                    WatchedEvent dropped = oldest != null ? claim(oldest) : null;
+                    if (dropped != null) {
+                        droppedCount.increment();
+                        acknowledge(dropped);
+                    }
+                } while (!events.offer(entry));
+                return true;
+            default:
+                // blocking, or spilling an event not appended to the journal
+                try {
+                    while (!events.offer(entry, 100L, TimeUnit.MILLISECONDS)) {
+                        if (closed) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.increment();
+                    return false;
+                }
+        }
+    }
+
+    /**
+     * Queues the given event unless the queue is full or the earlier events
+     * are spilled, otherwise spills the event to the journal.
+     *
+     * @param event the event to queue
+     * @return {@code true} if the event was queued or spilled, {@code false}
+     *         if the queue is full and the event cannot be spilled
+     */
+    private boolean spill(WatchedEvent event) {
+        synchronized (spill) {
+            if (spilledEvents == 0 && events.offer(event)) {
+                return true;
+            }
+            if (!spill.add(event)) {
+                return false;
+            }
+            spilledEvents++;
+            spilledCount.increment();
+            // the workers may have taken the queued events meanwhile
+            unspill();
+            return true;
+        }
+    }
+
+    /**
+     * Reads back the spilled events to the queue if a worker has taken an
+     * event from it.
+     */
+    private void refill() {
+        if (spill != null && spilledEvents > 0) {
+            synchronized (spill) {
+                unspill();
+            }
+        }
+    }
+
+    /**
+     * Moves the oldest spilled events to the queue while it has room. Must be
+     * invoked holding the {@code spill} lock.
+     */
+    private void unspill() {
+        while (spilledEvents > 0 && !closed && events.remainingCapacity() > 0) {
+            WatchedEvent event = spill.poll();
+            if (event == null) {
+                // the journal was closed
+                spilledEvents = 0;
+                return;
+            }
+            spilledEvents--;
+            events.offer(event);
+        }
+    }
+
+    /**
+     * Unregisters the given exiting worker. Does nothing if the worker
+     * is already unregistered.
+     *
+     * @param worker the worker
+     */
+    void exit(ZooKeeperWork worker) {
+        if (workers.remove(worker)) {
+            workerCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Collapses the given event with the last queued slot of its path. An event
+     * of the same type is dropped, unless it carries the newer data of the node
+     * and replaces the queued one. A deletion clears the queued creation of the
+     * node, and the cleared slot takes the next event of the node. The children
+     * changes are never collapsed, as each of them carries its own delta. Must
+     * be invoked holding the {@code slots} lock.
+     *
+     * @param event the received event
+     * @return {@code true} if the event was collapsed and must not be queued
+     */
+    private boolean collapse(WatchedEvent event) {
+        Slot slot = slots.get(event.getPath());
+        if (slot == null || event instanceof ZooKeeperChildrenEvent) {
+            return false;
+        }
+        WatchedEvent queued = slot.event;
+        if (queued == null) {
+            // the slot was cleared by a deletion, reuse it
+            slot.event = event;
+            clearedSlots--;
+            return true;
+        }
+        if (queued instanceof ZooKeeperChildrenEvent) {
+            return false;
+        }
+        if (queued.getType() == event.getType()) {
+            collapsedCount.increment();
+            if (event instanceof EnrichedZooKeeperEvent) {
+                // the queued data is stale, swap in the new event
+                slot.event = event;
+                acknowledge(queued);
+            } else {
+                // the listener is notified by the queued event after this change
+                acknowledge(event);
+            }
+            return true;
+        }
+        if (queued.getType() == Watcher.Event.EventType.NodeCreated &&
+            event.getType() == Watcher.Event.EventType.NodeDeleted) {
+            // the node has gone before the listener was notified of its creation
+            slot.event = null;
+            clearedSlots++;
+            collapsedCount.add(2);
+            acknowledge(queued);
+            acknowledge(event);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the event to deliver out of the given entry taken from the queue,
+     * so the later events of its path are not collapsed with it.
+     *
+     * @param entry the event or the slot taken from the queue
+     * @return the event to deliver, {@code null} if the slot was cleared
+     */
+    private WatchedEvent claim(Object entry) {
+        if (!(entry instanceof Slot)) {
+            return (WatchedEvent) entry;
+        }
+        Slot slot = (Slot) entry;
+        synchronized (slots) {
+            WatchedEvent event = slot.event;
+            if (event == null) {
+                clearedSlots--;
+            } else {
+                slot.event = null;
+            }
+            slots.remove(slot.path, slot);
+            return event;
+        }
+    }
+
+    private boolean reserveWorker() {
+        int count;
+        do {
+            count = workerCount.get();
+            if (count >= poolSize) {
+                return false;
+            }
+        } while (!workerCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    private void startWorker() {
+        ZooKeeperWork worker = new ZooKeeperWork(this);
+        workers.add(worker);
+        try {
+            workManager.scheduleWork(worker);
+        } catch (WorkException e) {
+            exit(worker);
+            logger.log(Level.SEVERE, "Cannot start delivery worker", e);
+        }
+    }
+
+    /**
+     * A queued slot of the coalesced events of a path.
+     */
+    private static final class Slot {
+
+        private final String path;
+
+        /**
+         * The event to deliver, {@code null} if cleared. Guarded by the {@code slots} lock.
+         */
+        private WatchedEvent event;
+
+        Slot(WatchedEvent event) {
+            this.path = event.getPath();
+            this.event = event;
+        }
+    }
+
+    /**
+     * The handling of the events received while the queue is full.
+     */
+    enum OverflowPolicy {
+
+        /**
+         * The ZooKeeper event thread waits until a worker takes an event.
+         * No event is lost, but the connection and session events are delayed.
+         */
+        BLOCK,
+
+        /**
+         * The oldest queued event is dropped to queue the received one.
+         */
+        DROP_OLDEST,
+
+        /**
+         * The received event is dropped.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The received event is kept in the journal and queued once the workers
+         * have taken the earlier events. Requires the journal, and the spilled
+         * events are delivered as the plain {@code WatchedEvent}.
+         */
+        SPILL
+    }
+
+}
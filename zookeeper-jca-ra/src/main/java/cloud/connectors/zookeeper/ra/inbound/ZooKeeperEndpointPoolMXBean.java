@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+/**
+ * Management interface for the endpoint pool of an endpoint activation.
+ * Exposes the number of the queued events, the number of the events
+ * collapsed by the per-path event coalescing and the number of the events
+ * dropped or spilled by the overflow policy of a bounded queue.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#isCoalesceEvents()
+ */
+@SuppressWarnings("unused")
+public interface ZooKeeperEndpointPoolMXBean {
+
+    /**
+     * Returns the number of the events waiting for delivery.
+     *
+     * @return the number of queued events
+     */
+    int getQueuedEvents();
+
+    /**
+     * Returns the number of the started delivery workers.
+     *
+     * @return the number of workers
+     */
+    int getWorkers();
+
+    /**
+     * Returns the number of the events received from the ZooKeeper server.
+     *
+     * @return the number of received events
+     */
+    long getReceivedCount();
+
+    /**
+     * Returns the number of the received events which were not delivered
+     * because they were collapsed with a queued event of the same path.
+     *
+     * @return the number of collapsed events
+     */
+    long getCollapsedCount();
+
+    /**
+     * Returns the number of the received events which were not delivered
+     * because the queue was full.
+     *
+     * @return the number of dropped events
+     */
+    long getDroppedCount();
+
+    /**
+     * Returns the number of the events spilled to the journal which are not
+     * queued yet.
+     *
+     * @return the number of spilled events
+     */
+    int getSpilledEvents();
+
+    /**
+     * Returns the number of the received events which were spilled to the
+     * journal because the queue was full.
+     *
+     * @return the number of spilled events
+     */
+    long getSpilledCount();
+
+    /**
+     * Resets the received, the collapsed, the dropped and the spilled event
+     * counters.
+     */
+    void resetStatistics();
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.ra.ManagementSupport;
+import org.apache.zookeeper.WatchedEvent;
+
+import javax.management.ObjectName;
+import javax.resource.spi.endpoint.MessageEndpointFactory;
+import javax.resource.spi.work.WorkManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+/**
+ * Dispatches the watched events of an endpoint activation to the ordered
+ * delivery lanes. Each lane is an {@link ZooKeeperEndpointPool endpoint pool}
+ * of a single worker, so the events of a lane are delivered one by one in the
+ * order they were received, while the lanes are delivered concurrently.
+ *
+ * <p>An event is assigned to a lane by the hash of its path, or of the path
+ * prefix of the configured depth. Thus the events of a node, or of a subtree,
+ * are delivered in order. The strict order mode delivers all the events
+ * through a single lane.
+ *
+ * <p>If partitioning is disabled, the events are delivered by a single lane
+ * of {@code endpointPoolSize} workers in no particular order.
+ *
+ * <p>The events not handled by any listener method of the endpoint are
+ * discarded before they are queued, see {@link ZooKeeperDispatchTable}.
+ *
+ * <p>If the journal is enabled, the accepted events are appended to the
+ * {@link ZooKeeperEventJournal journal} before they are queued.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#getPartitionCount()
+ * @see ZooKeeperActivationSpec#getPartitionDepth()
+ * @see ZooKeeperActivationSpec#isStrictOrder()
+ */
+class ZooKeeperEventDispatcher {
+
+    private final ZooKeeperDispatchTable table;
+    private final ZooKeeperEndpointPool[] lanes;
+    private final ObjectName[] objectNames;
+
+    /**
+     * The journal of the accepted events, {@code null} if disabled.
+     */
+    private final ZooKeeperEventJournal journal;
+
+    /**
+     * The number of the leading path segments the lane is chosen by,
+     * the whole path if zero.
+     */
+    private final int partitionDepth;
+
+    /**
+     * Creates new dispatcher for the given endpoint activation.
+     *
+     * @param endpointFactory the message endpoint factory
+     * @param activationSpec the activation spec
+     * @param workManager the work manager running the workers
+     * @throws IllegalArgumentException if a listener method of the endpoint is invalid
+     * @throws UncheckedIOException if the journal cannot be opened
+     */
+    ZooKeeperEventDispatcher(MessageEndpointFactory endpointFactory,
+                             ZooKeeperActivationSpec activationSpec,
+                             WorkManager workManager) {
+        this.table = ZooKeeperDispatchTable.of(endpointFactory.getEndpointClass());
+        int laneCount;
+        int poolSize;
+        if (activationSpec.isStrictOrder()) {
+            laneCount = 1;
+            poolSize = 1;
+        } else if (activationSpec.getPartitionCount() > 0) {
+            laneCount = activationSpec.getPartitionCount();
+            poolSize = 1;
+        } else {
+            laneCount = 1;
+            poolSize = activationSpec.getEndpointPoolSize();
+        }
+        if (activationSpec.getJournalDirectory() != null) {
+            try {
+                this.journal = ZooKeeperEventJournal.open(Paths.get(activationSpec.getJournalDirectory()),
+                                                          journalName(endpointFactory, activationSpec),
+                                                          activationSpec.getJournalSegmentSize());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            this.journal = null;
+        }
+        this.lanes = new ZooKeeperEndpointPool[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ZooKeeperEndpointPool(endpointFactory, workManager, activationSpec, poolSize, journal);
+        }
+        this.objectNames = new ObjectName[laneCount];
+        this.partitionDepth = activationSpec.getPartitionDepth();
+    }
+
+    /**
+     * Queues the given event for delivery by its lane unless no listener
+     * method handles it.
+     *
+     * @param event the event to deliver
+     */
+    void deliver(WatchedEvent event) {
+        if (!table.accept(event)) {
+            return;
+        }
+        if (journal != null) {
+            journal.append(event);
+        }
+        if (lanes.length == 1) {
+            lanes[0].deliver(event);
+        } else {
+            lanes[laneOf(event.getPath())].deliver(event);
+        }
+    }
+
+    /**
+     * Delivers the events left unacknowledged by the previous activation.
+     * If the events are enriched, the replayed events are appended again and
+     * handed to the enricher, which acknowledges them once their nodes are
+     * read. Must be invoked before the watched events are delivered.
+     *
+     * @param enricher the enricher of the activation, {@code null} if none
+     */
+    void replay(ZooKeeperEventEnricher enricher) {
+        if (journal == null) {
+            return;
+        }
+        if (enricher == null) {
+            journal.replay(this::deliver);
+        } else {
+            journal.replay(event -> {
+                journal.append(event);
+                enricher.replay(event);
+            });
+        }
+    }
+
+    /**
+     * Acknowledges the given replayed event to the journal once it is
+     * replaced by its enriched event.
+     *
+     * @param event the replayed event
+     */
+    void acknowledge(WatchedEvent event) {
+        if (journal != null) {
+            journal.acknowledge(event);
+        }
+    }
+
+    /**
+     * Registers the MBeans of the lanes.
+     *
+     * @param connectString the connect string of the activation
+     * @param basePath the base path of the activation
+     */
+    void register(String connectString, String basePath) {
+        String id = Integer.toHexString(System.identityHashCode(this));
+        for (int i = 0; i < lanes.length; i++) {
+            objectNames[i] = ManagementSupport.register(lanes[i], "ZooKeeperEndpointPool",
+                                                        "name", connectString,
+                                                        "basePath", basePath,
+                                                        "id", id,
+                                                        "lane", Integer.toString(i));
+        }
+    }
+
+    /**
+     * Unregisters the MBeans of the lanes, stops their workers and closes
+     * the journal.
+     */
+    void close() {
+        for (int i = 0; i < lanes.length; i++) {
+            ManagementSupport.unregister(objectNames[i]);
+            objectNames[i] = null;
+            lanes[i].close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Returns the journal name of the given activation: the endpoint class and
+     * the hash of the connect string and the base path, so the activations of
+     * the same endpoint class watching the different nodes have their own journals.
+     *
+     * @param endpointFactory the message endpoint factory
+     * @param activationSpec the activation spec
+     * @return the journal name
+     */
+    private static String journalName(MessageEndpointFactory endpointFactory, ZooKeeperActivationSpec activationSpec) {
+        String node = activationSpec.getConnectString() + activationSpec.getBasePath();
+        return endpointFactory.getEndpointClass().getName() + '-' + Integer.toHexString(node.hashCode());
+    }
+
+    /**
+     * Returns the lane of the given path.
+     *
+     * @param path the path of the event, may be {@code null}
+     * @return the lane index
+     */
+    private int laneOf(String path) {
+        if (path == null) {
+            return 0;
+        }
+        int hash = partitionHash(path, partitionDepth);
+        // spread the higher bits as the lane count is usually small
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, lanes.length);
+    }
+
+    /**
+     * Returns the hash of the partition of the given path. Hashes the path
+     * prefix in place, the same way as {@link String#hashCode()} does, so no
+     * substring is allocated per event.
+     *
+     * @param path the path of the event
+     * @param partitionDepth the number of the leading path segments hashed,
+     *                       the whole path if zero
+     * @return the partition hash
+     */
+    static int partitionHash(String path, int partitionDepth) {
+        int end = path.length();
+        int index = 0;
+        for (int i = 0; i < partitionDepth && index >= 0; i++) {
+            index = path.indexOf('/', index + 1);
+        }
+        if (index > 0) {
+            // the path is deeper than the prefix
+            end = index;
+        }
+        int hash = 0;
+        for (int i = 0; i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
+import org.apache.zookeeper.AsyncCallback;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the nodes of the events before they are handed to the dispatcher.
+ * The reads are asynchronous and pipelined, so the ZooKeeper event thread
+ * does not wait for them, while the events are handed over in the order they
+ * were received.
+ *
+ * <p>If the data is fetched, the data and the stat of the nodes of the
+ * {@code NodeCreated} and {@code NodeDataChanged} events are read and the
+ * {@link EnrichedZooKeeperEvent enriched events} are handed over.
+ *
+ * <p>If the children are diffed, the last known child list of the base path
+ * is kept as a sorted array. The child list is read on each
+ * {@code NodeChildrenChanged} event and merged with the known one, and the
+ * {@link ZooKeeperChildrenEvent children event} of the added and removed
+ * names is handed over. The names of the retained children are kept as the
+ * same instances, so the array shares them with the previous one. The child
+ * list is also read once the watch is added, so the changes made while the
+ * session was expired are reported once it is re-created.
+ *
+ * <p>The events replayed from the journal are read once the watch is added,
+ * ahead of the watched events, and are acknowledged to the journal once
+ * their enriched events are handed over.
+ *
+ * <p>If the event coalescing is enabled, an event of the same type and path as
+ * an event waiting for its read is collapsed with it: the read is marked as
+ * stale, and once it completes, a single new read is sent and the waiting event
+ * gets its result. Thus a burst of the changes of a node costs at most two reads.
+ * If a read fails, e.g. the node is already deleted, the event is handed over
+ * as is.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#isFetchData()
+ * @see ZooKeeperActivationSpec#isChildrenDiff()
+ */
+class ZooKeeperEventEnricher implements AsyncCallback.DataCallback, AsyncCallback.ChildrenCallback {
+
+    private static final String[] NO_CHILDREN = new String[0];
+
+    private final ZooKeeperEventDispatcher dispatcher;
+    private final String basePath;
+    private final boolean fetchData;
+    private final boolean childrenDiff;
+    private final boolean coalesceEvents;
+
+    /**
+     * The events in the order they were received, guarded by this enricher.
+     */
+    private final Deque<Pending> pending;
+
+    /**
+     * The events waiting for their reads by path, guarded by this enricher.
+     */
+    private final Map<String, Pending> reading;
+
+    /**
+     * The replayed events waiting for the client to read with, guarded by this enricher.
+     */
+    private final List<Pending> deferred;
+
+    /**
+     * The sorted names of the known children of the base path, {@code null}
+     * until read. Guarded by this enricher.
+     */
+    private String[] children;
+
+    /**
+     * The client the watch was last added with, guarded by this enricher.
+     */
+    private ZooKeeper watchedBy;
+
+    /**
+     * Creates new enricher of the given activation.
+     *
+     * @param dispatcher the dispatcher of the activation
+     * @param activationSpec the activation spec
+     */
+    ZooKeeperEventEnricher(ZooKeeperEventDispatcher dispatcher, ZooKeeperActivationSpec activationSpec) {
+        this.dispatcher = dispatcher;
+        this.basePath = activationSpec.getBasePath();
+        this.fetchData = activationSpec.isFetchData();
+        this.childrenDiff = activationSpec.isChildrenDiff();
+        this.coalesceEvents = activationSpec.isCoalesceEvents();
+        this.pending = new ArrayDeque<>();
+        this.reading = new HashMap<>();
+        this.deferred = new ArrayList<>();
+    }
+
+    /**
+     * Queues the given event replayed from the journal. Its node is read once
+     * the watch is added, see {@link #watch(ZooKeeper)}.
+     *
+     * @param event the replayed event
+     */
+    synchronized void replay(WatchedEvent event) {
+        Pending p = new Pending(event);
+        p.replayed = true;
+        pending.add(p);
+        if (isRead(event)) {
+            deferred.add(p);
+        } else {
+            p.complete(event);
+            drain();
+        }
+    }
+
+    /**
+     * Reads the nodes of the replayed events and the child list of the base
+     * path once the watch is added with the given client. The first read of
+     * the child list initializes the known children, while the later ones
+     * report the changes missed since the previous session.
+     *
+     * @param zooKeeper the ZooKeeper client the watch is added with
+     */
+    synchronized void watch(ZooKeeper zooKeeper) {
+        for (Pending p : deferred) {
+            read(p, zooKeeper);
+        }
+        deferred.clear();
+        if (!childrenDiff || zooKeeper == watchedBy) {
+            return;
+        }
+        watchedBy = zooKeeper;
+        Pending p = new Pending(new WatchedEvent(Watcher.Event.EventType.NodeChildrenChanged,
+                                                 Watcher.Event.KeeperState.SyncConnected,
+                                                 basePath));
+        pending.add(p);
+        read(p, zooKeeper);
+    }
+
+    /**
+     * Reads the node of the given event if required, otherwise hands the event
+     * over once the preceding events are handed over.
+     *
+     * @param event the received event
+     * @param zooKeeper the ZooKeeper client of the session the event was received by
+     */
+    synchronized void process(WatchedEvent event, ZooKeeper zooKeeper) {
+        if (!isRead(event)) {
+            if (pending.isEmpty()) {
+                dispatcher.deliver(event);
+            } else {
+                Pending p = new Pending(event);
+                p.complete(event);
+                pending.add(p);
+            }
+            return;
+        }
+        Pending p = coalesceEvents ? reading.get(event.getPath()) : null;
+        if (p != null && p.event.getType() == event.getType()) {
+            // the node is read again once the in-flight read completes
+            p.stale = true;
+            return;
+        }
+        p = new Pending(event);
+        pending.add(p);
+        reading.put(event.getPath(), p);
+        read(p, zooKeeper);
+    }
+
+    /**
+     * Returns whether the node of the given event is read before the event
+     * is handed over.
+     *
+     * @param event the event
+     * @return {@code true} if the data or the children of the node are read
+     */
+    private boolean isRead(WatchedEvent event) {
+        Watcher.Event.EventType type = event.getType();
+        if (fetchData &&
+            (type == Watcher.Event.EventType.NodeCreated || type == Watcher.Event.EventType.NodeDataChanged)) {
+            return true;
+        }
+        return childrenDiff &&
+               type == Watcher.Event.EventType.NodeChildrenChanged &&
+               basePath.equals(event.getPath());
+    }
+
+    /**
+     * Sends the read of the node of the given event.
+     *
+     * @param p the event waiting for its read
+     * @param zooKeeper the ZooKeeper client to read with
+     */
+    private void read(Pending p, ZooKeeper zooKeeper) {
+        p.readBy = zooKeeper;
+        if (p.event.getType() == Watcher.Event.EventType.NodeChildrenChanged) {
+            zooKeeper.getChildren(p.event.getPath(), false, this, p);
+        } else {
+            zooKeeper.getData(p.event.getPath(), false, this, p);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void processResult(int rc, String path, Object ctx, byte[] data, Stat stat) {
+        Pending p = (Pending) ctx;
+        if (p.stale) {
+            // a collapsed event was received while the node was read
+            p.stale = false;
+            read(p, p.readBy);
+            return;
+        }
+        reading.remove(path, p);
+        p.complete(KeeperException.Code.get(rc) == KeeperException.Code.OK
+                   ? new EnrichedZooKeeperEvent(p.event, data, stat)
+                   : p.event);
+        drain();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void processResult(int rc, String path, Object ctx, List<String> names) {
+        Pending p = (Pending) ctx;
+        if (p.stale) {
+            // a collapsed event was received while the node was read
+            p.stale = false;
+            read(p, p.readBy);
+            return;
+        }
+        reading.remove(path, p);
+        KeeperException.Code code = KeeperException.Code.get(rc);
+        if (code == KeeperException.Code.OK || code == KeeperException.Code.NONODE) {
+            String[] current = code == KeeperException.Code.OK ? names.toArray(NO_CHILDREN) : NO_CHILDREN;
+            Arrays.sort(current);
+            p.complete(diff(p.event, current));
+        } else {
+            p.complete(p.event);
+        }
+        drain();
+    }
+
+    /**
+     * Merges the given sorted child list with the known one and replaces it.
+     *
+     * @param event the children event
+     * @param current the sorted names of the current children
+     * @return the children event of the changes, {@code null} if nothing changed
+     * or the children were not known
+     */
+    private WatchedEvent diff(WatchedEvent event, String[] current) {
+        String[] previous = children;
+        children = current;
+        if (previous == null) {
+            return null;
+        }
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < previous.length || j < current.length) {
+            int c = i == previous.length ? 1 : j == current.length ? -1 : previous[i].compareTo(current[j]);
+            if (c < 0) {
+                removed.add(previous[i++]);
+            } else if (c > 0) {
+                added.add(current[j++]);
+            } else {
+                // keep the known instance of the name
+                current[j++] = previous[i++];
+            }
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        return new ZooKeeperChildrenEvent(event,
+                                          Collections.unmodifiableList(added),
+                                          Collections.unmodifiableList(removed));
+    }
+
+    /**
+     * Hands over the completed events at the head of the received ones.
+     */
+    private void drain() {
+        while (!pending.isEmpty() && pending.peek().completed) {
+            Pending p = pending.poll();
+            if (p.replayed) {
+                // the replayed event was appended to the journal until read
+                dispatcher.acknowledge(p.event);
+            }
+            if (p.result != null) {
+                dispatcher.deliver(p.result);
+            }
+        }
+    }
+
+    /**
+     * An event waiting to be handed over.
+     */
+    private static final class Pending {
+
+        private final WatchedEvent event;
+
+        /**
+         * The client the node is read with.
+         */
+        private ZooKeeper readBy;
+
+        /**
+         * Whether the node was changed again while it was read.
+         */
+        private boolean stale;
+
+        private boolean completed;
+
+        /**
+         * Whether the event was replayed from the journal.
+         */
+        private boolean replayed;
+
+        /**
+         * The event to hand over, {@code null} if none.
+         */
+        private WatchedEvent result;
+
+        Pending(WatchedEvent event) {
+            this.event = event;
+        }
+
+        void complete(WatchedEvent result) {
+            this.completed = true;
+            this.result = result;
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Filters the watched events of an endpoint activation by their paths, depths
+ * and types before they are queued for delivery, so a discarded event costs
+ * neither a queue slot nor an endpoint invocation.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#getIncludePaths()
+ * @see ZooKeeperActivationSpec#getExcludePaths()
+ * @see ZooKeeperActivationSpec#getMaxDepth()
+ * @see ZooKeeperActivationSpec#getEventTypes()
+ */
+class ZooKeeperEventFilter {
+
+    /**
+     * The included paths, {@code null} if all the paths are included.
+     */
+    private final ZooKeeperPathMatcher includes;
+
+    /**
+     * The excluded paths, {@code null} if no path is excluded.
+     */
+    private final ZooKeeperPathMatcher excludes;
+
+    /**
+     * The maximum depth of a path, {@code -1} if not limited.
+     */
+    private final int maxDepth;
+
+    /**
+     * The accepted event types, {@code null} if all the types are accepted.
+     */
+    private final Set<Watcher.Event.EventType> eventTypes;
+
+    /**
+     * Creates new filter of the given activation.
+     *
+     * @param activationSpec the activation spec
+     * @throws IllegalArgumentException if a path pattern or an event type is invalid
+     */
+    ZooKeeperEventFilter(ZooKeeperActivationSpec activationSpec) {
+        this.includes = isBlank(activationSpec.getIncludePaths())
+                        ? null
+                        : new ZooKeeperPathMatcher(activationSpec.getIncludePaths());
+        this.excludes = isBlank(activationSpec.getExcludePaths())
+                        ? null
+                        : new ZooKeeperPathMatcher(activationSpec.getExcludePaths());
+        this.maxDepth = activationSpec.getMaxDepth() == null
+                        ? -1
+                        : depth(activationSpec.getBasePath()) + activationSpec.getMaxDepth();
+        if (isBlank(activationSpec.getEventTypes())) {
+            this.eventTypes = null;
+        } else {
+            this.eventTypes = EnumSet.noneOf(Watcher.Event.EventType.class);
+            for (String type : activationSpec.getEventTypes().split(",")) {
+                if (!type.trim().isEmpty()) {
+                    eventTypes.add(Watcher.Event.EventType.valueOf(type.trim()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given event is delivered.
+     *
+     * @param event the watched event
+     * @return {@code true} if the event passes the filter
+     */
+    boolean accept(WatchedEvent event) {
+        if (eventTypes != null && !eventTypes.contains(event.getType())) {
+            return false;
+        }
+        String path = event.getPath();
+        if (path == null) {
+            return true;
+        }
+        if (maxDepth >= 0 && depth(path) > maxDepth) {
+            return false;
+        }
+        if (includes != null && !includes.matches(path)) {
+            return false;
+        }
+        return excludes == null || !excludes.matches(path);
+    }
+
+    /**
+     * Returns the number of the segments of the given absolute path.
+     */
+    private static int depth(String path) {
+        if (path.length() <= 1) {
+            return 0;
+        }
+        int depth = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+}
@@ -0,0 +1,600 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only journal of the events of an activation, kept in the
+ * memory-mapped segment files of a fixed size. Each accepted event is
+ * appended before it is queued for delivery and is acknowledged once it is
+ * delivered or deliberately discarded, e.g. collapsed. The events left
+ * unacknowledged, e.g. queued when the endpoint was deactivated, or failed,
+ * are replayed once the endpoint is activated again.
+ *
+ * <p>A record is the length of its body followed by the body: the status, the
+ * zxid, the event type, the keeper state and the path. The length is written
+ * last, so a torn record ends the segment. The acknowledgement overwrites the
+ * status in place. The segments are not forced to the disk on each append, so
+ * the journal survives the redeployment or the JVM crash, but not the crash
+ * of the operating system. The journal holds an exclusive lock of its name
+ * while open, so it is never shared by two activations.
+ *
+ * <p>Once the active segment is full, a new one is started. The full segments
+ * with no pending records are deleted, the pending records of the others are
+ * compacted into the new segment if they fit.
+ *
+ * <p>The journal is also the target of the {@link Spill spilled} events of a
+ * full queue: the spilled event is only referenced by the location of its
+ * pending record and is read back once the queue has room.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#getJournalDirectory()
+ */
+class ZooKeeperEventJournal {
+
+    private static final Logger logger = Logger.getLogger(ZooKeeperEventJournal.class.getName());
+
+    private static final String SUFFIX = ".journal";
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final byte PENDING = 1;
+    private static final byte ACKNOWLEDGED = 2;
+
+    /**
+     * The size of the record body without the path: the status, the zxid,
+     * the event type, the keeper state and the path length.
+     */
+    private static final int HEADER_SIZE = 1 + 8 + 4 + 4 + 4;
+
+    private final Path directory;
+    private final String name;
+    private final int segmentSize;
+
+    /**
+     * The segments from the oldest to the active one, guarded by this journal.
+     */
+    private final Deque<Segment> segments;
+
+    /**
+     * The pending records of the appended events, guarded by this journal.
+     */
+    private final Map<WatchedEvent, Record> records;
+
+    /**
+     * The segments of the previous activation, deleted once replayed.
+     */
+    private final List<Segment> recovered;
+
+    /**
+     * The spills of the events, guarded by this journal.
+     */
+    private final List<Spill> spills;
+
+    /**
+     * The lock of the journal name, released once closed.
+     */
+    private FileLock lock;
+
+    private long nextSequence;
+    private boolean closed;
+
+    private ZooKeeperEventJournal(Path directory, String name, int segmentSize) {
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.segments = new ArrayDeque<>();
+        this.records = new IdentityHashMap<>();
+        this.recovered = new ArrayList<>();
+        this.spills = new ArrayList<>();
+    }
+
+    /**
+     * Opens the journal of the given name. The segments left by the previous
+     * activation are kept until their pending events are replayed.
+     *
+     * @param directory the journal directory, created if it does not exist
+     * @param name the journal name, the prefix of the segment files
+     * @param segmentSize the size of a segment file in bytes
+     * @return the opened journal
+     * @throws IOException if the journal cannot be opened or is already open
+     */
+    static ZooKeeperEventJournal open(Path directory, String name, int segmentSize) throws IOException {
+        ZooKeeperEventJournal journal = new ZooKeeperEventJournal(directory, name, segmentSize);
+        Files.createDirectories(directory);
+        journal.lock = lock(directory.resolve(name + LOCK_SUFFIX));
+        try {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, name + "-*" + SUFFIX)) {
+                for (Path file : stream) {
+                    files.add(file);
+                }
+            }
+            files.sort(Comparator.comparingLong(ZooKeeperEventJournal::sequenceOf));
+            for (Path file : files) {
+                journal.recovered.add(Segment.map(file, sequenceOf(file)));
+                journal.nextSequence = Math.max(journal.nextSequence, sequenceOf(file) + 1);
+            }
+            journal.segments.add(journal.newSegment());
+        } catch (IOException e) {
+            journal.lock.channel().close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Hands the pending events of the previous activation to the given
+     * consumer in the order they were appended, then deletes their segments.
+     * The consumer is expected to append the events again.
+     *
+     * @param consumer the consumer of the replayed events
+     */
+    void replay(Consumer<WatchedEvent> consumer) {
+        List<Segment> replayed;
+        synchronized (this) {
+            replayed = new ArrayList<>(recovered);
+            recovered.clear();
+        }
+        for (Segment segment : replayed) {
+            SegmentReader reader = new SegmentReader(segment);
+            WatchedEvent event;
+            while ((event = reader.next()) != null) {
+                if (reader.status == PENDING) {
+                    consumer.accept(event);
+                }
+            }
+            segment.delete();
+        }
+        if (!replayed.isEmpty()) {
+            logger.log(Level.FINE, "Replayed journal {0}", name);
+        }
+    }
+
+    /**
+     * Appends the given event as pending.
+     *
+     * @param event the accepted event
+     */
+    synchronized void append(WatchedEvent event) {
+        if (closed) {
+            return;
+        }
+        byte[] path = event.getPath() != null ? event.getPath().getBytes(StandardCharsets.UTF_8) : null;
+        int size = 4 + HEADER_SIZE + (path != null ? path.length : 0);
+        if (size + 4 > segmentSize) {
+            logger.log(Level.WARNING, "Event {0} exceeds the journal segment size", event);
+            return;
+        }
+        Segment active = segments.getLast();
+        if (active.position + size + 4 > segmentSize) {
+            try {
+                active = roll(size);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Unable to roll journal " + name, e);
+                return;
+            }
+        }
+        long zxid = event instanceof EnrichedZooKeeperEvent ? ((EnrichedZooKeeperEvent) event).getZxid() : -1L;
+        records.put(event, active.write(PENDING, zxid, event.getType(), event.getState(), path));
+    }
+
+    /**
+     * Acknowledges the given event. Does nothing if the event is not pending.
+     *
+     * @param event the delivered or discarded event
+     */
+    synchronized void acknowledge(WatchedEvent event) {
+        Record record = records.remove(event);
+        if (record == null || closed) {
+            return;
+        }
+        Segment segment = record.segment;
+        segment.buffer.put(record.offset + 4, ACKNOWLEDGED);
+        if (--segment.pending == 0 && segment != segments.getLast()) {
+            segments.remove(segment);
+            segment.delete();
+        }
+    }
+
+    /**
+     * Forces the segments to the disk and closes the journal. The pending
+     * events are replayed by the next activation.
+     */
+    synchronized void close() {
+        closed = true;
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+        records.clear();
+        for (Spill spill : spills) {
+            spill.records.clear();
+        }
+        try {
+            lock.channel().close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to unlock journal " + name, e);
+        }
+    }
+
+    /**
+     * Creates a new spill of the events of a full queue.
+     *
+     * @return the spill
+     */
+    synchronized Spill newSpill() {
+        Spill spill = new Spill();
+        spills.add(spill);
+        return spill;
+    }
+
+    /**
+     * Starts a new active segment and compacts the full ones: the segments
+     * with no pending records are deleted, while the pending records of the
+     * newest others are copied to the new segment if they fit. An older
+     * segment is never copied past a kept newer one, so the replay order of
+     * the records is kept.
+     *
+     * @param reserved the size of the record to append after the compaction
+     * @return the new active segment
+     * @throws IOException if the segment cannot be created
+     */
+    private Segment roll(int reserved) throws IOException {
+        segments.getLast().buffer.force();
+        Segment active = newSegment();
+        List<Record> pending = new ArrayList<>(records.values());
+        for (Spill spill : spills) {
+            pending.addAll(spill.records);
+        }
+        pending.sort(Comparator.comparingLong((Record record) -> record.segment.sequence)
+                               .thenComparingInt(record -> record.offset));
+        Map<Segment, Integer> live = new IdentityHashMap<>();
+        for (Record record : pending) {
+            live.merge(record.segment, record.size, Integer::sum);
+        }
+        for (Iterator<Segment> i = segments.iterator(); i.hasNext(); ) {
+            Segment segment = i.next();
+            if (!live.containsKey(segment)) {
+                i.remove();
+                segment.delete();
+            }
+        }
+        // the newest segments which pending records fit
+        int size = reserved + 4;
+        Segment oldest = null;
+        for (Iterator<Segment> i = segments.descendingIterator(); i.hasNext(); ) {
+            Segment segment = i.next();
+            size += live.get(segment);
+            if (size > segmentSize) {
+                break;
+            }
+            oldest = segment;
+        }
+        if (oldest != null) {
+            for (Record record : pending) {
+                if (record.segment.sequence >= oldest.sequence) {
+                    active.copy(record.segment, record);
+                }
+            }
+            while (!segments.isEmpty() && segments.getLast().sequence >= oldest.sequence) {
+                segments.removeLast().delete();
+            }
+        }
+        segments.add(active);
+        return active;
+    }
+
+    private Segment newSegment() throws IOException {
+        Path file = directory.resolve(String.format("%s-%016x%s", name, nextSequence, SUFFIX));
+        return Segment.create(file, nextSequence++, segmentSize);
+    }
+
+    /**
+     * Locks the given lock file exclusively, within this JVM as well.
+     *
+     * @param file the lock file, created if it does not exist
+     * @return the lock
+     * @throws IOException if the file is already locked or cannot be locked
+     */
+    private static FileLock lock(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock = null;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by this JVM
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Journal is already open: " + file);
+        }
+        return lock;
+    }
+
+    private static long sequenceOf(Path file) {
+        String fileName = file.getFileName().toString();
+        return Long.parseLong(fileName.substring(fileName.lastIndexOf('-') + 1, fileName.length() - SUFFIX.length()), 16);
+    }
+
+    /**
+     * A memory-mapped segment file.
+     */
+    private static final class Segment {
+
+        private final Path file;
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+
+        /**
+         * The offset of the next record.
+         */
+        private int position;
+
+        /**
+         * The number of the pending records.
+         */
+        private int pending;
+
+        private Segment(Path file, long sequence, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path file, long sequence, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(file, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        static Segment map(Path file, long sequence) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(file, sequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            }
+        }
+
+        Record write(byte status, long zxid, Watcher.Event.EventType type,
+                     Watcher.Event.KeeperState state, byte[] path) {
+            int offset = position;
+            int length = HEADER_SIZE + (path != null ? path.length : 0);
+            buffer.put(offset + 4, status);
+            buffer.putLong(offset + 5, zxid);
+            buffer.putInt(offset + 13, type.getIntValue());
+            buffer.putInt(offset + 17, state.getIntValue());
+            buffer.putInt(offset + 21, path != null ? path.length : -1);
+            if (path != null) {
+                view(offset + 25).put(path);
+            }
+            // the record is complete once its length is written
+            buffer.putInt(offset, length);
+            position += 4 + length;
+            pending++;
+            return new Record(this, offset, 4 + length);
+        }
+
+        /**
+         * Copies the given record of the given segment to this one and moves
+         * the record to its copy.
+         *
+         * @param source the segment of the record
+         * @param record the pending record
+         */
+        void copy(Segment source, Record record) {
+            int offset = position;
+            ByteBuffer body = source.view(record.offset + 4);
+            ((Buffer) body).limit(record.offset + record.size);
+            view(offset + 4).put(body);
+            buffer.putInt(offset, record.size - 4);
+            position += record.size;
+            pending++;
+            record.segment = this;
+            record.offset = offset;
+        }
+
+        /**
+         * Returns a view of the segment starting at the given offset. The
+         * {@code Buffer} methods are invoked, as the buffers override them
+         * since Java 9.
+         *
+         * @param offset the offset
+         * @return the view
+         */
+        ByteBuffer view(int offset) {
+            ByteBuffer view = ((ByteBuffer) buffer).duplicate();
+            ((Buffer) view).position(offset);
+            return view;
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Unable to delete journal segment " + file, e);
+            }
+        }
+    }
+
+    /**
+     * The location of a pending record, moved once the record is compacted.
+     */
+    private static final class Record {
+
+        private Segment segment;
+        private int offset;
+        private final int size;
+
+        Record(Segment segment, int offset, int size) {
+            this.segment = segment;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The events spilled by a full queue, in the order they were spilled. A
+     * spilled event is read back from its pending record, so it is delivered
+     * as a plain {@code WatchedEvent}, and is acknowledged as usual once
+     * delivered. The spilled events left by a deactivation are replayed.
+     */
+    final class Spill {
+
+        /**
+         * The records of the spilled events, guarded by the journal.
+         */
+        private final Deque<Record> records = new ArrayDeque<>();
+
+        private Spill() {
+        }
+
+        /**
+         * Spills the given appended event, so it is no longer referenced by
+         * the journal.
+         *
+         * @param event the appended event
+         * @return {@code true} if the event was spilled, {@code false} if it
+         *         is not pending, e.g. it exceeds the segment size
+         */
+        boolean add(WatchedEvent event) {
+            synchronized (ZooKeeperEventJournal.this) {
+                Record record = ZooKeeperEventJournal.this.records.remove(event);
+                if (record == null) {
+                    return false;
+                }
+                records.add(record);
+                return true;
+            }
+        }
+
+        /**
+         * Reads back the oldest spilled event, pending again until acknowledged.
+         *
+         * @return the event or {@code null} if none is spilled
+         */
+        WatchedEvent poll() {
+            synchronized (ZooKeeperEventJournal.this) {
+                Record record = records.poll();
+                if (record == null) {
+                    return null;
+                }
+                WatchedEvent event = new SegmentReader(record.segment, record.offset).next();
+                ZooKeeperEventJournal.this.records.put(event, record);
+                return event;
+            }
+        }
+
+        /**
+         * Returns the number of the spilled events.
+         *
+         * @return the number of spilled events
+         */
+        int size() {
+            synchronized (ZooKeeperEventJournal.this) {
+                return records.size();
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a segment in order.
+     */
+    private static final class SegmentReader {
+
+        private final Segment segment;
+        private final ByteBuffer buffer;
+        private int position;
+        private byte status;
+
+        SegmentReader(Segment segment) {
+            this(segment, 0);
+        }
+
+        SegmentReader(Segment segment, int position) {
+            this.segment = segment;
+            this.buffer = segment.buffer;
+            this.position = position;
+        }
+
+        /**
+         * Returns the event of the next record and keeps its status.
+         *
+         * @return the event or {@code null} if no complete record is left
+         */
+        WatchedEvent next() {
+            if (position + 4 + HEADER_SIZE > buffer.capacity()) {
+                return null;
+            }
+            int length = buffer.getInt(position);
+            if (length < HEADER_SIZE || position + 4 + length > buffer.capacity()) {
+                return null;
+            }
+            status = buffer.get(position + 4);
+            Watcher.Event.EventType type;
+            Watcher.Event.KeeperState state;
+            try {
+                type = Watcher.Event.EventType.fromInt(buffer.getInt(position + 13));
+                state = Watcher.Event.KeeperState.fromInt(buffer.getInt(position + 17));
+            } catch (RuntimeException e) {
+                // a torn record
+                return null;
+            }
+            int pathLength = buffer.getInt(position + 21);
+            String path = null;
+            if (pathLength >= 0) {
+                if (pathLength != length - HEADER_SIZE) {
+                    return null;
+                }
+                byte[] bytes = new byte[pathLength];
+                segment.view(position + 25).get(bytes);
+                path = new String(bytes, StandardCharsets.UTF_8);
+            }
+            position += 4 + length;
+            return new WatchedEvent(type, state, path);
+        }
+    }
+
+}
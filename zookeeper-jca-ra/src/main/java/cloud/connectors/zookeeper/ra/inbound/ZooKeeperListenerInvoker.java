@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a listener method of the message endpoints with a method handle
+ * instead of the reflection, so no arguments array is allocated and the access
+ * is checked once when the invoker is created.
+ *
+ * <p>The invokers are created once per endpoint class and are shared by all
+ * the delivery workers of the endpoint.
+ *
+ * @author alexa
+ */
+public final class ZooKeeperListenerInvoker {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Method method;
+
+    /**
+     * The handle of the listener method adapted to {@code (Object, Object)void}.
+     */
+    private final MethodHandle handle;
+
+    private ZooKeeperListenerInvoker(Method method, MethodHandle handle) {
+        this.method = method;
+        this.handle = handle;
+    }
+
+    /**
+     * Creates the invoker of the given listener method taking a single argument.
+     *
+     * @param method the listener method
+     * @return the invoker of the method
+     * @throws IllegalArgumentException if the method is not accessible
+     */
+    public static ZooKeeperListenerInvoker of(Method method) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // a public method of a non-public endpoint class
+            try {
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException | SecurityException ex) {
+                throw new IllegalArgumentException("Listener method " + method + " is not accessible", ex);
+            }
+        }
+        return new ZooKeeperListenerInvoker(method, handle.asType(INVOKER_TYPE));
+    }
+
+    /**
+     * Returns the listener method.
+     *
+     * @return the listener method
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Invokes the listener method of the given endpoint. An error thrown by the
+     * listener method is propagated as is.
+     *
+     * @param endpoint the message endpoint
+     * @param argument the event or the batch of events
+     * @throws InvocationTargetException if the listener method throws an exception
+     */
+    public void invoke(Object endpoint, Object argument) throws InvocationTargetException {
+        try {
+            handle.invokeExact(endpoint, argument);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches the node paths against a set of glob patterns compiled into
+ * a trie of the path segments, e.g. {@code /services/node-?} or
+ * {@code /config/**}. In a segment, {@code *} matches any sequence of
+ * characters and {@code ?} matches any single character. The {@code **}
+ * segment matches any number of segments including none.
+ *
+ * <p>A path is matched by walking the trie along its segments in place,
+ * so no substring is allocated and the patterns sharing a prefix are
+ * evaluated once.
+ *
+ * @author alexa
+ * @see ZooKeeperEventFilter
+ */
+class ZooKeeperPathMatcher {
+
+    private static final String ANY_SEGMENTS = "**";
+
+    private final Node root = new Node();
+
+    /**
+     * Compiles the given comma separated glob patterns.
+     *
+     * @param patterns the comma separated absolute path patterns
+     * @throws IllegalArgumentException if a pattern is not an absolute path
+     */
+    ZooKeeperPathMatcher(String patterns) {
+        for (String pattern : patterns.split(",")) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Path pattern must starts with '/': " + pattern);
+            }
+            Node node = root;
+            for (String segment : pattern.substring(1).split("/")) {
+                if (!segment.isEmpty()) {
+                    node = node.child(segment);
+                }
+            }
+            node.terminal = true;
+        }
+    }
+
+    /**
+     * Returns whether the given path matches any of the patterns.
+     *
+     * @param path the absolute node path
+     * @return {@code true} if the path matches
+     */
+    boolean matches(String path) {
+        // the root path has no segments
+        return matches(root, path, path.length() > 1 ? 0 : path.length());
+    }
+
+    /**
+     * Matches the rest of the path starting with the separator at the given
+     * index, or the end of the path, against the subtrie of the given node.
+     */
+    private static boolean matches(Node node, String path, int from) {
+        if (node.anySegments != null) {
+            // try to skip any number of the remaining segments
+            for (int i = from; i >= 0 && i < path.length(); i = path.indexOf('/', i + 1)) {
+                if (matches(node.anySegments, path, i)) {
+                    return true;
+                }
+            }
+            if (matches(node.anySegments, path, path.length())) {
+                return true;
+            }
+        }
+        if (from >= path.length()) {
+            return node.terminal;
+        }
+        int start = from + 1;
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        for (Node child : node.children) {
+            if (child.matchesSegment(path, start, end) && matches(child, path, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A trie node of a pattern segment.
+     */
+    private static final class Node {
+
+        private final String segment;
+        private final boolean glob;
+        private final List<Node> children = new ArrayList<>();
+        private Node anySegments;
+        private boolean terminal;
+
+        Node() {
+            this(null);
+        }
+
+        Node(String segment) {
+            this.segment = segment;
+            this.glob = segment != null && (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0);
+        }
+
+        Node child(String segment) {
+            if (ANY_SEGMENTS.equals(segment)) {
+                if (anySegments == null) {
+                    anySegments = new Node(segment);
+                }
+                return anySegments;
+            }
+            for (Node child : children) {
+                if (child.segment.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node(segment);
+            children.add(child);
+            return child;
+        }
+
+        /**
+         * Returns whether the path segment between the given indexes matches
+         * the segment of this node.
+         */
+        boolean matchesSegment(String path, int start, int end) {
+            if (!glob) {
+                return end - start == segment.length() && path.regionMatches(start, segment, 0, end - start);
+            }
+            // iterative glob matching backtracking to the last star
+            int p = 0;
+            int s = start;
+            int star = -1;
+            int mark = start;
+            while (s < end) {
+                if (p < segment.length() && (segment.charAt(p) == '?' || segment.charAt(p) == path.charAt(s))) {
+                    p++;
+                    s++;
+                } else if (p < segment.length() && segment.charAt(p) == '*') {
+                    star = p++;
+                    mark = s;
+                } else if (star >= 0) {
+                    p = star + 1;
+                    s = ++mark;
+                } else {
+                    return false;
+                }
+            }
+            while (p < segment.length() && segment.charAt(p) == '*') {
+                p++;
+            }
+            return p == segment.length();
+        }
+    }
+
+}
@@ -24,9 +24,13 @@ import javax.resource.spi.Connector;
 import javax.resource.spi.ResourceAdapter;
 import javax.resource.spi.ResourceAdapterInternalException;
 import javax.resource.spi.endpoint.MessageEndpointFactory;
+import javax.resource.spi.work.WorkException;
 import javax.transaction.xa.XAResource;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +39,9 @@ import java.util.logging.Logger;
  * lifecycle management and message endpoint setup.This implementation
  * is a JavaBean according to JCA specification.
  *
+ * <p>The endpoint activations with the same connection configuration share
+ * a {@link ZooKeeperWatchSession watch session}.
+ *
  * @author alexa
  */
 @Connector(
@@ -47,14 +54,26 @@ public class ZooKeeperResourceAdapter implements ResourceAdapter {
     private static final Logger logger = Logger.getLogger(ZooKeeperResourceAdapter.class.getName());
 
     /**
-     * A registered watchers.
+     * A registered watchers. Guarded by the {@code sessions}.
      */
     private final Map<MessageEndpointFactory, ZooKeeperWatcher> registeredWatchers;
 
+    /**
+     * The sessions of the registered watchers. Guarded by the {@code sessions}.
+     */
+    private final Map<MessageEndpointFactory, ZooKeeperWatchSession> registeredSessions;
+
+    /**
+     * The watch sessions by their connection configuration keys.
+     */
+    private final Map<String, List<ZooKeeperWatchSession>> sessions;
+
     private BootstrapContext bootstrapContext;
 
     public ZooKeeperResourceAdapter() {
-        this.registeredWatchers = new ConcurrentHashMap<>();
+        this.registeredWatchers = new HashMap<>();
+        this.registeredSessions = new HashMap<>();
+        this.sessions = new HashMap<>();
     }
 
     /**
@@ -70,13 +89,19 @@ public class ZooKeeperResourceAdapter implements ResourceAdapter {
      */
     @Override
     public void stop() {
-        // go through registered watchers and close them
-        for (ZooKeeperWatcher watcher : registeredWatchers.values()) {
-            try {
+        synchronized (sessions) {
+            // go through registered watchers and close them
+            for (ZooKeeperWatcher watcher : registeredWatchers.values()) {
                 watcher.close();
-            } catch (ResourceException e) {
-                logger.log(Level.SEVERE, null, e);
             }
+            for (List<ZooKeeperWatchSession> list : sessions.values()) {
+                for (ZooKeeperWatchSession session : list) {
+                    closeSession(session);
+                }
+            }
+            registeredWatchers.clear();
+            registeredSessions.clear();
+            sessions.clear();
         }
     }
 
@@ -87,11 +112,46 @@ public class ZooKeeperResourceAdapter implements ResourceAdapter {
     public void endpointActivation(MessageEndpointFactory messageEndpointFactory,
                                    ActivationSpec activationSpec) throws ResourceException {
         if (activationSpec instanceof ZooKeeperActivationSpec) {
-            ZooKeeperWatcher watcher = new ZooKeeperWatcher(messageEndpointFactory,
-                                                            (ZooKeeperActivationSpec) activationSpec,
-                                                            bootstrapContext.getWorkManager());
-            registeredWatchers.put(messageEndpointFactory, watcher);
-            bootstrapContext.getWorkManager().scheduleWork(watcher);
+            ZooKeeperActivationSpec zooKeeperActivationSpec = (ZooKeeperActivationSpec) activationSpec;
+            ZooKeeperWatcher watcher;
+            try {
+                watcher = new ZooKeeperWatcher(messageEndpointFactory,
+                                               zooKeeperActivationSpec,
+                                               bootstrapContext.getWorkManager());
+            } catch (IllegalArgumentException e) {
+                throw new ResourceException("Invalid listener of " +
+                                            messageEndpointFactory.getEndpointClass().getName(), e);
+            } catch (UncheckedIOException e) {
+                throw new ResourceException("Unable to open the event journal of " +
+                                            messageEndpointFactory.getEndpointClass().getName(), e.getCause());
+            }
+            ZooKeeperWatchSession session = null;
+            synchronized (sessions) {
+                List<ZooKeeperWatchSession> candidates = sessions.computeIfAbsent(
+                        ZooKeeperWatchSession.key(zooKeeperActivationSpec), key -> new ArrayList<>());
+                for (ZooKeeperWatchSession candidate : candidates) {
+                    if (candidate.canWatch(watcher)) {
+                        session = candidate;
+                        break;
+                    }
+                }
+                if (session == null) {
+                    session = new ZooKeeperWatchSession(zooKeeperActivationSpec);
+                    try {
+                        bootstrapContext.getWorkManager().scheduleWork(session);
+                    } catch (WorkException | RuntimeException e) {
+                        // releases the journal lock taken by the watcher
+                        watcher.close();
+                        throw e;
+                    }
+                    candidates.add(session);
+                }
+                session.register(watcher);
+                registeredWatchers.put(messageEndpointFactory, watcher);
+                registeredSessions.put(messageEndpointFactory, session);
+            }
+            // the watch is added and the journal is replayed without blocking the other activations
+            session.add(watcher);
         } else {
             throw new NotSupportedException("Got endpoint activation for an ActivationSpec of unknown class " +
                                             activationSpec.getClass().getName());
@@ -103,16 +163,39 @@ public class ZooKeeperResourceAdapter implements ResourceAdapter {
      */
     @Override
     public void endpointDeactivation(MessageEndpointFactory messageEndpointFactory, ActivationSpec activationSpec) {
-        ZooKeeperWatcher watcher = registeredWatchers.remove(messageEndpointFactory);
+        ZooKeeperWatcher watcher;
+        ZooKeeperWatchSession session;
+        boolean last = false;
+        synchronized (sessions) {
+            watcher = registeredWatchers.remove(messageEndpointFactory);
+            session = registeredSessions.remove(messageEndpointFactory);
+            if (watcher != null && session.unregister(watcher)) {
+                // the last activation of the session
+                List<ZooKeeperWatchSession> list = sessions.get(session.getKey());
+                list.remove(session);
+                if (list.isEmpty()) {
+                    sessions.remove(session.getKey());
+                }
+                last = true;
+            }
+        }
         if (watcher != null) {
-            try {
-                watcher.close();
-            } catch (ResourceException e) {
-                logger.log(Level.SEVERE, null, e);
+            session.remove(watcher);
+            if (last) {
+                closeSession(session);
             }
         }
     }
 
+    private static void closeSession(ZooKeeperWatchSession session) {
+        try {
+            session.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.SEVERE, "Unable to close ZooKeeper client connection", e);
+        }
+    }
+
     /**
      * This resource adapter currently does not supports transactions.
      */
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import org.apache.zookeeper.AsyncCallback;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Walks a ZooKeeper subtree with the pipelined asynchronous reads. At most
+ * {@code maxInFlight} reads are in-flight at a time, the next read is sent
+ * from the completion callback of a previous one, so the walk never blocks
+ * the ZooKeeper event thread. The nodes deleted while the subtree is walked
+ * are skipped.
+ *
+ * @author alexa
+ */
+class ZooKeeperTreeWalker implements AsyncCallback.Children2Callback {
+
+    /**
+     * Visits the nodes of the walked subtree. Invoked on the ZooKeeper event
+     * thread, the parent nodes are visited before their children.
+     */
+    interface Visitor {
+
+        /**
+         * Visits an existing node.
+         *
+         * @param path the node path
+         * @param stat the node stat
+         * @param children the names of the node children
+         */
+        void visit(String path, Stat stat, List<String> children);
+    }
+
+    private final ZooKeeper zooKeeper;
+    private final boolean recursive;
+    private final int maxInFlight;
+    private final Visitor visitor;
+    private final CompletableFuture<Void> result;
+
+    /**
+     * The paths to read, guarded by this walker.
+     */
+    private final Deque<String> pending;
+
+    /**
+     * The number of the reads in-flight, guarded by this walker.
+     */
+    private int inFlight;
+
+    private ZooKeeperTreeWalker(ZooKeeper zooKeeper, boolean recursive, int maxInFlight, Visitor visitor) {
+        this.zooKeeper = zooKeeper;
+        this.recursive = recursive;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.visitor = visitor;
+        this.result = new CompletableFuture<>();
+        this.pending = new ArrayDeque<>();
+    }
+
+    /**
+     * Walks the subtree of the given root.
+     *
+     * @param zooKeeper the ZooKeeper client
+     * @param root the root path of the subtree
+     * @param recursive whether the descendants are walked, otherwise only the root is visited
+     * @param maxInFlight the maximum number of the reads in-flight
+     * @param visitor the node visitor
+     * @return the future completed once all the nodes are visited, or exceptionally
+     * with the {@link KeeperException} if a read failed
+     */
+    static CompletableFuture<Void> walk(ZooKeeper zooKeeper, String root, boolean recursive,
+                                        int maxInFlight, Visitor visitor) {
+        ZooKeeperTreeWalker walker = new ZooKeeperTreeWalker(zooKeeper, recursive, maxInFlight, visitor);
+        synchronized (walker) {
+            walker.pending.add(root);
+            walker.pump();
+        }
+        return walker.result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void processResult(int rc, String path, Object ctx, List<String> children, Stat stat) {
+        KeeperException.Code code = KeeperException.Code.get(rc);
+        if (code == KeeperException.Code.OK) {
+            try {
+                visitor.visit(path, stat, children);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        } else if (code != KeeperException.Code.NONODE) {
+            result.completeExceptionally(KeeperException.create(code, path));
+        }
+        synchronized (this) {
+            inFlight--;
+            if (code == KeeperException.Code.OK && recursive) {
+                String prefix = path.equals("/") ? path : path + '/';
+                for (String child : children) {
+                    pending.add(prefix + child);
+                }
+            }
+            pump();
+        }
+    }
+
+    /**
+     * Sends the pending reads up to the in-flight limit and completes the walk
+     * if nothing is left. Must be invoked holding the lock of this walker.
+     */
+    private void pump() {
+        if (result.isDone()) {
+            return;
+        }
+        while (inFlight < maxInFlight && !pending.isEmpty()) {
+            inFlight++;
+            zooKeeper.getChildren(pending.poll(), false, this, null);
+        }
+        if (inFlight == 0) {
+            result.complete(null);
+        }
+    }
+
+}
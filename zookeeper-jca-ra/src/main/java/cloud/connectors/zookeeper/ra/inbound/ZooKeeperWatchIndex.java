@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher.Event;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A local index of the watched subtrees, keeps the {@code mzxid} and the
+ * {@code cversion} of each watched node. Kept up to date by the watched events
+ * and used to find the changes made while no ZooKeeper session existed, see
+ * {@link #resync(ZooKeeper, Map)}.
+ *
+ * <p>The roots of the indexed subtrees are mapped to whether the subtree is
+ * indexed recursively, otherwise only the root node is indexed.
+ *
+ * @author alexa
+ */
+class ZooKeeperWatchIndex {
+
+    /**
+     * The maximum number of the reads in-flight while a subtree is walked.
+     */
+    private static final int MAX_IN_FLIGHT = 100;
+
+    private final ConcurrentMap<String, Entry> entries;
+
+    /**
+     * The paths which stats are being read mapped to whether they were changed
+     * again since the read was sent.
+     */
+    private final ConcurrentMap<String, Boolean> reads;
+
+    ZooKeeperWatchIndex() {
+        this.entries = new ConcurrentHashMap<>();
+        this.reads = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns whether the given path is indexed with the given roots.
+     *
+     * @param roots the roots of the indexed subtrees
+     * @param path the node path
+     * @return {@code true} if the path is covered by a root
+     */
+    static boolean covers(Map<String, Boolean> roots, String path) {
+        for (Map.Entry<String, Boolean> root : roots.entrySet()) {
+            if (root.getKey().equals(path) ||
+                root.getValue() && ZooKeeperWatchSession.isAncestor(root.getKey(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indexes the existing nodes of the given subtree.
+     *
+     * @param zooKeeper the ZooKeeper client
+     * @param root the root path of the subtree
+     * @param recursive whether the descendants are indexed
+     * @return the future completed once the subtree is indexed
+     */
+    CompletableFuture<Void> build(ZooKeeper zooKeeper, String root, boolean recursive) {
+        return ZooKeeperTreeWalker.walk(zooKeeper, root, recursive, MAX_IN_FLIGHT,
+                                        (path, stat, children) -> entries.put(path, new Entry(stat)));
+    }
+
+    /**
+     * Updates the index entry of the path of the given event. The deleted node is
+     * removed, while the stat of any other node is read asynchronously, so the
+     * ZooKeeper event thread is not blocked. The reads of a path are coalesced:
+     * while its stat is being read, the further events of the path only cause
+     * a single read once the current one completes, so a burst of the changes
+     * of a node costs at most two reads.
+     *
+     * @param zooKeeper the ZooKeeper client
+     * @param event the data or children event of an indexed path
+     */
+    void update(ZooKeeper zooKeeper, WatchedEvent event) {
+        if (event.getType() == Event.EventType.NodeDeleted) {
+            entries.remove(event.getPath());
+            return;
+        }
+        if (!reads.merge(event.getPath(), Boolean.FALSE, (inFlight, ignore) -> Boolean.TRUE)) {
+            read(zooKeeper, event.getPath());
+        }
+    }
+
+    private void read(ZooKeeper zooKeeper, String path) {
+        zooKeeper.exists(path, false, (rc, p, ctx, stat) -> {
+            KeeperException.Code code = KeeperException.Code.get(rc);
+            if (code == KeeperException.Code.OK) {
+                entries.put(p, new Entry(stat));
+            } else if (code == KeeperException.Code.NONODE) {
+                entries.remove(p);
+            }
+            // the path changed while it was read is read again
+            if (reads.computeIfPresent(p, (ignore, changed) -> changed ? Boolean.FALSE : null) != null) {
+                read(zooKeeper, p);
+            }
+        }, null);
+    }
+
+    /**
+     * Returns the number of the indexed nodes.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes the entries not covered by the given roots anymore.
+     *
+     * @param roots the roots of the indexed subtrees
+     */
+    void retain(Map<String, Boolean> roots) {
+        entries.keySet().removeIf(path -> !covers(roots, path));
+    }
+
+    /**
+     * Walks the live subtrees of the given roots and diffs them against this
+     * index. The index is replaced with the live nodes once all the subtrees are
+     * walked. Returns the synthetic events of the changed nodes: the deleted nodes
+     * deepest first, then the created nodes parents first and the nodes with the
+     * changed data. The roots indexed non-recursively also get the children
+     * event if their children were changed.
+     *
+     * <p>A change made while the subtrees are walked may be both returned and
+     * delivered by the watch, thus the events are delivered at least once.
+     *
+     * @param zooKeeper the ZooKeeper client
+     * @param roots the roots of the indexed subtrees
+     * @return the future of the synthetic events, completed exceptionally with
+     * the {@link KeeperException} if a read failed
+     */
+    CompletableFuture<List<WatchedEvent>> resync(ZooKeeper zooKeeper, Map<String, Boolean> roots) {
+        ConcurrentNavigableMap<String, Entry> live = new ConcurrentSkipListMap<>();
+        List<CompletableFuture<Void>> walks = new ArrayList<>(roots.size());
+        for (Map.Entry<String, Boolean> root : roots.entrySet()) {
+            walks.add(ZooKeeperTreeWalker.walk(zooKeeper, root.getKey(), root.getValue(), MAX_IN_FLIGHT,
+                                               (path, stat, children) -> live.put(path, new Entry(stat))));
+        }
+        return CompletableFuture.allOf(walks.toArray(new CompletableFuture<?>[0]))
+                                .thenApply(ignore -> diff(roots, live));
+    }
+
+    private List<WatchedEvent> diff(Map<String, Boolean> roots, Map<String, Entry> live) {
+        List<WatchedEvent> events = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (String path : entries.keySet()) {
+            if (!live.containsKey(path) && covers(roots, path)) {
+                deleted.add(path);
+            }
+        }
+        // a descendant path is greater than the path of its ancestor
+        deleted.sort(Collections.reverseOrder());
+        for (String path : deleted) {
+            entries.remove(path);
+            events.add(event(Event.EventType.NodeDeleted, path));
+        }
+        for (Map.Entry<String, Entry> node : live.entrySet()) {
+            String path = node.getKey();
+            Entry current = node.getValue();
+            Entry indexed = entries.put(path, current);
+            if (indexed == null) {
+                events.add(event(Event.EventType.NodeCreated, path));
+                continue;
+            }
+            if (indexed.mzxid != current.mzxid) {
+                events.add(event(Event.EventType.NodeDataChanged, path));
+            }
+            if (indexed.cversion != current.cversion && Boolean.FALSE.equals(roots.get(path))) {
+                events.add(event(Event.EventType.NodeChildrenChanged, path));
+            }
+        }
+        return events;
+    }
+
+    private static WatchedEvent event(Event.EventType type, String path) {
+        return new WatchedEvent(type, Event.KeeperState.SyncConnected, path);
+    }
+
+    /**
+     * The indexed versions of a node.
+     */
+    private static final class Entry {
+
+        private final long mzxid;
+        private final int cversion;
+
+        Entry(Stat stat) {
+            this.mzxid = stat.getMzxid();
+            this.cversion = stat.getCversion();
+        }
+    }
+
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.ra.ManagementSupport;
+import org.apache.zookeeper.AddWatchMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+
+import javax.management.ObjectName;
+import javax.resource.spi.work.Work;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A ZooKeeper session shared by the endpoint activations with the same
+ * connection configuration. Will get various events from the ZooKeeper server
+ * it connects to and routes the data and children events to the
+ * {@link ZooKeeperWatcher watchers} of the activations.
+ *
+ * <p>The watches of the activations are merged: a recursive watch is not added
+ * if its base path is covered by the recursive watch of another activation.
+ * The events are routed by a trie of the base paths, so an event is handed to
+ * every activation watching its path with a single walk along the path.
+ *
+ * <p>The ZooKeeper server keeps a single watch mode per path and session, so
+ * the activations watching the same path in the different modes never share
+ * a session, see {@link #canWatch(ZooKeeperWatcher)}.
+ *
+ * <p>The base paths of the activations resynchronised after the session expiry
+ * are indexed, see {@link ZooKeeperWatchIndex}. Once the expired session is
+ * re-created and the watches are re-added, the live nodes are diffed against
+ * the index and the synthetic events of the changed nodes are routed to these
+ * activations only.
+ *
+ * <p>Will start in a separate thread by a {@code WorkManager}.
+ *
+ * @author alexa
+ */
+class ZooKeeperWatchSession implements ZooKeeperWatchSessionMXBean, Watcher, Work {
+
+    private static final Logger logger = Logger.getLogger(ZooKeeperWatchSession.class.getName());
+
+    /**
+     * A comma separated host:port pairs, each corresponds to a ZooKeeper server,
+     * e.g. "127.0.0.1:3000,127.0.0.1:3001,127.0.0.1:3002". If the optional chroot
+     * suffix is used, the example would look like
+     * "127.0.0.1:3000,127.0.0.1:3001,127.0.0.1:3002/app/a", where the client would
+     * be rooted at "/app/a" and all paths would be relative to this root, i.e.
+     * getting/setting/etc... "/foo/bar" would result in operations being run on
+     * "/app/a/foo/bar" (from the server perspective).
+     */
+    private final String connectString;
+
+    /**
+     * Connect timeout in milliseconds. Will try to connect to the ZooKeeper indefinitely
+     * if not specified.
+     */
+    private final Integer connectTimeout;
+
+    /**
+     * Session timeout in milliseconds.
+     */
+    private final int sessionTimeout;
+
+    /**
+     * Whether the created client is allowed to go to read-only mode in case of partitioning.
+     * Read-only mode basically means that if the client can't find any majority servers
+     * but there's partitioned server it could reach, it connects to one in read-only mode,
+     * i.e. read requests are allowed while write requests are not. It continues seeking
+     * for majority in the background.
+     */
+    private final boolean canBeReadOnly;
+
+    private final String key;
+
+    /**
+     * The watchers of the activations registered to this session, including
+     * the ones not added yet. Read without locking this session, so the
+     * activations are not blocked by the ZooKeeper requests of the session.
+     */
+    private final List<ZooKeeperWatcher> registeredWatchers;
+
+    /**
+     * The added watchers of the activations, guarded by this session.
+     */
+    private final List<ZooKeeperWatcher> watchers;
+
+    /**
+     * The watches added to the current ZooKeeper session, guarded by this session.
+     */
+    private final Map<String, AddWatchMode> addedWatches;
+
+    /**
+     * The root of the immutable trie the events are routed by. Replaced on
+     * each change of the watchers.
+     */
+    private volatile Node root;
+
+    private final ZooKeeperWatchIndex index;
+
+    /**
+     * The indexed base paths mapped to whether they are indexed recursively.
+     * Replaced on each change of the watchers.
+     */
+    private volatile Map<String, Boolean> indexRoots;
+
+    private volatile ZooKeeper zooKeeper;
+
+    /**
+     * Whether the current ZooKeeper session is connected and the watches may be added.
+     * Guarded by this session.
+     */
+    private boolean watching;
+
+    private boolean closed;
+
+    /**
+     * The object name of the MBean, guarded by this session.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Creates new watch session with the connection configuration of the given activation.
+     *
+     * @param activationSpec the activation spec
+     */
+    ZooKeeperWatchSession(ZooKeeperActivationSpec activationSpec) {
+        this.connectString = activationSpec.getConnectString();
+        this.connectTimeout = activationSpec.getConnectTimeout();
+        this.sessionTimeout = activationSpec.getSessionTimeout();
+        this.canBeReadOnly = activationSpec.isCanBeReadOnly();
+        this.key = key(activationSpec);
+        this.registeredWatchers = new CopyOnWriteArrayList<>();
+        this.watchers = new ArrayList<>();
+        this.addedWatches = new HashMap<>();
+        this.root = new Node();
+        this.index = new ZooKeeperWatchIndex();
+        this.indexRoots = Collections.emptyMap();
+    }
+
+    /**
+     * Returns the key of the connection configuration of the given activation.
+     * The activations with the same key may share a session.
+     *
+     * @param activationSpec the activation spec
+     * @return the session key
+     */
+    static String key(ZooKeeperActivationSpec activationSpec) {
+        return activationSpec.getConnectString() + ';' +
+               activationSpec.getSessionTimeout() + ';' +
+               activationSpec.isCanBeReadOnly() + ';' +
+               activationSpec.getConnectTimeout();
+    }
+
+    /**
+     * Returns the key of the connection configuration of this session.
+     *
+     * @return the session key
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns whether the given watcher may be added to this session, i.e.
+     * no watcher of this session watches the same path in another mode.
+     *
+     * @param watcher the watcher of an activation
+     * @return {@code true} if the watcher may be added
+     */
+    boolean canWatch(ZooKeeperWatcher watcher) {
+        for (ZooKeeperWatcher w : registeredWatchers) {
+            if (w.getBasePath().equals(watcher.getBasePath()) && w.getWatchMode() != watcher.getWatchMode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers the watcher of an activation to this session, so the later
+     * activations are checked against it. The watcher is added later by
+     * {@link #add(ZooKeeperWatcher)}.
+     *
+     * @param watcher the watcher of an activation
+     */
+    void register(ZooKeeperWatcher watcher) {
+        registeredWatchers.add(watcher);
+    }
+
+    /**
+     * Unregisters the watcher of an activation from this session. The watcher
+     * is removed later by {@link #remove(ZooKeeperWatcher)}.
+     *
+     * @param watcher the watcher of an activation
+     * @return {@code true} if this session has no watchers left
+     */
+    boolean unregister(ZooKeeperWatcher watcher) {
+        registeredWatchers.remove(watcher);
+        return registeredWatchers.isEmpty();
+    }
+
+    /**
+     * Adds the registered watcher of an activation to this session and adds
+     * its watch unless covered by an existing one. Does nothing if the watcher
+     * was unregistered or this session was closed meanwhile.
+     *
+     * @param watcher the watcher of an activation
+     */
+    synchronized void add(ZooKeeperWatcher watcher) {
+        if (closed || !registeredWatchers.contains(watcher)) {
+            return;
+        }
+        watcher.open(connectString);
+        watchers.add(watcher);
+        update();
+    }
+
+    /**
+     * Removes the unregistered watcher of an activation from this session and
+     * stops its event delivery. Removes the watches not required anymore.
+     *
+     * @param watcher the watcher of an activation
+     */
+    synchronized void remove(ZooKeeperWatcher watcher) {
+        watcher.close();
+        if (watchers.remove(watcher)) {
+            update();
+        }
+    }
+
+    /**
+     * Process an incoming ZooKeeper event. The data and children events are
+     * routed to the watchers of the activations and update the index of the
+     * resynchronised base paths. Connection related events are ignored.
+     *
+     * @param watchedEvent an incoming event
+     */
+    @Override
+    public void process(WatchedEvent watchedEvent) {
+        try {
+            switch (watchedEvent.getState()) {
+                case SyncConnected:
+                    if (watchedEvent.getType() != Event.EventType.None) {
+                        // process a data or children event
+                        route(watchedEvent, false);
+                        Map<String, Boolean> roots = indexRoots;
+                        if (!roots.isEmpty() && ZooKeeperWatchIndex.covers(roots, watchedEvent.getPath())) {
+                            index.update(zooKeeper, watchedEvent);
+                        }
+                    } else {
+                        // Connection to server was lost. We are reconnect within
+                        // session timeout and will be operate in current session.
+                        // This is because initial connection (initial SyncConnected
+                        // event) was make in the connectAndWatch() method
+                        logger.log(Level.WARNING, "Connection was lost. Reconnect to the ZooKeeper Server");
+                    }
+                    break;
+                case Expired:
+                    // Session was expired. We create new ZooKeeper object, re-add
+                    // the watches with it and resync the indexed base paths
+                    logger.log(Level.WARNING, "Session expired. Create new ZooKeeper session");
+                    connectAndWatch(connectTimeout);
+                    break;
+                default:
+                    // Ignore ZooKeeper lifecycle events. Log them at FINEST logging level if any
+                    logger.log(Level.FINEST, "ZooKeeper Server fire an event: {0}", watchedEvent);
+                    break;
+            }
+        } catch (KeeperException | InterruptedException | IOException e) {
+            logger.log(Level.SEVERE, null, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWatchers() {
+        return registeredWatchers.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIndexedNodes() {
+        return index.size();
+    }
+
+    /**
+     * Registers the MBean of this session, creates ZooKeeper instance and adds
+     * the watches of the activations.
+     */
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (!closed) {
+                objectName = ManagementSupport.register(this, "ZooKeeperWatchSession",
+                                                        "name", connectString,
+                                                        "id", Integer.toHexString(System.identityHashCode(this)));
+            }
+        }
+        try {
+            connectAndWatch(connectTimeout);
+        } catch (KeeperException | InterruptedException | IOException e) {
+            logger.log(Level.SEVERE, null, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p><strong>This method is does nothing.</strong>
+     */
+    @Override
+    public void release() {
+        // do nothing
+    }
+
+    /**
+     * Closes current ZooKeeper instance, thus removes all the watches of this
+     * session, and unregisters the MBean of this session.
+     *
+     * @throws InterruptedException if the operation was interrupted
+     */
+    synchronized void close() throws InterruptedException {
+        ManagementSupport.unregister(objectName);
+        objectName = null;
+        closed = true;
+        watching = false;
+        if (zooKeeper != null) {
+            zooKeeper.close();
+        }
+    }
+
+    /**
+     * Creates ZooKeeper objects, wait for connection and adds the watches.
+     * Will wait up to {@code timeout} milliseconds or indefinitely if {@code timeout}
+     * is {@code null}.
+     *
+     * @param timeout the connect timeout, {@code null} if wait indefinitely
+     * @throws IOException if an I/O error occurred while connecting
+     * @throws InterruptedException if an operation has been interrupted
+     * @throws KeeperException if an connection timeout exceed
+     */
+    private void connectAndWatch(Integer timeout) throws IOException, InterruptedException, KeeperException {
+        CountDownLatch keeperLatch = new CountDownLatch(1);
+        // Initial watcher for observe an initial SyncConnected event.
+        // When this event fired we are connected
+        Watcher watcher = watchedEvent -> {
+            if (watchedEvent.getState() == Event.KeeperState.SyncConnected) {
+                keeperLatch.countDown();
+            }
+        };
+
+        ZooKeeper client = new ZooKeeper(connectString, sessionTimeout, watcher, canBeReadOnly);
+        synchronized (this) {
+            if (closed) {
+                client.close();
+                return;
+            }
+            zooKeeper = client;
+            watching = false;
+        }
+
+        // await connection
+        if (timeout == null) {
+            // wait indefinitely
+            keeperLatch.await();
+        } else {
+            if (!keeperLatch.await(connectTimeout, TimeUnit.MILLISECONDS)) {
+                // timeout exceed but we are not connected
+                throw new KeeperException.OperationTimeoutException();
+            }
+        }
+
+        // Remove initial connection watcher
+        client.register(null);
+        // add the watches of the activations
+        synchronized (this) {
+            if (!closed && zooKeeper == client) {
+                Map<String, Boolean> indexed = indexRoots;
+                watching = true;
+                addedWatches.clear();
+                update();
+                resync(indexed.keySet());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the routing trie and adds or removes the watches according to
+     * the current watchers. The new watches are added before the stale ones are
+     * removed, so no event is missed when a watch is merged into a new one.
+     * Indexes the base paths of the new resynchronised watchers and lets the
+     * watchers read the state of their base paths once watched.
+     * Must be invoked holding the lock of this session.
+     */
+    private void update() {
+        Node trie = new Node();
+        for (ZooKeeperWatcher watcher : watchers) {
+            trie.insert(watcher);
+        }
+        root = trie;
+
+        if (!watching) {
+            return;
+        }
+        Map<String, AddWatchMode> watches = new HashMap<>();
+        for (ZooKeeperWatcher watcher : watchers) {
+            String path = watcher.getBasePath();
+            if (watcher.getWatchMode() == AddWatchMode.PERSISTENT || !isCovered(path)) {
+                watches.put(path, watcher.getWatchMode());
+            }
+        }
+        try {
+            for (Map.Entry<String, AddWatchMode> watch : watches.entrySet()) {
+                if (addedWatches.get(watch.getKey()) != watch.getValue()) {
+                    zooKeeper.addWatch(watch.getKey(), this, watch.getValue());
+                    addedWatches.put(watch.getKey(), watch.getValue());
+                }
+            }
+            for (Iterator<String> paths = addedWatches.keySet().iterator(); paths.hasNext(); ) {
+                String path = paths.next();
+                if (!watches.containsKey(path)) {
+                    zooKeeper.removeWatches(path, this, WatcherType.Any, false);
+                    paths.remove();
+                }
+            }
+        } catch (KeeperException | InterruptedException e) {
+            logger.log(Level.SEVERE, "Unable to update ZooKeeper watches", e);
+        }
+        for (ZooKeeperWatcher watcher : watchers) {
+            watcher.watch(zooKeeper);
+        }
+
+        Map<String, Boolean> roots = new HashMap<>();
+        for (ZooKeeperWatcher watcher : watchers) {
+            if (watcher.isResyncOnExpiry()) {
+                roots.put(watcher.getBasePath(), watcher.getWatchMode() == AddWatchMode.PERSISTENT_RECURSIVE);
+            }
+        }
+        Map<String, Boolean> indexed = indexRoots;
+        indexRoots = roots;
+        if (!roots.keySet().containsAll(indexed.keySet())) {
+            index.retain(roots);
+        }
+        for (Map.Entry<String, Boolean> root : roots.entrySet()) {
+            if (!indexed.containsKey(root.getKey())) {
+                index.build(zooKeeper, root.getKey(), root.getValue()).whenComplete((ignore, e) -> {
+                    if (e != null) {
+                        logger.log(Level.SEVERE, "Unable to index " + root.getKey(), e);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Diffs the live nodes of the given indexed base paths against the index and
+     * routes the synthetic events of the changed nodes to the resynchronised
+     * watchers. Must be invoked holding the lock of this session, after the
+     * watches are re-added.
+     *
+     * @param paths the base paths indexed before the session expired
+     */
+    private void resync(Collection<String> paths) {
+        Map<String, Boolean> roots = new HashMap<>(indexRoots);
+        roots.keySet().retainAll(paths);
+        if (roots.isEmpty()) {
+            return;
+        }
+        index.resync(zooKeeper, roots).whenComplete((events, e) -> {
+            if (e != null) {
+                logger.log(Level.SEVERE, "Unable to resync " + roots.keySet(), e);
+                return;
+            }
+            logger.log(Level.INFO, "Resync {0} after session expiry: {1} changed nodes",
+                       new Object[] {roots.keySet(), events.size()});
+            for (WatchedEvent event : events) {
+                route(event, true);
+            }
+        });
+    }
+
+    /**
+     * Returns whether the given path is covered by the recursive watch of
+     * an ancestor path.
+     */
+    private boolean isCovered(String path) {
+        for (ZooKeeperWatcher watcher : watchers) {
+            if (watcher.getWatchMode() == AddWatchMode.PERSISTENT_RECURSIVE &&
+                isAncestor(watcher.getBasePath(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isAncestor(String ancestor, String path) {
+        if (ancestor.equals("/")) {
+            return !path.equals("/");
+        }
+        return path.length() > ancestor.length() &&
+               path.startsWith(ancestor) &&
+               path.charAt(ancestor.length()) == '/';
+    }
+
+    /**
+     * Hands the given event to the watchers of its path. The recursive watchers
+     * of the path and of its ancestors get the data events, while the
+     * non-recursive watchers of the path get all the events of their path.
+     *
+     * @param event the data or children event
+     * @param resynced whether the event is synthetic and is handed to the
+     *                 resynchronised watchers only
+     */
+    private void route(WatchedEvent event, boolean resynced) {
+        String path = event.getPath();
+        ZooKeeper client = zooKeeper;
+        // the recursive watches are not triggered by the children events
+        boolean children = event.getType() == Event.EventType.NodeChildrenChanged;
+        Node node = root;
+        // the index of the separator preceding the next segment, the root path has no segments
+        int from = path.length() > 1 ? 0 : path.length();
+        while (true) {
+            if (!children) {
+                for (ZooKeeperWatcher watcher : node.recursive) {
+                    if (!resynced || watcher.isResyncOnExpiry()) {
+                        watcher.process(event, client);
+                    }
+                }
+            }
+            if (from >= path.length()) {
+                for (ZooKeeperWatcher watcher : node.persistent) {
+                    if (!resynced || watcher.isResyncOnExpiry()) {
+                        watcher.process(event, client);
+                    }
+                }
+                return;
+            }
+            int end = path.indexOf('/', from + 1);
+            if (end < 0) {
+                end = path.length();
+            }
+            node = node.children.get(path.substring(from + 1, end));
+            if (node == null) {
+                return;
+            }
+            from = end;
+        }
+    }
+
+    /**
+     * A trie node of a base path segment.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<ZooKeeperWatcher> recursive = new ArrayList<>();
+        private final List<ZooKeeperWatcher> persistent = new ArrayList<>();
+
+        void insert(ZooKeeperWatcher watcher) {
+            Node node = this;
+            for (String segment : watcher.getBasePath().split("/")) {
+                if (!segment.isEmpty()) {
+                    node = node.children.computeIfAbsent(segment, s -> new Node());
+                }
+            }
+            if (watcher.getWatchMode() == AddWatchMode.PERSISTENT_RECURSIVE) {
+                node.recursive.add(watcher);
+            } else {
+                node.persistent.add(watcher);
+            }
+        }
+    }
+
+}
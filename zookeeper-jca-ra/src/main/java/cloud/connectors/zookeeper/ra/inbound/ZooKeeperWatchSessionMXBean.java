@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.inbound;
+
+/**
+ * Management interface for a ZooKeeper session shared by the endpoint
+ * activations. Exposes the number of the watchers of the activations and
+ * the number of the nodes indexed to resync the changes missed while the
+ * session was expired.
+ *
+ * @author alexa
+ * @see ZooKeeperActivationSpec#isResyncOnExpiry()
+ */
+@SuppressWarnings("unused")
+public interface ZooKeeperWatchSessionMXBean {
+
+    /**
+     * Returns the number of the watchers registered to the session.
+     *
+     * @return the number of watchers
+     */
+    int getWatchers();
+
+    /**
+     * Returns the number of the indexed nodes of the resynchronised base paths.
+     *
+     * @return the number of indexed nodes
+     */
+    int getIndexedNodes();
+
+}
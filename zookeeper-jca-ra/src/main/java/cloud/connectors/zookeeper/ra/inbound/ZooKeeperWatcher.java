@@ -17,66 +17,43 @@
 package cloud.connectors.zookeeper.ra.inbound;
 
 import org.apache.zookeeper.AddWatchMode;
-import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
 
-import javax.resource.ResourceException;
 import javax.resource.spi.endpoint.MessageEndpointFactory;
-import javax.resource.spi.work.Work;
 import javax.resource.spi.work.WorkManager;
-import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
- * A main event handler class. Will get various events from the ZooKeeper server
- * it connects to.
- *
- * <p>Will start in a separate thread by a {@code WorkManager}.
+ * A main event handler class of an endpoint activation. Will get the data and
+ * children events of its base path from the {@link ZooKeeperWatchSession watch
+ * session} shared by the activations with the same connection configuration.
  *
  * @author alexa
  */
-public class ZooKeeperWatcher implements Watcher, Work {
+public class ZooKeeperWatcher implements Watcher {
 
-    private static final Logger logger = Logger.getLogger(ZooKeeperWatcher.class.getName());
+    private final ZooKeeperEventDispatcher dispatcher;
 
-    private final MessageEndpointFactory messageEndpointFactory;
-    private final WorkManager workManager;
+    private final ZooKeeperEventFilter filter;
 
     /**
-     * A comma separated host:port pairs, each corresponds to a ZooKeeper server,
-     * e.g. "127.0.0.1:3000,127.0.0.1:3001,127.0.0.1:3002". If the optional chroot
-     * suffix is used, the example would look like
-     * "127.0.0.1:3000,127.0.0.1:3001,127.0.0.1:3002/app/a", where the client would
-     * be rooted at "/app/a" and all paths would be relative to this root, i.e.
-     * getting/setting/etc... "/foo/bar" would result in operations being run on
-     * "/app/a/foo/bar" (from the server perspective).
+     * Reads the data of the events before they are dispatched, {@code null} if
+     * the data is not fetched.
      */
-    private final String connectString;
+    private final ZooKeeperEventEnricher enricher;
 
     /**
-     * Connect timeout in milliseconds. Will try to connect to the ZooKeeper indefinitely
-     * if not specified.
+     * Streams the existing nodes once the base path is watched, {@code null}
+     * if the subtree is not bootstrapped.
      */
-    private final Integer connectTimeout;
+    private final ZooKeeperBootstrap bootstrap;
 
     /**
-     * Session timeout in milliseconds.
+     * Assigns the events to the members of the consumer group, {@code null}
+     * if the activation is not a group member.
      */
-    private final int sessionTimeout;
-
-    /**
-     * Whether the created client is allowed to go to read-only mode in case of partitioning.
-     * Read-only mode basically means that if the client can't find any majority servers
-     * but there's partitioned server it could reach, it connects to one in read-only mode,
-     * i.e. read requests are allowed while write requests are not. It continues seeking
-     * for majority in the background.
-     */
-    private final boolean canBeReadOnly;
+    private final ZooKeeperConsumerGroup group;
 
     /**
      * A path for the node for which we will tracking changes.
@@ -88,138 +65,148 @@ public class ZooKeeperWatcher implements Watcher, Work {
      */
     private final AddWatchMode watchMode;
 
-    private volatile ZooKeeper zooKeeper;
+    /**
+     * Whether the changes missed while the session was expired are delivered.
+     */
+    private final boolean resyncOnExpiry;
 
     public ZooKeeperWatcher(MessageEndpointFactory messageEndpointFactory,
                             ZooKeeperActivationSpec activationSpec,
                             WorkManager workManager) {
-        this.messageEndpointFactory = messageEndpointFactory;
-        this.workManager = workManager;
+        this.dispatcher = new ZooKeeperEventDispatcher(messageEndpointFactory, activationSpec, workManager);
+        this.filter = new ZooKeeperEventFilter(activationSpec);
+        this.enricher = activationSpec.isFetchData() || activationSpec.isChildrenDiff()
+                        ? new ZooKeeperEventEnricher(dispatcher, activationSpec)
+                        : null;
+        this.bootstrap = activationSpec.isBootstrap()
+                         ? new ZooKeeperBootstrap(activationSpec, this::deliver)
+                         : null;
+        this.group = activationSpec.getConsumerGroup() != null
+                     ? new ZooKeeperConsumerGroup(activationSpec)
+                     : null;
 
-        this.connectString = activationSpec.getConnectString();
-        this.connectTimeout = activationSpec.getConnectTimeout();
-        this.sessionTimeout = activationSpec.getSessionTimeout();
-        this.canBeReadOnly = activationSpec.isCanBeReadOnly();
         this.basePath = activationSpec.getBasePath();
         this.watchMode = activationSpec.isRecursive()
                          ? AddWatchMode.PERSISTENT_RECURSIVE
                          : AddWatchMode.PERSISTENT;
+        this.resyncOnExpiry = activationSpec.isResyncOnExpiry();
     }
 
     /**
-     * Process an incoming ZooKeeper event. We process only a data and children
-     * events. Connection related events are ignored. Each event proceed in a
-     * separate thread.
+     * Process an incoming data or children event of the base path. The events
+     * passing the filter are queued for delivery by the dispatcher.
      *
      * @param watchedEvent an incoming event
      */
     @Override
     public void process(WatchedEvent watchedEvent) {
-        try {
-            switch (watchedEvent.getState()) {
-                case SyncConnected:
-                    if (watchedEvent.getType() != Event.EventType.None) {
-                        // process a data or children event
-                        workManager.scheduleWork(new ZooKeeperWork(watchedEvent, messageEndpointFactory));
-                    } else {
-                        // Connection to server was lost. We are reconnect within
-                        // session timeout and will be operate in current session.
-                        // This is because initial connection (initial SyncConnected
-                        // event) was make in the connectAndWatch() method
-                        logger.log(Level.WARNING, "Connection was lost. Reconnect to the ZooKeeper Server");
-                    }
-                    break;
-                case Expired:
-                    // Session was expired. We create new ZooKeeper object and re-register
-                    // this watcher with it
-                    logger.log(Level.WARNING, "Session expired. Create new ZooKeeper session");
-                    connectAndWatch(connectTimeout);
-                    break;
-                default:
-                    // Ignore ZooKeeper lifecycle events. Log them at FINEST logging level if any
-                    logger.log(Level.FINEST, "ZooKeeper Server fire an event: {0}", watchedEvent);
-                    break;
+        process(watchedEvent, null);
+    }
+
+    /**
+     * Process an incoming data or children event of the base path received by
+     * the given ZooKeeper client. The events passing the filter are enriched
+     * with the data of their nodes if required and are queued for delivery by
+     * the dispatcher. The events of the nodes to be reported by the bootstrap
+     * are dropped.
+     *
+     * @param watchedEvent an incoming event
+     * @param zooKeeper the ZooKeeper client the event was received by, {@code null}
+     *                  if the data cannot be read
+     */
+    void process(WatchedEvent watchedEvent, ZooKeeper zooKeeper) {
+        if (bootstrap == null || bootstrap.accept(watchedEvent)) {
+            deliver(watchedEvent, zooKeeper);
+        }
+    }
+
+    /**
+     * Hands the given event passing the filter and assigned to this member of
+     * the consumer group to the enricher or to the dispatcher.
+     *
+     * @param watchedEvent an event of the watched subtree
+     * @param zooKeeper the ZooKeeper client the event was received by, {@code null}
+     *                  if the data cannot be read
+     */
+    private void deliver(WatchedEvent watchedEvent, ZooKeeper zooKeeper) {
+        if (filter.accept(watchedEvent) && (group == null || group.owns(watchedEvent.getPath()))) {
+            if (enricher != null && zooKeeper != null) {
+                enricher.process(watchedEvent, zooKeeper);
+            } else {
+                dispatcher.deliver(watchedEvent);
             }
-        } catch (KeeperException | InterruptedException | IOException | ResourceException e) {
-            logger.log(Level.SEVERE, null, e);
         }
     }
 
     /**
-     * Creates ZooKeeper instance and set register the current watcher with it.
+     * Notifies this watcher that its base path is watched by the given
+     * ZooKeeper client. The current children of the base path are read if the
+     * children changes are delivered, the existing nodes are streamed if the
+     * subtree is bootstrapped, and the member joins its consumer group.
+     *
+     * @param zooKeeper the ZooKeeper client the watch is added with
      */
-    @Override
-    public void run() {
-        try {
-            connectAndWatch(connectTimeout);
-        } catch (KeeperException | InterruptedException | IOException e) {
-            logger.log(Level.SEVERE, null, e);
+    void watch(ZooKeeper zooKeeper) {
+        if (enricher != null) {
+            enricher.watch(zooKeeper);
+        }
+        if (bootstrap != null) {
+            bootstrap.watch(zooKeeper);
+        }
+        if (group != null) {
+            group.watch(zooKeeper);
         }
     }
 
     /**
-     * {@inheritDoc}
+     * Returns the path for the node for which we will tracking changes.
      *
-     * <p><strong>This method is does nothing.</strong>
+     * @return the base path
      */
-    @Override
-    public void release() {
-        // do nothing
+    public String getBasePath() {
+        return basePath;
     }
 
     /**
-     * Removes all registered watchers and closes current ZooKeeper instance.
+     * Returns the ZooKeeper watch mode.
      *
-     * @throws ResourceException if the server returns a non-zero error code or
-     * the operation was interrupted
+     * @return the watch mode
      */
-    public void close() throws ResourceException {
-        try {
-            zooKeeper.removeAllWatches(basePath, WatcherType.Any, true);
-            zooKeeper.close();
-        } catch (KeeperException | InterruptedException e) {
-            throw new ResourceException("Unable to close ZooKeeper client connection", e);
-        }
+    public AddWatchMode getWatchMode() {
+        return watchMode;
     }
 
     /**
-     * Creates ZooKeeper objects, wait for connection and register working watcher.
-     * Will wait up to {@code timeout} milliseconds or indefinitely if {@code timeout}
-     * is {@code null}.
+     * Returns whether the changes missed while the session was expired are delivered.
      *
-     * @param timeout the connect timeout, {@code null} if wait indefinitely
-     * @throws IOException if an I/O error occurred while connecting
-     * @throws InterruptedException if an operation has been interrupted
-     * @throws KeeperException if an connection timeout exceed or watcher
-     * registration failed
+     * @return {@code true} if the watched nodes are resynchronised after the session expiry
      */
-    private void connectAndWatch(Integer timeout) throws IOException, InterruptedException, KeeperException {
-        CountDownLatch keeperLatch = new CountDownLatch(1);
-        // Initial watcher for observe an initial SyncConnected event.
-        // When this event fired we are connected
-        Watcher watcher = watchedEvent -> {
-            if (watchedEvent.getState() == Event.KeeperState.SyncConnected) {
-                keeperLatch.countDown();
-            }
-        };
-
-        zooKeeper = new ZooKeeper(connectString, sessionTimeout, watcher, canBeReadOnly);
-
-        // await connection
-        if (timeout == null) {
-            // wait indefinitely
-            keeperLatch.await();
-        } else {
-            if (!keeperLatch.await(connectTimeout, TimeUnit.MILLISECONDS)) {
-                // timeout exceed but we are not connected
-                throw new KeeperException.OperationTimeoutException();
-            }
+    public boolean isResyncOnExpiry() {
+        return resyncOnExpiry;
+    }
+
+    /**
+     * Registers the endpoint pool and the consumer group MBeans and replays
+     * the events left unacknowledged by the previous activation.
+     *
+     * @param connectString the connect string of the watch session
+     */
+    void open(String connectString) {
+        dispatcher.register(connectString, basePath);
+        if (group != null) {
+            group.register(connectString, basePath);
         }
+        dispatcher.replay(enricher);
+    }
 
-        // Remove initial connection watcher
-        zooKeeper.register(null);
-        // set main working watcher
-        zooKeeper.addWatch(basePath, this, watchMode);
+    /**
+     * Stops the event delivery and leaves the consumer group.
+     */
+    public void close() {
+        if (group != null) {
+            group.close();
+        }
+        dispatcher.close();
     }
 
 }
@@ -16,7 +16,6 @@
 
 package cloud.connectors.zookeeper.ra.inbound;
 
-import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
 import org.apache.zookeeper.WatchedEvent;
 
 import javax.resource.ResourceException;
@@ -24,15 +23,18 @@ import javax.resource.spi.endpoint.MessageEndpoint;
 import javax.resource.spi.endpoint.MessageEndpointFactory;
 import javax.resource.spi.work.Work;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This models a {@code Work} instance that would be executed by a
- * {@code WorkManager} upon submission. Create a message endpoint
- * instance and consume a ZooKeeper event.
+ * {@code WorkManager} upon submission. A long-lived delivery worker
+ * of an {@link ZooKeeperEndpointPool endpoint pool}: creates a message
+ * endpoint instance once and consumes the queued ZooKeeper events with it,
+ * one by one or in batches.
  *
  * @author alexa
  */
@@ -40,66 +42,70 @@ public class ZooKeeperWork implements Work {
 
     private static final Logger logger = Logger.getLogger(ZooKeeperWork.class.getName());
 
-    private static final ClassValue<Method> methodCache = new ClassValue<Method>() {
-        @Override
-        protected Method computeValue(Class<?> type) {
-            Method method = null;
-            for (Method m : type.getMethods()) {
-                if (m.isAnnotationPresent(OnZooKeeperEvent.class) &&
-                    m.getParameterCount() == 1 &&
-                    m.getParameterTypes()[0] == WatchedEvent.class) {
-                    method = m;
-                    break;
-                }
-            }
-            return method;
-        }
-    };
-
-    private final WatchedEvent event;
+    private final ZooKeeperEndpointPool pool;
     private final MessageEndpointFactory endpointFactory;
     private MessageEndpoint endpoint;
     private final ReentrantLock endpointLock;
+    private volatile Thread thread;
+    private volatile boolean released;
 
-
-    public ZooKeeperWork(WatchedEvent event, MessageEndpointFactory endpointFactory) {
-        this.event = event;
-        this.endpointFactory = endpointFactory;
+    ZooKeeperWork(ZooKeeperEndpointPool pool) {
+        this.pool = pool;
+        this.endpointFactory = pool.getEndpointFactory();
         this.endpointLock = new ReentrantLock();
     }
 
     /**
-     * Creates a message endpoint instance and consume ZooKeeper event.
+     * Consumes the queued ZooKeeper events until the pool is closed or
+     * this worker is idle for too long. The message endpoint is created
+     * on the first event and is reused for the subsequent ones.
      */
     @Override
     public void run() {
+        thread = Thread.currentThread();
         try {
-            Method method = methodCache.get(endpointFactory.getEndpointClass());
-            if (method != null) {
-                endpoint = endpointFactory.createEndpoint(null);
-                endpoint.beforeDelivery(method);
-                if (event != null) {
-                    method.invoke(endpoint, event);
+            ZooKeeperDispatchTable table = ZooKeeperDispatchTable.of(endpointFactory.getEndpointClass());
+            ZooKeeperListenerInvoker batchInvoker = table.getBatchInvoker();
+            WatchedEvent event;
+            while (!released && (event = pool.take(this)) != null) {
+                if (batchInvoker != null) {
+                    List<WatchedEvent> batch = pool.fillBatch(event);
+                    if (deliver(batchInvoker, Collections.unmodifiableList(batch))) {
+                        for (WatchedEvent delivered : batch) {
+                            pool.acknowledge(delivered);
+                        }
+                    }
+                } else {
+                    ZooKeeperListenerInvoker invoker = table.lookup(event);
+                    if (invoker == null || deliver(invoker, event)) {
+                        pool.acknowledge(event);
+                    }
                 }
-                endpoint.afterDelivery();
             }
-        } catch (ResourceException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            logger.log(Level.SEVERE, null, e);
-        } finally {
-            if (endpoint != null) {
-                endpoint.release();
-                endpoint = null;
+        } catch (InterruptedException e) {
+            if (!released) {
+                logger.log(Level.SEVERE, null, e);
             }
+        } finally {
+            thread = null;
+            pool.exit(this);
+            release();
         }
     }
 
     /**
-     * Releases a message endpoint.
+     * Stops this worker and releases its message endpoint.
      *
      * <p>{@inheritDoc}
      */
     @Override
     public void release() {
+        released = true;
+        Thread t = thread;
+        if (t != null) {
+            // wake up the worker waiting for an event
+            t.interrupt();
+        }
         // because this may be invoked in
         // different thread we release
         // endpoint under lock
@@ -114,4 +120,34 @@ public class ZooKeeperWork implements Work {
         }
     }
 
+    /**
+     * Delivers the given event or batch of events to the message endpoint. A failed
+     * endpoint is released, so the next event is delivered to a new one.
+     *
+     * @param invoker the invoker of the listener method
+     * @param event the event or the batch of events to deliver
+     * @return {@code true} if the delivery is completed
+     */
+    private boolean deliver(ZooKeeperListenerInvoker invoker, Object event) {
+        endpointLock.lock();
+        try {
+            if (endpoint == null) {
+                endpoint = endpointFactory.createEndpoint(null);
+            }
+            endpoint.beforeDelivery(invoker.getMethod());
+            invoker.invoke(endpoint, event);
+            endpoint.afterDelivery();
+            return true;
+        } catch (ResourceException | NoSuchMethodException | InvocationTargetException e) {
+            logger.log(Level.SEVERE, null, e);
+            if (endpoint != null) {
+                endpoint.release();
+                endpoint = null;
+            }
+            return false;
+        } finally {
+            endpointLock.unlock();
+        }
+    }
+
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import cloud.connectors.zookeeper.api.AsyncZooKeeperConnection;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+import javax.resource.ResourceException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static cloud.connectors.zookeeper.ra.outbound.ZooKeeperManagedConnection.copyStat;
+import static cloud.connectors.zookeeper.ra.outbound.ZooKeeperManagedConnection.resourceException;
+
+/**
+ * Implements the asynchronous view of a connection over the ZooKeeper
+ * callback API. Requests are pipelined over the shared ZooKeeper session
+ * and no thread is blocked waiting for a response.
+ *
+ * <p>The reads are not served from the {@link ZooKeeperCache read cache},
+ * while the successful writes invalidate the cached nodes before their
+ * futures are completed.
+ *
+ * @author alexa
+ * @see ZooKeeperConnectionImpl#async()
+ */
+public class AsyncZooKeeperConnectionImpl implements AsyncZooKeeperConnection {
+
+    private final ZooKeeperSessionProvider sessionProvider;
+    private final ZooKeeperCache cache;
+
+    /**
+     * Creates an asynchronous view of a connection. Must not be used directly.
+     *
+     * @param sessionProvider the provider of the connection session
+     * @param cache the read cache of the connection factory, {@code null} if disabled
+     */
+    AsyncZooKeeperConnectionImpl(ZooKeeperSessionProvider sessionProvider, ZooKeeperCache cache) {
+        this.sessionProvider = sessionProvider;
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<String> create(String path, byte[] data, List<ACL> acl, CreateMode createMode) {
+        return write((zk, future) -> zk.create(path, data, acl, createMode, (rc, p, ctx, name) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                invalidate(name, true);
+                future.complete(name);
+            } else {
+                future.completeExceptionally(failure("Cannot create node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<String> create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat) {
+        return write((zk, future) -> zk.create(path, data, acl, createMode, (rc, p, ctx, name, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                copyStat(s, stat);
+                invalidate(name, true);
+                future.complete(name);
+            } else {
+                future.completeExceptionally(failure("Cannot create node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<String> create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat, long ttl) {
+        return write((zk, future) -> zk.create(path, data, acl, createMode, (rc, p, ctx, name, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                copyStat(s, stat);
+                invalidate(name, true);
+                future.complete(name);
+            } else {
+                future.completeExceptionally(failure("Cannot create node ", rc, path));
+            }
+        }, null, ttl));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Void> delete(String path) {
+        return delete(path, -1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Void> delete(String path, int version) {
+        return write((zk, future) -> zk.delete(path, version, (rc, p, ctx) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                invalidate(path, true);
+                future.complete(null);
+            } else {
+                future.completeExceptionally(failure("Cannot delete node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Stat> exists(String path) {
+        return execute((zk, future) -> zk.exists(path, false, (rc, p, ctx, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                future.complete(s);
+            } else if (rc == KeeperException.Code.NONODE.intValue()) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(resourceException("Cannot check if node " + path + " exists",
+                                                               KeeperException.create(KeeperException.Code.get(rc), path)));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<List<ACL>> getACL(String path) {
+        return getACL(path, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<List<ACL>> getACL(String path, Stat stat) {
+        return execute((zk, future) -> zk.getACL(path, stat, (rc, p, ctx, acl, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                copyStat(s, stat);
+                future.complete(acl);
+            } else {
+                future.completeExceptionally(failure("Cannot get ACL for node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<List<String>> getChildren(String path) {
+        return execute((zk, future) -> zk.getChildren(path, false, (rc, p, ctx, children) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                future.complete(children);
+            } else {
+                future.completeExceptionally(failure("Cannot get children for node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<List<String>> getChildren(String path, Stat stat) {
+        return execute((zk, future) -> zk.getChildren(path, false, (rc, p, ctx, children, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                copyStat(s, stat);
+                future.complete(children);
+            } else {
+                future.completeExceptionally(failure("Cannot get children for node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<byte[]> getData(String path) {
+        return getData(path, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<byte[]> getData(String path, Stat stat) {
+        return execute((zk, future) -> zk.getData(path, false, (rc, p, ctx, data, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                copyStat(s, stat);
+                future.complete(data);
+            } else {
+                future.completeExceptionally(failure("Cannot get data for node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Stat> setACL(String path, List<ACL> acl) {
+        return setACL(path, acl, -1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Stat> setACL(String path, List<ACL> acl, int version) {
+        return write((zk, future) -> zk.setACL(path, acl, version, (rc, p, ctx, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                invalidate(path, false);
+                future.complete(s);
+            } else {
+                future.completeExceptionally(failure("Cannot set ACL for node ", rc, path));
+            }
+        }, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Stat> setData(String path, byte[] data) {
+        return setData(path, data, -1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Stat> setData(String path, byte[] data, int version) {
+        return write((zk, future) -> zk.setData(path, data, version, (rc, p, ctx, s) -> {
+            if (rc == KeeperException.Code.OK.intValue()) {
+                invalidate(path, false);
+                future.complete(s);
+            } else {
+                future.completeExceptionally(failure("Cannot set data for node ", rc, path));
+            }
+        }, null));
+    }
+
+    private <T> CompletionStage<T> execute(ZooKeeperAsyncOperation<T> operation) {
+        try {
+            return sessionProvider.getSession().executeAsync(operation);
+        } catch (ResourceException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private <T> CompletionStage<T> write(ZooKeeperAsyncOperation<T> operation) {
+        try {
+            return sessionProvider.getSession().executeWriteAsync(operation);
+        } catch (ResourceException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private void invalidate(String path, boolean structural) {
+        if (cache != null) {
+            cache.invalidate(path, structural);
+        }
+    }
+
+    private static ResourceException failure(String message, int rc, String path) {
+        return resourceException(message + path, KeeperException.create(KeeperException.Code.get(rc), path));
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import org.apache.zookeeper.ZooKeeper;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents an asynchronous operation performed with a ZooKeeper client.
+ * The operation sends a request using the ZooKeeper callback API and
+ * completes the given future from the callback.
+ *
+ * @param <T> the type of the operation result
+ * @author alexa
+ * @see ZooKeeperSession#executeAsync(ZooKeeperAsyncOperation)
+ */
+@FunctionalInterface
+public interface ZooKeeperAsyncOperation<T> {
+
+    /**
+     * Sends the request of this operation with the given ZooKeeper client.
+     *
+     * @param zooKeeper the ZooKeeper client
+     * @param future the future to complete with the operation result
+     */
+    void execute(ZooKeeper zooKeeper, CompletableFuture<T> future);
+
+}
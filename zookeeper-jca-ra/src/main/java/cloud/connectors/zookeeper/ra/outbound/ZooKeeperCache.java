@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import cloud.connectors.zookeeper.api.ZooKeeperResult;
+import cloud.connectors.zookeeper.ra.ManagementSupport;
+import org.apache.zookeeper.AddWatchMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+import javax.management.ObjectName;
+import javax.resource.ResourceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents the read cache shared by all the managed connections created by
+ * the same managed connection factory. Caches the results of the data, the
+ * children and the exists reads of the nodes under the configured path
+ * prefixes, including the absence of a node.
+ *
+ * <p>The cache is invalidated by the persistent recursive watches on the
+ * prefixes. The watches and the cache misses use the same ZooKeeper client,
+ * thus the invalidation of a node is always received after the read of its
+ * previous state. A read which completes after any invalidation is not cached,
+ * so a stale read result never replaces a newer one. The cache is cleared
+ * when the client is disconnected and nothing is cached until it is
+ * reconnected.
+ *
+ * <p>The cache hits do not lock the cache, only the misses, the invalidations
+ * and the evictions do. The number of cached entries is limited: once the
+ * limit is exceeded, the least recently used entries are evicted in a batch
+ * down to {@value #LOW_WATERMARK_PERCENT}% of the limit, thus the eviction
+ * cost is amortized over the following misses. The recency of an entry is
+ * its last access time, so the eviction order is approximate if several
+ * entries are accessed at the same time. If the read coalescing is enabled,
+ * the concurrent misses of the same entry are sent to the server once.
+ *
+ * @author alexa
+ * @see ZooKeeperManagedConnectionFactory
+ */
+public class ZooKeeperCache implements Watcher, ZooKeeperCacheMXBean {
+
+    private static final Logger logger = Logger.getLogger(ZooKeeperCache.class.getName());
+
+    private static final char DATA = 'd';
+    private static final char CHILDREN = 'c';
+    private static final char EXISTS = 'e';
+
+    /**
+     * The percentage of the maximum size the cache is shrunk to by an eviction.
+     */
+    private static final int LOW_WATERMARK_PERCENT = 95;
+
+    private final String connectString;
+    private final ZooKeeperSessionStripe stripe;
+    private final ZooKeeperReadCoalescer coalescer;
+    private final List<String> prefixes;
+    private final int maxSize;
+    private final int lowWatermark;
+    private final ConcurrentMap<String, Entry> entries;
+
+    /**
+     * Incremented on each invalidation. A read result is cached only if no
+     * invalidation happened while the read was in-flight.
+     */
+    private long generation;
+
+    /**
+     * The ZooKeeper client which holds the watches of this cache.
+     */
+    private ZooKeeper watched;
+
+    /**
+     * Whether the watching client is connected.
+     */
+    private boolean connected;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+    private final LongAdder invalidationCount;
+
+    private ObjectName objectName;
+
+    /**
+     * Creates new cache.
+     *
+     * @param connectString the connect string
+     * @param stripe the session stripe used to watch and read the cached nodes
+     * @param coalescer the coalescer of the cache misses, may be {@code null}
+     * @param prefixes the comma separated path prefixes of the cached nodes
+     * @param maxSize the maximum number of cached entries
+     */
+    public ZooKeeperCache(String connectString, ZooKeeperSessionStripe stripe, ZooKeeperReadCoalescer coalescer,
+                          String prefixes, int maxSize) {
+        this.connectString = connectString;
+        this.stripe = stripe;
+        this.coalescer = coalescer;
+        this.prefixes = new ArrayList<>();
+        for (String prefix : prefixes.split(",")) {
+            prefix = prefix.trim();
+            if (prefix.length() > 1 && prefix.endsWith("/")) {
+                prefix = prefix.substring(0, prefix.length() - 1);
+            }
+            if (!prefix.isEmpty()) {
+                this.prefixes.add(prefix);
+            }
+        }
+        this.maxSize = maxSize;
+        this.lowWatermark = maxSize - maxSize * (100 - LOW_WATERMARK_PERCENT) / 100;
+        this.entries = new ConcurrentHashMap<>();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+        this.invalidationCount = new LongAdder();
+    }
+
+    /**
+     * Registers the MBean of this cache.
+     */
+    synchronized void open() {
+        objectName = ManagementSupport.register(this, "ZooKeeperCache",
+                                                "name", connectString,
+                                                "id", Integer.toHexString(System.identityHashCode(this)));
+    }
+
+    /**
+     * Unregisters the MBean of this cache and removes all cached entries.
+     */
+    synchronized void close() {
+        ManagementSupport.unregister(objectName);
+        objectName = null;
+        reset(true);
+    }
+
+    /**
+     * Checks whether the reads of the node of the given {@code path} are cached.
+     *
+     * @param path the path of the node
+     * @return {@code true} if the node is under one of the cached prefixes
+     */
+    boolean isCached(String path) {
+        for (String prefix : prefixes) {
+            if ("/".equals(prefix) ||
+                path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the data and the stat of the node of the given {@code path}.
+     *
+     * @param path the path of the node
+     * @param stat the stat of the node to fill, may be {@code null}
+     * @return a copy of the data of the node
+     * @throws KeeperException.NoNodeException if the node does not exist
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws ResourceException if the session is not available
+     */
+    byte[] getData(String path, Stat stat) throws ResourceException, KeeperException, InterruptedException {
+        Entry entry = getDataEntry(path);
+        if (entry.isAbsent()) {
+            throw KeeperException.create(KeeperException.Code.NONODE, path);
+        }
+        if (stat != null) {
+            ZooKeeperManagedConnection.copyStat(entry.stat, stat);
+        }
+        byte[] data = (byte[]) entry.value;
+        return data != null ? data.clone() : null;
+    }
+
+    /**
+     * Returns the data and the stat of the node of the given {@code path}
+     * as the result which reports the absent node by the
+     * {@link KeeperException.Code#NONODE NONODE} code.
+     *
+     * @param path the path of the node
+     * @return the result which value is a copy of the data of the node
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws ResourceException if the session is not available
+     */
+    ZooKeeperResult<byte[]> tryGetData(String path) throws ResourceException, KeeperException, InterruptedException {
+        Entry entry = getDataEntry(path);
+        if (entry.isAbsent()) {
+            return new ZooKeeperResult<>(path, KeeperException.Code.NONODE, null, null);
+        }
+        Stat stat = new Stat();
+        ZooKeeperManagedConnection.copyStat(entry.stat, stat);
+        // the result returns a copy of the data
+        return new ZooKeeperResult<>(path, KeeperException.Code.OK, (byte[]) entry.value, stat);
+    }
+
+    /**
+     * Returns the children list and the stat of the node of the given {@code path}.
+     *
+     * @param path the path of the node
+     * @param stat the stat of the node to fill, may be {@code null}
+     * @return a copy of the children list of the node
+     * @throws KeeperException.NoNodeException if the node does not exist
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws ResourceException if the session is not available
+     */
+    @SuppressWarnings("unchecked")
+    List<String> getChildren(String path, Stat stat) throws ResourceException, KeeperException, InterruptedException {
+        Entry entry = get(CHILDREN, path, zk -> {
+            Stat s = new Stat();
+            try {
+                return new Entry(Collections.unmodifiableList(zk.getChildren(path, false, s)), s);
+            } catch (KeeperException.NoNodeException e) {
+                return Entry.absent();
+            }
+        });
+        if (entry.isAbsent()) {
+            throw KeeperException.create(KeeperException.Code.NONODE, path);
+        }
+        if (stat != null) {
+            ZooKeeperManagedConnection.copyStat(entry.stat, stat);
+        }
+        return new ArrayList<>((List<String>) entry.value);
+    }
+
+    /**
+     * Returns the stat of the node of the given {@code path}.
+     *
+     * @param path the path of the node
+     * @return a copy of the stat of the node or {@code null} if the node does not exist
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws ResourceException if the session is not available
+     */
+    Stat exists(String path) throws ResourceException, KeeperException, InterruptedException {
+        Entry entry = get(EXISTS, path, zk -> {
+            Stat s = zk.exists(path, false);
+            return s != null ? new Entry(null, s) : Entry.absent();
+        });
+        if (entry.isAbsent()) {
+            return null;
+        }
+        Stat stat = new Stat();
+        ZooKeeperManagedConnection.copyStat(entry.stat, stat);
+        return stat;
+    }
+
+    /**
+     * Removes the cached entries of the node of the given {@code path}.
+     *
+     * @param path the path of the node
+     * @param structural whether the node was created or deleted, thus the
+     *                   entries of the parent node are removed as well
+     */
+    synchronized void invalidate(String path, boolean structural) {
+        generation++;
+        invalidationCount.increment();
+        remove(path);
+        if (structural) {
+            int index = path.lastIndexOf('/');
+            if (index > 0) {
+                remove(path.substring(0, index));
+            } else if (index == 0 && path.length() > 1) {
+                remove("/");
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cached entries of the changed nodes and clears the
+     * cache if the watching client is disconnected.
+     *
+     * @param event the watched event
+     */
+    @Override
+    public void process(WatchedEvent event) {
+        switch (event.getType()) {
+            case NodeCreated:
+            case NodeDeleted:
+                invalidate(event.getPath(), true);
+                break;
+            case NodeDataChanged:
+            case NodeChildrenChanged:
+                invalidate(event.getPath(), false);
+                break;
+            case None:
+                switch (event.getState()) {
+                    case SyncConnected:
+                    case ConnectedReadOnly:
+                        synchronized (this) {
+                            connected = true;
+                        }
+                        break;
+                    case Disconnected:
+                        logger.log(Level.FINE, "ZooKeeper client is disconnected, clear the cache");
+                        reset(false);
+                        break;
+                    case Expired:
+                    case Closed:
+                        reset(true);
+                        break;
+                    default:
+                        break;
+                }
+                break;
+            default:
+                // the watches are removed
+                reset(true);
+                break;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPrefixes() {
+        return String.join(",", prefixes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetStatistics() {
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+        invalidationCount.reset();
+    }
+
+    /**
+     * Returns the cached entry or reads it with the given {@code loader}
+     * on a cache miss.
+     */
+    private Entry get(char kind, String path, ZooKeeperOperation<Entry> loader) throws ResourceException, KeeperException, InterruptedException {
+        String key = kind + path;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.accessed = System.nanoTime();
+            hitCount.increment();
+            return entry;
+        }
+        missCount.increment();
+        if (coalescer != null) {
+            return coalescer.execute(key, () -> load(key, loader));
+        }
+        return load(key, loader);
+    }
+
+    /**
+     * Reads the entry with the given {@code loader} and caches it unless an
+     * invalidation happened during the read.
+     */
+    private Entry getDataEntry(String path) throws ResourceException, KeeperException, InterruptedException {
+        return get(DATA, path, zk -> {
+            Stat s = new Stat();
+            try {
+                return new Entry(zk.getData(path, false, s), s);
+            } catch (KeeperException.NoNodeException e) {
+                return Entry.absent();
+            }
+        });
+    }
+
+    private Entry load(String key, ZooKeeperOperation<Entry> loader) throws ResourceException, KeeperException, InterruptedException {
+        ZooKeeper zk = watch();
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+        }
+        Entry entry;
+        long start = stripe.begin();
+        try {
+            entry = loader.execute(zk);
+        } finally {
+            stripe.end(start);
+        }
+        synchronized (this) {
+            if (connected && watched == zk && generation == loadGeneration) {
+                entries.put(key, entry);
+                if (entries.size() > maxSize) {
+                    evict();
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the ZooKeeper client of the stripe. Adds the watches on the
+     * cached prefixes if the client was replaced.
+     */
+    private ZooKeeper watch() throws ResourceException, KeeperException, InterruptedException {
+        ZooKeeper zk = stripe.getZooKeeper();
+        synchronized (this) {
+            if (watched == zk) {
+                return zk;
+            }
+        }
+        for (String prefix : prefixes) {
+            zk.addWatch(prefix, this, AddWatchMode.PERSISTENT_RECURSIVE);
+        }
+        synchronized (this) {
+            if (watched != zk) {
+                generation++;
+                entries.clear();
+                watched = zk;
+                connected = true;
+            }
+        }
+        return zk;
+    }
+
+    private synchronized void reset(boolean unwatch) {
+        generation++;
+        entries.clear();
+        connected = false;
+        if (unwatch) {
+            watched = null;
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries down to the low watermark.
+     * Called with the lock held, so the entries are only added or removed
+     * by the current thread.
+     */
+    private void evict() {
+        List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().accessed));
+        int evicted = candidates.size() - lowWatermark;
+        for (int i = 0; i < evicted; i++) {
+            entries.remove(candidates.get(i).getKey());
+        }
+        evictionCount.add(evicted);
+    }
+
+    private void remove(String path) {
+        entries.remove(DATA + path);
+        entries.remove(CHILDREN + path);
+        entries.remove(EXISTS + path);
+    }
+
+    /**
+     * The cached read result.
+     */
+    private static final class Entry {
+
+        private final Object value;
+        private final Stat stat;
+
+        /**
+         * The time of the last access in nanoseconds.
+         */
+        private volatile long accessed;
+
+        private Entry(Object value, Stat stat) {
+            this.value = value;
+            this.stat = stat;
+            this.accessed = System.nanoTime();
+        }
+
+        /**
+         * Creates the cached absence of a node.
+         */
+        private static Entry absent() {
+            return new Entry(null, null);
+        }
+
+        private boolean isAbsent() {
+            return stat == null;
+        }
+
+    }
+
+}
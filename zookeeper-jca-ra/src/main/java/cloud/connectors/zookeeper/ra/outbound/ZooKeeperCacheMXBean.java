@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+/**
+ * Management interface for the read cache of a managed connection factory.
+ * Exposes the cache size and the hit and miss counters.
+ *
+ * @author alexa
+ * @see ZooKeeperCache
+ */
+@SuppressWarnings("unused")
+public interface ZooKeeperCacheMXBean {
+
+    /**
+     * Returns the cached path prefixes.
+     *
+     * @return the comma separated path prefixes
+     */
+    String getPrefixes();
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of cached entries
+     */
+    int getSize();
+
+    /**
+     * Returns the maximum number of cached entries.
+     *
+     * @return the maximum number of cached entries
+     */
+    int getMaxSize();
+
+    /**
+     * Returns the number of reads served by the cache.
+     *
+     * @return the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of reads sent to the ZooKeeper server.
+     *
+     * @return the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the ratio of the reads served by the cache.
+     *
+     * @return the hit ratio or {@code 0} if there were no reads
+     */
+    double getHitRatio();
+
+    /**
+     * Returns the number of entries evicted due to the size limit.
+     *
+     * @return the number of evicted entries
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of processed invalidations.
+     *
+     * @return the number of invalidations
+     */
+    long getInvalidationCount();
+
+    /**
+     * Removes all cached entries.
+     */
+    void clear();
+
+    /**
+     * Resets the hit, miss, eviction and invalidation counters.
+     */
+    void resetStatistics();
+
+}
@@ -16,8 +16,13 @@
 
 package cloud.connectors.zookeeper.ra.outbound;
 
+import cloud.connectors.zookeeper.api.AsyncZooKeeperConnection;
 import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperResult;
+import cloud.connectors.zookeeper.api.ZooKeeperTransaction;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 
@@ -26,7 +31,9 @@ import javax.resource.spi.ConnectionManager;
 import javax.resource.spi.ConnectionRequestInfo;
 import javax.resource.spi.IllegalStateException;
 import javax.resource.spi.LazyAssociatableConnectionManager;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an application-level handle that is used by a client to access the
@@ -52,6 +59,8 @@ public class ZooKeeperConnectionImpl implements ZooKeeperConnection {
     private final ConnectionManager connectionManager;
     private final ConnectionRequestInfo requestInfo;
 
+    private AsyncZooKeeperConnectionImpl async;
+
     private boolean closed;
 
     /**
@@ -302,6 +311,110 @@ public class ZooKeeperConnectionImpl implements ZooKeeperConnection {
         return managedConnection.setData(path, data, version);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<String> tryCreate(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.tryCreate(path, data, acl, createMode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<Void> tryDelete(String path, int version) throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.tryDelete(path, version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<byte[]> tryGetData(String path) throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.tryGetData(path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<Void> trySetData(String path, byte[] data, int version) throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.trySetData(path, data, version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, ZooKeeperResult<byte[]>> getDataBatch(Collection<String> paths) throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.getDataBatch(paths);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, ZooKeeperResult<List<String>>> getChildrenBatch(Collection<String> paths) throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.getChildrenBatch(paths);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<OpResult> multi(Iterable<Op> ops) throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.multi(ops);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperTransaction transaction() {
+        return new ZooKeeperTransactionImpl(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncZooKeeperConnection async() throws ResourceException {
+        checkState();
+        if (async == null) {
+            async = new AsyncZooKeeperConnectionImpl(this::getSession, connectionFactory.getCache());
+        }
+        return async;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -355,6 +468,21 @@ public class ZooKeeperConnectionImpl implements ZooKeeperConnection {
         }
     }
 
+    /**
+     * Returns the shared ZooKeeper session of the associated physical connection.
+     * Associates this handle with a physical connection if required.
+     *
+     * @return the shared ZooKeeper session
+     * @throws IllegalStateException if this handle is closed
+     */
+    private ZooKeeperSession getSession() throws ResourceException {
+        checkState();
+        if (managedConnection == null) {
+            associateConnection();
+        }
+        return managedConnection.getSession();
+    }
+
     private void associateConnection() throws ResourceException {
         if (connectionManager instanceof LazyAssociatableConnectionManager) {
             LazyAssociatableConnectionManager manager = (LazyAssociatableConnectionManager) connectionManager;
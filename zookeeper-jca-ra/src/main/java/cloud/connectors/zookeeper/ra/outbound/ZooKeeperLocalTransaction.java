@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.LocalTransaction;
+
+/**
+ * The local transaction of a managed connection. The write operations performed
+ * through the managed connection during the transaction are buffered and sent
+ * to the ZooKeeper server as a single multi request on commit.
+ *
+ * @author alexa
+ * @see ZooKeeperManagedConnection#getLocalTransaction()
+ */
+@SuppressWarnings("RedundantThrows")
+public class ZooKeeperLocalTransaction implements LocalTransaction {
+
+    private final ZooKeeperManagedConnection managedConnection;
+
+    /**
+     * Creates the local transaction of the given managed connection.
+     * Must not be used directly.
+     *
+     * @param managedConnection the managed connection
+     */
+    ZooKeeperLocalTransaction(ZooKeeperManagedConnection managedConnection) {
+        this.managedConnection = managedConnection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void begin() throws ResourceException {
+        managedConnection.beginTransaction();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void commit() throws ResourceException {
+        managedConnection.commitTransaction();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rollback() throws ResourceException {
+        managedConnection.rollbackTransaction();
+    }
+
+}
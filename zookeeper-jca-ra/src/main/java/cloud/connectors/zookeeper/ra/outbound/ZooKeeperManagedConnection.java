@@ -16,11 +16,17 @@
 
 package cloud.connectors.zookeeper.ra.outbound;
 
+import cloud.connectors.zookeeper.api.AsyncZooKeeperConnection;
 import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperResult;
+import cloud.connectors.zookeeper.api.ZooKeeperTransaction;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.ZooKeeper;
 import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Id;
 import org.apache.zookeeper.data.Stat;
 
 import javax.resource.NotSupportedException;
@@ -33,24 +39,67 @@ import javax.resource.spi.ConnectionRequestInfo;
 import javax.resource.spi.DissociatableManagedConnection;
 import javax.resource.spi.EISSystemException;
 import javax.resource.spi.LocalTransaction;
+import javax.resource.spi.LocalTransactionException;
 import javax.resource.spi.ManagedConnection;
 import javax.resource.spi.ManagedConnectionMetaData;
 import javax.resource.spi.ResourceAdapterInternalException;
 import javax.resource.spi.UnavailableException;
 import javax.security.auth.Subject;
 import javax.transaction.xa.XAResource;
-import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Represents a physical connection to the underlying ZooKeeper server.
+ * Represents a connection to the underlying ZooKeeper server.
  *
- * <p><strong>This adapter currently does not supports transactions.</strong>
+ * <p>All managed connections created by the same managed connection factory
+ * are views over a single {@link ZooKeeperSession shared ZooKeeper session}.
+ * Thus ephemeral nodes belongs to the shared session and live until the last
+ * managed connection of the factory is destroyed.
+ *
+ * <p>In the striped mode each operation may be performed in a different
+ * ZooKeeper session, so an operation is not guaranteed to see the result
+ * of a previous write operation made through the same connection.
+ *
+ * <p>If local transactions are enabled by the managed connection factory, the
+ * write operations performed within a local transaction are buffered and
+ * committed atomically with a single multi request. Until the commit, the
+ * buffered operations are not visible to the read operations, the create
+ * operations return the requested path and do not fill the {@code stat},
+ * and the set data operations return {@code null}. Sequential nodes cannot
+ * be created, ACLs cannot be set and multi operations cannot be performed
+ * within a local transaction, as their results are not known until the
+ * commit. The asynchronous view is not transactional.
+ * XA transactions are not supported.
+ *
+ * <p>If the {@link ZooKeeperCache read cache} is enabled by the managed connection
+ * factory, the data, children and exists reads of the cached nodes are served
+ * from the cache. The changes made through the connections of the factory are
+ * visible immediately, the other changes are visible once the watch event is
+ * received. ACL changes made by other clients do not invalidate the cached
+ * stats. The asynchronous view is not cached, but its writes invalidate the
+ * cached nodes as well.
+ *
+ * <p>If the read coalescing is enabled by the managed connection factory, the
+ * concurrent identical reads share a single request, see
+ * {@link ZooKeeperReadCoalescer}.
  *
  * @author alexa
  */
@@ -59,14 +108,55 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
 
     private static final Logger logger = Logger.getLogger(ZooKeeperManagedConnection.class.getName());
 
+    /**
+     * The maximum packet size accepted by the ZooKeeper server.
+     */
+    private static final int MAX_PACKET_BYTES = Integer.getInteger("jute.maxbuffer", 0xfffff);
+
+    /**
+     * The estimated size of a read operation of a multi request excluding its path.
+     */
+    private static final int OP_OVERHEAD_BYTES = 16;
+
+    /**
+     * The maximum number of reads sent to check that a lost connection is restored.
+     */
+    private static final int CONNECTION_PROBES = 3;
+
+    /**
+     * The maximum number of the batch read requests failed with the connection
+     * loss before the batch read fails.
+     */
+    private static final int MAX_BATCH_LOSSES = 16;
+
+    /**
+     * The error codes reported by the results of the exception-free operations.
+     */
+    private static final Set<KeeperException.Code> CREATE_CODES = Collections.unmodifiableSet(EnumSet.of(
+            KeeperException.Code.NODEEXISTS, KeeperException.Code.NONODE, KeeperException.Code.NOCHILDRENFOREPHEMERALS));
+    private static final Set<KeeperException.Code> DELETE_CODES = Collections.unmodifiableSet(EnumSet.of(
+            KeeperException.Code.NONODE, KeeperException.Code.BADVERSION, KeeperException.Code.NOTEMPTY));
+    private static final Set<KeeperException.Code> READ_CODES = Collections.unmodifiableSet(EnumSet.of(
+            KeeperException.Code.NONODE));
+    private static final Set<KeeperException.Code> SET_DATA_CODES = Collections.unmodifiableSet(EnumSet.of(
+            KeeperException.Code.NONODE, KeeperException.Code.BADVERSION));
+
     @SuppressWarnings({"FieldCanBeLocal", "unused"})
     private final Subject subject;
     @SuppressWarnings({"FieldCanBeLocal", "unused"})
     private final ConnectionRequestInfo connectionRequestInfo;
-    private final ZooKeeper zookeeper;
+    private final ZooKeeperSession session;
+    private final ZooKeeperCache cache;
+    private final AsyncZooKeeperConnectionImpl async;
     private final ZooKeeperManagedConnectionFactory managedConnectionFactory;
     private final ConnectionManager connectionManager;
     private PrintWriter logWriter;
+    private boolean destroyed;
+    /**
+     * The write operations buffered by the active local transaction,
+     * or {@code null} if there is no active local transaction.
+     */
+    private List<Op> transactionOps;
     private final Set<ZooKeeperConnectionImpl> connectionHandles;
     // We doesn't work with this set directly.
     // They managed by the application server.
@@ -78,7 +168,8 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     private final Set<ConnectionEventListener> eventListeners;
 
     /**
-     * Creates new physical connection to the ZooKeeper server.
+     * Creates new connection to the ZooKeeper server over the session
+     * shared by the managed connection factory.
      *
      * @param managedConnectionFactory the managed connection factory
      * @param connectionManager the connection manager
@@ -97,15 +188,9 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
         this.connectionRequestInfo = connectionRequestInfo;
         this.connectionHandles = new CopyOnWriteArraySet<>();
         this.eventListeners = new CopyOnWriteArraySet<>();
-
-        try {
-            this.zookeeper = new ZooKeeper(managedConnectionFactory.getConnectString(),
-                                           managedConnectionFactory.getSessionTimeout(),
-                                           null,
-                                           managedConnectionFactory.isCanBeReadOnly());
-        } catch (IOException e) {
-            throw new UnavailableException("Unable to create the ZooKeeper client connection", e);
-        }
+        this.session = managedConnectionFactory.acquireSession();
+        this.cache = managedConnectionFactory.getCache();
+        this.async = new AsyncZooKeeperConnectionImpl(() -> session, cache);
     }
 
     /**
@@ -131,14 +216,17 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
 
     /**
      * {@inheritDoc}
+     *
+     * <p>Releases the shared ZooKeeper session. The session is closed when
+     * the last managed connection of the factory is destroyed.
      */
     @Override
     public void destroy() throws ResourceException {
-        try {
-            zookeeper.close();
-        } catch (InterruptedException e) {
-            throw new CommException("Unable to close the ZooKeeper client connection", e);
+        if (destroyed) {
+            return;
         }
+        destroyed = true;
+        managedConnectionFactory.releaseSession();
     }
 
     /**
@@ -146,6 +234,7 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public void cleanup() throws ResourceException {
+        transactionOps = null;
         dissociateConnections();
     }
 
@@ -219,11 +308,60 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     /**
      * {@inheritDoc}
      *
-     * <p><strong>Transactions does not supported yet.</strong>
+     * <p>The local transactions are only supported if they are enabled by the
+     * managed connection factory.
+     *
+     * @throws NotSupportedException if the local transactions are not enabled
      */
     @Override
     public LocalTransaction getLocalTransaction() throws ResourceException {
-        throw new NotSupportedException("Not supported yet");
+        if (!Boolean.TRUE.equals(managedConnectionFactory.isLocalTransaction())) {
+            throw new NotSupportedException("Local transactions are not enabled");
+        }
+        return new ZooKeeperLocalTransaction(this);
+    }
+
+    /**
+     * Starts buffering the write operations of this connection.
+     *
+     * @throws LocalTransactionException if a local transaction is already active
+     */
+    void beginTransaction() throws ResourceException {
+        if (transactionOps != null) {
+            throw new LocalTransactionException("Local transaction is already active");
+        }
+        transactionOps = new ArrayList<>();
+    }
+
+    /**
+     * Performs the buffered write operations of this connection with a single
+     * multi request.
+     *
+     * @throws LocalTransactionException if no local transaction is active
+     * @throws EISSystemException if any of the operations fails
+     * @throws CommException if the operation was interrupted
+     */
+    void commitTransaction() throws ResourceException {
+        if (transactionOps == null) {
+            throw new LocalTransactionException("Local transaction is not active");
+        }
+        List<Op> ops = transactionOps;
+        transactionOps = null;
+        if (!ops.isEmpty()) {
+            multi(ops);
+        }
+    }
+
+    /**
+     * Discards the buffered write operations of this connection.
+     *
+     * @throws LocalTransactionException if no local transaction is active
+     */
+    void rollbackTransaction() throws ResourceException {
+        if (transactionOps == null) {
+            throw new LocalTransactionException("Local transaction is not active");
+        }
+        transactionOps = null;
     }
 
     /**
@@ -255,8 +393,15 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws ResourceException {
+        if (transactionOps != null) {
+            checkTransactionalCreate(path, createMode);
+            transactionOps.add(Op.create(path, data, acl, createMode));
+            return path;
+        }
         try {
-            return zookeeper.create(path, data, acl, createMode);
+            String created = session.executeWrite(zk -> zk.create(path, data, acl, createMode));
+            invalidate(created, true);
+            return created;
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot create node " + path, e);
         }
@@ -267,8 +412,15 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat) throws ResourceException {
+        if (transactionOps != null) {
+            checkTransactionalCreate(path, createMode);
+            transactionOps.add(Op.create(path, data, acl, createMode));
+            return path;
+        }
         try {
-            return zookeeper.create(path, data, acl, createMode, stat);
+            String created = session.executeWrite(zk -> zk.create(path, data, acl, createMode, stat));
+            invalidate(created, true);
+            return created;
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot create node " + path, e);
         }
@@ -279,8 +431,15 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat, long ttl) throws ResourceException {
+        if (transactionOps != null) {
+            checkTransactionalCreate(path, createMode);
+            transactionOps.add(Op.create(path, data, acl, createMode, ttl));
+            return path;
+        }
         try {
-            return zookeeper.create(path, data, acl, createMode, stat, ttl);
+            String created = session.executeWrite(zk -> zk.create(path, data, acl, createMode, stat, ttl));
+            invalidate(created, true);
+            return created;
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot create node " + path, e);
         }
@@ -291,8 +450,16 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public void delete(String path) throws ResourceException {
+        if (transactionOps != null) {
+            transactionOps.add(Op.delete(path, -1));
+            return;
+        }
         try {
-            zookeeper.delete(path, -1);
+            session.executeWrite(zk -> {
+                zk.delete(path, -1);
+                return null;
+            });
+            invalidate(path, true);
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot delete node " + path, e);
         }
@@ -303,8 +470,16 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public void delete(String path, int version) throws ResourceException {
+        if (transactionOps != null) {
+            transactionOps.add(Op.delete(path, version));
+            return;
+        }
         try {
-            zookeeper.delete(path, version);
+            session.executeWrite(zk -> {
+                zk.delete(path, version);
+                return null;
+            });
+            invalidate(path, true);
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot delete node " + path, e);
         }
@@ -316,7 +491,13 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public Stat exists(String path) throws ResourceException {
         try {
-            return zookeeper.exists(path, false);
+            if (cache != null && cache.isCached(path)) {
+                return cache.exists(path);
+            }
+            if (session.isCoalescing()) {
+                return sharedExists(path);
+            }
+            return session.execute(zk -> zk.exists(path, false));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot check if node " + path + " exists", e);
         }
@@ -328,7 +509,10 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public List<ACL> getACL(String path) throws ResourceException {
         try {
-            return zookeeper.getACL(path, null);
+            if (session.isCoalescing()) {
+                return sharedACL(path, null);
+            }
+            return session.execute(zk -> zk.getACL(path, null));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get ACL for node " + path, e);
         }
@@ -340,7 +524,10 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public List<ACL> getACL(String path, Stat stat) throws ResourceException {
         try {
-            return zookeeper.getACL(path, stat);
+            if (session.isCoalescing()) {
+                return sharedACL(path, stat);
+            }
+            return session.execute(zk -> zk.getACL(path, stat));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get ACL for node " + path, e);
         }
@@ -352,7 +539,7 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public int getAllChildrenNumber(String path) throws ResourceException {
         try {
-            return zookeeper.getAllChildrenNumber(path);
+            return session.execute(zk -> zk.getAllChildrenNumber(path));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get children number for node " + path, e);
         }
@@ -364,7 +551,13 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public List<String> getChildren(String path) throws ResourceException {
         try {
-            return zookeeper.getChildren(path, false);
+            if (cache != null && cache.isCached(path)) {
+                return cache.getChildren(path, null);
+            }
+            if (session.isCoalescing()) {
+                return sharedChildren(path, null);
+            }
+            return session.execute(zk -> zk.getChildren(path, false));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get children for node " + path, e);
         }
@@ -376,7 +569,13 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public List<String> getChildren(String path, Stat stat) throws ResourceException {
         try {
-            return zookeeper.getChildren(path, false, stat);
+            if (cache != null && cache.isCached(path)) {
+                return cache.getChildren(path, stat);
+            }
+            if (session.isCoalescing()) {
+                return sharedChildren(path, stat);
+            }
+            return session.execute(zk -> zk.getChildren(path, false, stat));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get children for node " + path, e);
         }
@@ -388,7 +587,13 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public byte[] getData(String path) throws ResourceException {
         try {
-            return zookeeper.getData(path, false, null);
+            if (cache != null && cache.isCached(path)) {
+                return cache.getData(path, null);
+            }
+            if (session.isCoalescing()) {
+                return sharedData(path, null);
+            }
+            return session.execute(zk -> zk.getData(path, false, null));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get data for node " + path, e);
         }
@@ -400,7 +605,13 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public byte[] getData(String path, Stat stat) throws ResourceException {
         try {
-            return zookeeper.getData(path, false, stat);
+            if (cache != null && cache.isCached(path)) {
+                return cache.getData(path, stat);
+            }
+            if (session.isCoalescing()) {
+                return sharedData(path, stat);
+            }
+            return session.execute(zk -> zk.getData(path, false, stat));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get data for node " + path, e);
         }
@@ -412,9 +623,9 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public List<String> getEphemerals() throws ResourceException {
         try {
-            return zookeeper.getEphemerals();
+            return session.executeAll(ZooKeeper::getEphemerals);
         } catch (KeeperException | InterruptedException e) {
-            throw resourceException("Cannot get ephemeral nodes for session " + zookeeper.getSessionId(), e);
+            throw resourceException("Cannot get ephemeral nodes for session " + session.getSessionId(), e);
         }
     }
 
@@ -424,10 +635,10 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
     @Override
     public List<String> getEphemerals(String prefixPath) throws ResourceException {
         try {
-            return zookeeper.getEphemerals(prefixPath);
+            return session.executeAll(zk -> zk.getEphemerals(prefixPath));
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot get ephemeral nodes with prefix " +
-                                    prefixPath + " for session " + zookeeper.getSessionId(), e);
+                                    prefixPath + " for session " + session.getSessionId(), e);
         }
     }
 
@@ -436,8 +647,13 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public Stat setACL(String path, List<ACL> acl) throws ResourceException {
+        if (transactionOps != null) {
+            throw new NotSupportedException("Cannot set ACL for node " + path + " within a local transaction");
+        }
         try {
-            return zookeeper.setACL(path, acl, -1);
+            Stat stat = session.executeWrite(zk -> zk.setACL(path, acl, -1));
+            invalidate(path, false);
+            return stat;
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot set ACL for node " + path, e);
         }
@@ -448,8 +664,13 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public Stat setACL(String path, List<ACL> acl, int version) throws ResourceException {
+        if (transactionOps != null) {
+            throw new NotSupportedException("Cannot set ACL for node " + path + " within a local transaction");
+        }
         try {
-            return zookeeper.setACL(path, acl, version);
+            Stat stat = session.executeWrite(zk -> zk.setACL(path, acl, version));
+            invalidate(path, false);
+            return stat;
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot set ACL for node " + path, e);
         }
@@ -460,8 +681,14 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public Stat setData(String path, byte[] data) throws ResourceException {
+        if (transactionOps != null) {
+            transactionOps.add(Op.setData(path, data, -1));
+            return null;
+        }
         try {
-            return zookeeper.setData(path, data, -1);
+            Stat stat = session.executeWrite(zk -> zk.setData(path, data, -1));
+            invalidate(path, false);
+            return stat;
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot set data for node " + path, e);
         }
@@ -472,13 +699,156 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
      */
     @Override
     public Stat setData(String path, byte[] data, int version) throws ResourceException {
+        if (transactionOps != null) {
+            transactionOps.add(Op.setData(path, data, version));
+            return null;
+        }
         try {
-            return zookeeper.setData(path, data, version);
+            Stat stat = session.executeWrite(zk -> zk.setData(path, data, version));
+            invalidate(path, false);
+            return stat;
         } catch (KeeperException | InterruptedException e) {
             throw resourceException("Cannot set data for node " + path, e);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<String> tryCreate(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws ResourceException {
+        if (transactionOps != null) {
+            checkTransactionalCreate(path, createMode);
+            transactionOps.add(Op.create(path, data, acl, createMode));
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, path, null);
+        }
+        String message = "Cannot create node ";
+        ZooKeeperResult<String> result = await(session.executeWriteAsync(
+                (zk, future) -> zk.create(path, data, acl, createMode, (rc, p, ctx, name) ->
+                        complete(future, message, path, rc, name, null, CREATE_CODES), null)), message, path);
+        if (result.isOk()) {
+            invalidate(result.getValue(), true);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<Void> tryDelete(String path, int version) throws ResourceException {
+        if (transactionOps != null) {
+            transactionOps.add(Op.delete(path, version));
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, null, null);
+        }
+        String message = "Cannot delete node ";
+        ZooKeeperResult<Void> result = await(session.executeWriteAsync(
+                (zk, future) -> zk.delete(path, version, (rc, p, ctx) ->
+                        complete(future, message, path, rc, null, null, DELETE_CODES), null)), message, path);
+        if (result.isOk()) {
+            invalidate(path, true);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<byte[]> tryGetData(String path) throws ResourceException {
+        String message = "Cannot get data for node ";
+        if (cache != null && cache.isCached(path)) {
+            try {
+                return cache.tryGetData(path);
+            } catch (KeeperException | InterruptedException e) {
+                throw resourceException(message + path, e);
+            }
+        }
+        return await(session.executeAsync(
+                (zk, future) -> zk.getData(path, false, (rc, p, ctx, data, stat) ->
+                        complete(future, message, path, rc, data, stat, READ_CODES), null)), message, path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperResult<Void> trySetData(String path, byte[] data, int version) throws ResourceException {
+        if (transactionOps != null) {
+            transactionOps.add(Op.setData(path, data, version));
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, null, null);
+        }
+        String message = "Cannot set data for node ";
+        ZooKeeperResult<Void> result = await(session.executeWriteAsync(
+                (zk, future) -> zk.setData(path, data, version, (rc, p, ctx, stat) ->
+                        complete(future, message, path, rc, null, stat, SET_DATA_CODES), null)), message, path);
+        if (result.isOk()) {
+            invalidate(path, false);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, ZooKeeperResult<byte[]>> getDataBatch(Collection<String> paths) throws ResourceException {
+        return readBatch(paths, Op::getData, (path, result) -> {
+            OpResult.GetDataResult dataResult = (OpResult.GetDataResult) result;
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, dataResult.getData(), dataResult.getStat());
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, ZooKeeperResult<List<String>>> getChildrenBatch(Collection<String> paths) throws ResourceException {
+        return readBatch(paths, Op::getChildren, (path, result) -> {
+            OpResult.GetChildrenResult childrenResult = (OpResult.GetChildrenResult) result;
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, childrenResult.getChildren(), null);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<OpResult> multi(Iterable<Op> ops) throws ResourceException {
+        if (transactionOps != null) {
+            throw new NotSupportedException("Cannot perform multi operation within a local transaction");
+        }
+        List<Op> list = new ArrayList<>();
+        ops.forEach(list::add);
+        try {
+            List<OpResult> results = session.executeWrite(zk -> zk.multi(list));
+            if (cache != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    invalidate(list.get(i), results.get(i));
+                }
+            }
+            return results;
+        } catch (KeeperException | InterruptedException e) {
+            throw multiResourceException(list, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperTransaction transaction() {
+        return new ZooKeeperTransactionImpl(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncZooKeeperConnection async() throws ResourceException {
+        return async;
+    }
+
     /**
      * This method should be never called. Implemented only for consistency.
      */
@@ -507,7 +877,386 @@ public class ZooKeeperManagedConnection implements ManagedConnection, Dissociata
         dissociateConnection(handle);
     }
 
-    private ResourceException resourceException(String message, Exception e)  {
+    /**
+     * Returns the shared ZooKeeper session this connection is a view over.
+     *
+     * @return the shared ZooKeeper session
+     */
+    ZooKeeperSession getSession() {
+        return session;
+    }
+
+    /**
+     * Reads the data of the node of the given {@code path}. The read may be
+     * coalesced with the identical in-flight reads.
+     *
+     * @param path the path of the node
+     * @param stat the stat of the node to fill, may be {@code null}
+     * @return a copy of the data of the node
+     */
+    private byte[] sharedData(String path, Stat stat) throws ResourceException, KeeperException, InterruptedException {
+        ZooKeeperResult<byte[]> result = session.executeShared("getData:" + path, zk -> {
+            Stat s = new Stat();
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, zk.getData(path, false, s), s);
+        });
+        copyStat(result.getStat(), stat);
+        byte[] data = result.getValue();
+        return data != null ? data.clone() : null;
+    }
+
+    /**
+     * Reads the children of the node of the given {@code path}. The read may be
+     * coalesced with the identical in-flight reads.
+     *
+     * @param path the path of the node
+     * @param stat the stat of the node to fill, may be {@code null}
+     * @return a copy of the children list of the node
+     */
+    private List<String> sharedChildren(String path, Stat stat) throws ResourceException, KeeperException, InterruptedException {
+        ZooKeeperResult<List<String>> result = session.executeShared("getChildren:" + path, zk -> {
+            Stat s = new Stat();
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, zk.getChildren(path, false, s), s);
+        });
+        copyStat(result.getStat(), stat);
+        return new ArrayList<>(result.getValue());
+    }
+
+    /**
+     * Reads the stat of the node of the given {@code path}. The read may be
+     * coalesced with the identical in-flight reads.
+     *
+     * @param path the path of the node
+     * @return a copy of the stat of the node or {@code null} if the node does not exist
+     */
+    private Stat sharedExists(String path) throws ResourceException, KeeperException, InterruptedException {
+        ZooKeeperResult<Stat> result = session.executeShared("exists:" + path, zk ->
+                new ZooKeeperResult<>(path, KeeperException.Code.OK, null, zk.exists(path, false)));
+        if (result.getStat() == null) {
+            return null;
+        }
+        Stat stat = new Stat();
+        copyStat(result.getStat(), stat);
+        return stat;
+    }
+
+    /**
+     * Reads the ACL of the node of the given {@code path}. The read may be
+     * coalesced with the identical in-flight reads.
+     *
+     * @param path the path of the node
+     * @param stat the stat of the node to fill, may be {@code null}
+     * @return a copy of the ACL of the node
+     */
+    private List<ACL> sharedACL(String path, Stat stat) throws ResourceException, KeeperException, InterruptedException {
+        ZooKeeperResult<List<ACL>> result = session.executeShared("getACL:" + path, zk -> {
+            Stat s = new Stat();
+            return new ZooKeeperResult<>(path, KeeperException.Code.OK, zk.getACL(path, s), s);
+        });
+        copyStat(result.getStat(), stat);
+        List<ACL> acl = new ArrayList<>(result.getValue().size());
+        for (ACL entry : result.getValue()) {
+            acl.add(new ACL(entry.getPerms(), new Id(entry.getId().getScheme(), entry.getId().getId())));
+        }
+        return acl;
+    }
+
+    /**
+     * Copies the fields of the given stat to the stat of the caller.
+     *
+     * @param from the stat to copy, may be {@code null}
+     * @param to the stat to copy to, may be {@code null}
+     */
+    static void copyStat(Stat from, Stat to) {
+        if (from == null || to == null) {
+            return;
+        }
+        to.setCzxid(from.getCzxid());
+        to.setMzxid(from.getMzxid());
+        to.setPzxid(from.getPzxid());
+        to.setCtime(from.getCtime());
+        to.setMtime(from.getMtime());
+        to.setVersion(from.getVersion());
+        to.setCversion(from.getCversion());
+        to.setAversion(from.getAversion());
+        to.setEphemeralOwner(from.getEphemeralOwner());
+        to.setDataLength(from.getDataLength());
+        to.setNumChildren(from.getNumChildren());
+    }
+
+    /**
+     * Completes the future of the exception-free operation with the result of the
+     * given code if the code is either {@code OK} or one of the {@code expected}
+     * codes, otherwise completes the future exceptionally.
+     *
+     * @param future the future to complete
+     * @param message the error message prefix
+     * @param path the path of the node
+     * @param rc the result code of the operation
+     * @param value the operation value
+     * @param stat the stat of the node
+     * @param expected the error codes reported by the result
+     * @param <T> the type of the operation value
+     */
+    private static <T> void complete(CompletableFuture<ZooKeeperResult<T>> future, String message, String path,
+                                     int rc, T value, Stat stat, Set<KeeperException.Code> expected) {
+        KeeperException.Code code = KeeperException.Code.get(rc);
+        if (code == KeeperException.Code.OK) {
+            future.complete(new ZooKeeperResult<>(path, code, value, stat));
+        } else if (expected.contains(code)) {
+            future.complete(new ZooKeeperResult<>(path, code, null, null));
+        } else {
+            future.completeExceptionally(resourceException(message + path, KeeperException.create(code, path)));
+        }
+    }
+
+    /**
+     * Waits for the result of the exception-free operation.
+     *
+     * @param future the future of the operation
+     * @param message the error message prefix
+     * @param path the path of the node
+     * @param <T> the type of the operation value
+     * @return the operation result
+     * @throws ResourceException if the operation failed or was interrupted
+     */
+    private static <T> ZooKeeperResult<T> await(CompletableFuture<ZooKeeperResult<T>> future, String message,
+                                                String path) throws ResourceException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw resourceException(message + path, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ResourceException) {
+                throw (ResourceException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ResourceAdapterInternalException(message + path, cause);
+        }
+    }
+
+    /**
+     * Checks that the node of the given mode may be created within a local
+     * transaction. The name of a sequential node is not known until the commit,
+     * so the requested path cannot be returned instead.
+     *
+     * @param path the requested path of the node
+     * @param createMode the node creation mode
+     * @throws NotSupportedException if the node is sequential
+     */
+    private static void checkTransactionalCreate(String path, CreateMode createMode) throws NotSupportedException {
+        if (createMode.isSequential()) {
+            throw new NotSupportedException("Cannot create sequential node " + path + " within a local transaction");
+        }
+    }
+
+    /**
+     * Removes the cached entries of the node changed through this connection,
+     * so the change is visible before the watch event is received.
+     *
+     * @param path the path of the changed node
+     * @param structural whether the node was created or deleted
+     */
+    private void invalidate(String path, boolean structural) {
+        if (cache != null) {
+            cache.invalidate(path, structural);
+        }
+    }
+
+    /**
+     * Invalidates the cached node changed by the given operation of a multi
+     * operation. The read and check operations change nothing.
+     *
+     * @param op the operation
+     * @param result the result of the operation
+     */
+    private void invalidate(Op op, OpResult result) {
+        if (op instanceof Op.Create) {
+            // the name of a sequential node is known from the result only
+            invalidate(((OpResult.CreateResult) result).getPath(), true);
+        } else if (op instanceof Op.Delete) {
+            invalidate(op.getPath(), true);
+        } else if (op instanceof Op.SetData) {
+            invalidate(op.getPath(), false);
+        }
+    }
+
+    /**
+     * Reads the nodes of the given {@code paths} with read-only multi requests. The
+     * paths are split into requests of at most {@code maxBatchSize} reads which
+     * estimated size does not exceed the {@code jute.maxbuffer} limit. The size of
+     * the responses is unknown in advance, so once a request has to be split because
+     * of its response size, the rest of the paths are read with the requests of the
+     * size that fit.
+     *
+     * @param paths the paths of the nodes
+     * @param read the read operation factory
+     * @param mapper the successful read result mapper
+     * @param <T> the type of the read value
+     * @return the results of the reads keyed by the paths
+     * @throws ResourceException if a request fails
+     */
+    private <T> Map<String, ZooKeeperResult<T>> readBatch(Collection<String> paths,
+                                                          Function<String, Op> read,
+                                                          BiFunction<String, OpResult, ZooKeeperResult<T>> mapper) throws ResourceException {
+        Map<String, ZooKeeperResult<T>> results = new LinkedHashMap<>();
+        List<Op> ops = new ArrayList<>();
+        for (String path : new LinkedHashSet<>(paths)) {
+            ops.add(read.apply(path));
+        }
+        int maxBatchSize = Math.max(1, managedConnectionFactory.getMaxBatchSize());
+        AtomicInteger losses = new AtomicInteger();
+        int from = 0;
+        while (from < ops.size()) {
+            int to = from;
+            int batchBytes = 0;
+            while (to < ops.size() && to - from < maxBatchSize) {
+                // the worst case UTF-8 length of the path
+                int opBytes = ops.get(to).getPath().length() * 3 + OP_OVERHEAD_BYTES;
+                if (to > from && batchBytes + opBytes > MAX_PACKET_BYTES) {
+                    break;
+                }
+                batchBytes += opBytes;
+                to++;
+            }
+            maxBatchSize = Math.min(maxBatchSize, readBatch(ops.subList(from, to), mapper, results, false, losses));
+            from = to;
+        }
+        return results;
+    }
+
+    /**
+     * Reads the given batch with a single read-only multi request. The server does
+     * not limit the size of a response, but the client drops the connection when
+     * the response exceeds its {@code jute.maxbuffer} limit. So a batch which fails
+     * with the connection loss is read again once the client is reconnected, and
+     * if it fails again while the connection is restored at once, it is halved and
+     * the halves are read instead. A batch is not retried if the connection is not
+     * restored, and the read fails once {@value #MAX_BATCH_LOSSES} requests have
+     * failed. The reads are idempotent, so they are safe to retry.
+     *
+     * @param batch the read operations
+     * @param mapper the successful read result mapper
+     * @param results the results of the reads keyed by the paths
+     * @param retried whether the batch was already read again after a connection loss
+     * @param losses the number of the requests failed with the connection loss
+     * @param <T> the type of the read value
+     * @return the number of the reads of the smallest request sent
+     * @throws ResourceException if the batch cannot be read
+     */
+    private <T> int readBatch(List<Op> batch,
+                              BiFunction<String, OpResult, ZooKeeperResult<T>> mapper,
+                              Map<String, ZooKeeperResult<T>> results,
+                              boolean retried,
+                              AtomicInteger losses) throws ResourceException {
+        List<OpResult> opResults;
+        try {
+            opResults = session.execute(zk -> {
+                try {
+                    return zk.multi(batch);
+                } catch (KeeperException.ConnectionLossException e) {
+                    if (!awaitConnection(zk)) {
+                        // the server is unavailable
+                        throw e;
+                    }
+                    return null;
+                }
+            });
+        } catch (KeeperException | InterruptedException e) {
+            throw resourceException("Cannot read batch of " + batch.size() + " nodes starting with " +
+                                    batch.get(0).getPath(), e);
+        }
+        if (opResults == null) {
+            if (losses.incrementAndGet() >= MAX_BATCH_LOSSES || retried && batch.size() == 1) {
+                throw resourceException("Cannot read batch of " + batch.size() + " nodes starting with " +
+                                        batch.get(0).getPath(),
+                                        new KeeperException.ConnectionLossException());
+            }
+            if (!retried) {
+                return readBatch(batch, mapper, results, true, losses);
+            }
+            logger.log(Level.FINE, "Split batch of {0} nodes starting with {1} after the connection loss",
+                       new Object[] {batch.size(), batch.get(0).getPath()});
+            int half = batch.size() / 2;
+            // the connection was restored twice, so the halves are not retried as a whole
+            return Math.min(readBatch(batch.subList(0, half), mapper, results, true, losses),
+                            readBatch(batch.subList(half, batch.size()), mapper, results, true, losses));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            String path = batch.get(i).getPath();
+            OpResult result = opResults.get(i);
+            if (result instanceof OpResult.ErrorResult) {
+                KeeperException.Code code = KeeperException.Code.get(((OpResult.ErrorResult) result).getErr());
+                results.put(path, new ZooKeeperResult<>(path, code, null, null));
+            } else {
+                results.put(path, mapper.apply(path, result));
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * Waits until the given client restores the lost connection. The requests sent
+     * while the client drops the connection may fail as well, so the client is
+     * probed with a few cheap reads which are queued until the client reconnects.
+     *
+     * @param zk the client which lost the connection
+     * @return {@code true} if the connection is restored
+     * @throws InterruptedException if the operation was interrupted
+     */
+    private static boolean awaitConnection(ZooKeeper zk) throws InterruptedException {
+        for (int i = 0; i < CONNECTION_PROBES; i++) {
+            try {
+                zk.exists("/", false);
+                return true;
+            } catch (KeeperException e) {
+                // the connection is not restored yet
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates the exception of the multi operation to the {@code ResourceException}.
+     * The message of the resulting exception describes the first failed operation.
+     *
+     * @param ops the operations of the multi operation
+     * @param e the exception to translate
+     * @return the resource exception
+     */
+    static ResourceException multiResourceException(Iterable<Op> ops, Exception e) {
+        if (e instanceof KeeperException && ((KeeperException) e).getResults() != null) {
+            Iterator<Op> iterator = ops.iterator();
+            int index = 0;
+            for (OpResult result : ((KeeperException) e).getResults()) {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                Op op = iterator.next();
+                if (result instanceof OpResult.ErrorResult) {
+                    int err = ((OpResult.ErrorResult) result).getErr();
+                    if (err != KeeperException.Code.OK.intValue() &&
+                        err != KeeperException.Code.RUNTIMEINCONSISTENCY.intValue()) {
+                        return resourceException("Cannot perform multi operation #" + index +
+                                                 " on node " + op.getPath(), e);
+                    }
+                }
+                index++;
+            }
+        }
+        return resourceException("Cannot perform multi operation", e);
+    }
+
+    /**
+     * Translates the given exception to the {@code ResourceException}.
+     *
+     * @param message the error message
+     * @param e the exception to translate
+     * @return the resource exception
+     */
+    static ResourceException resourceException(String message, Exception e)  {
         StringBuilder sb = new StringBuilder(message);
         sb.append(": ");
         if (e instanceof InterruptedException) {
@@ -30,6 +30,7 @@ import javax.resource.spi.ManagedConnection;
 import javax.resource.spi.ManagedConnectionFactory;
 import javax.resource.spi.ResourceAdapter;
 import javax.resource.spi.ResourceAdapterAssociation;
+import javax.resource.spi.TransactionSupport;
 import javax.security.auth.Subject;
 import java.io.PrintWriter;
 import java.util.Iterator;
@@ -53,7 +54,7 @@ import java.util.Set;
     connectionFactoryImpl = ZooKeeperConnectionFactoryImpl.class
 )
 @SuppressWarnings({"unused", "RedundantThrows"})
-public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFactory, ResourceAdapterAssociation {
+public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFactory, ResourceAdapterAssociation, TransactionSupport {
 
     private static final long serialVersionUID = 1L;
 
@@ -85,6 +86,68 @@ public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFacto
     @ConfigProperty(type = Boolean.class, defaultValue = "false")
     private Boolean canBeReadOnly = Boolean.FALSE;
 
+    /**
+     * Whether the managed connections share several ZooKeeper sessions instead of
+     * a single one. In the striped mode each operation is routed to the session with
+     * the fewest in-flight requests. This removes the single session send and event
+     * threads bottleneck under heavy read load, but an operation is no longer
+     * guaranteed to see the result of a previous write made through the same
+     * connection.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean striped = Boolean.FALSE;
+
+    /**
+     * The number of ZooKeeper sessions in the striped mode. Defaults to the number
+     * of available processors.
+     */
+    @ConfigProperty(type = Integer.class)
+    private Integer stripes;
+
+    /**
+     * The maximum number of reads sent in a single request by the batch operations.
+     * Larger batches are split into several requests. A request which response
+     * exceeds the {@code jute.maxbuffer} limit makes the client drop the connection
+     * and is split further, so this value should be lowered if the batches read
+     * large nodes.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "100")
+    private Integer maxBatchSize = 100;
+
+    /**
+     * Whether the connections support local transactions. The write operations
+     * performed within a local transaction are buffered and committed with a single
+     * multi request.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean localTransaction = Boolean.FALSE;
+
+    /**
+     * A comma separated path prefixes of the nodes which data, children and
+     * existence reads are cached, e.g. "/config,/services". The cache is shared
+     * by all connections of the factory and is invalidated by the persistent
+     * recursive watches on the prefixes. The cache is disabled by default.
+     */
+    @ConfigProperty(type = String.class)
+    private String cachePrefixes;
+
+    /**
+     * The maximum number of cached read results.
+     */
+    @ConfigProperty(type = Integer.class, defaultValue = "10000")
+    private Integer cacheMaxSize = 10000;
+
+    /**
+     * Whether the concurrent identical reads (data, children, exists and ACL)
+     * are coalesced. A read issued while an identical read is in-flight waits
+     * for its result instead of sending a duplicate request. Thus a coalesced read
+     * may return the state observed by the server shortly before the read was
+     * issued, but never the state preceding a write completed through the
+     * connections of this factory.
+     */
+    @ConfigProperty(type = Boolean.class, defaultValue = "false")
+    private Boolean coalesceReads = Boolean.FALSE;
+
     /**
      * The log writer.
      */
@@ -97,6 +160,16 @@ public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFacto
 
     private ConnectionManager connectionManager;
 
+    /**
+     * The ZooKeeper session shared by all managed connections of this factory.
+     */
+    private transient ZooKeeperSession session;
+
+    /**
+     * The read cache shared by all managed connections of this factory.
+     */
+    private transient ZooKeeperCache cache;
+
     /**
      * Get the {@code connectString}.
      *
@@ -151,6 +224,145 @@ public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFacto
         this.canBeReadOnly = canBeReadOnly;
     }
 
+    /**
+     * Get the {@code striped}.
+     *
+     * @return the striped mode flag
+     */
+    public Boolean isStriped() {
+        return striped;
+    }
+
+    /**
+     * Set the {@code striped}.
+     *
+     * @param striped the striped mode flag
+     */
+    public void setStriped(Boolean striped) {
+        this.striped = striped;
+    }
+
+    /**
+     * Get the {@code stripes}.
+     *
+     * @return the number of sessions in the striped mode
+     */
+    public Integer getStripes() {
+        return stripes;
+    }
+
+    /**
+     * Set the {@code stripes}.
+     *
+     * @param stripes the number of sessions in the striped mode
+     */
+    public void setStripes(Integer stripes) {
+        this.stripes = stripes;
+    }
+
+    /**
+     * Get the {@code maxBatchSize}.
+     *
+     * @return the maximum number of reads in a single request
+     */
+    public Integer getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Set the {@code maxBatchSize}.
+     *
+     * @param maxBatchSize the maximum number of reads in a single request
+     */
+    public void setMaxBatchSize(Integer maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Get the {@code localTransaction}.
+     *
+     * @return the local transaction support flag
+     */
+    public Boolean isLocalTransaction() {
+        return localTransaction;
+    }
+
+    /**
+     * Set the {@code localTransaction}.
+     *
+     * @param localTransaction the local transaction support flag
+     */
+    public void setLocalTransaction(Boolean localTransaction) {
+        this.localTransaction = localTransaction;
+    }
+
+    /**
+     * Get the {@code cachePrefixes}.
+     *
+     * @return the cached path prefixes
+     */
+    public String getCachePrefixes() {
+        return cachePrefixes;
+    }
+
+    /**
+     * Set the {@code cachePrefixes}.
+     *
+     * @param cachePrefixes the cached path prefixes
+     */
+    public void setCachePrefixes(String cachePrefixes) {
+        this.cachePrefixes = cachePrefixes;
+    }
+
+    /**
+     * Get the {@code cacheMaxSize}.
+     *
+     * @return the maximum number of cached read results
+     */
+    public Integer getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    /**
+     * Set the {@code cacheMaxSize}.
+     *
+     * @param cacheMaxSize the maximum number of cached read results
+     */
+    public void setCacheMaxSize(Integer cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    /**
+     * Get the {@code coalesceReads}.
+     *
+     * @return the read coalescing flag
+     */
+    public Boolean isCoalesceReads() {
+        return coalesceReads;
+    }
+
+    /**
+     * Set the {@code coalesceReads}.
+     *
+     * @param coalesceReads the read coalescing flag
+     */
+    public void setCoalesceReads(Boolean coalesceReads) {
+        this.coalesceReads = coalesceReads;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code LocalTransaction} if the local transactions are enabled,
+     *         {@code NoTransaction} otherwise
+     */
+    @Override
+    public TransactionSupportLevel getTransactionSupport() {
+        return Boolean.TRUE.equals(localTransaction)
+               ? TransactionSupportLevel.LocalTransaction
+               : TransactionSupportLevel.NoTransaction;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -206,6 +418,57 @@ public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFacto
         return connection;
     }
 
+    /**
+     * Acquires the ZooKeeper session shared by all the managed connections
+     * created by this factory. The session is created on first use.
+     *
+     * @return the shared ZooKeeper session
+     * @throws ResourceException if the ZooKeeper client cannot be created
+     */
+    synchronized ZooKeeperSession acquireSession() throws ResourceException {
+        if (session == null) {
+            int stripeCount = 1;
+            if (Boolean.TRUE.equals(striped)) {
+                stripeCount = stripes != null && stripes > 0
+                              ? stripes
+                              : Runtime.getRuntime().availableProcessors();
+            }
+            session = new ZooKeeperSession(connectString, sessionTimeout, Boolean.TRUE.equals(canBeReadOnly), stripeCount,
+                                           Boolean.TRUE.equals(coalesceReads));
+            if (cachePrefixes != null && !cachePrefixes.trim().isEmpty()) {
+                // the cache watches and misses use the first stripe
+                cache = new ZooKeeperCache(connectString, session.getStripe(0), session.getCoalescer(),
+                                           cachePrefixes, cacheMaxSize);
+            }
+        }
+        if (session.acquire() && cache != null) {
+            cache.open();
+        }
+        return session;
+    }
+
+    /**
+     * Releases the ZooKeeper session acquired by a managed connection. The
+     * read cache is cleared when the last managed connection releases the session.
+     *
+     * @throws ResourceException if the ZooKeeper client cannot be closed
+     */
+    synchronized void releaseSession() throws ResourceException {
+        if (session != null && session.release() && cache != null) {
+            cache.close();
+        }
+    }
+
+    /**
+     * Returns the read cache shared by all the managed connections created by
+     * this factory.
+     *
+     * @return the read cache or {@code null} if the cache is disabled
+     */
+    synchronized ZooKeeperCache getCache() {
+        return cache;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -253,7 +516,14 @@ public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFacto
         ZooKeeperManagedConnectionFactory factory = (ZooKeeperManagedConnectionFactory) obj;
         return Objects.equals(connectString, factory.connectString) &&
                Objects.equals(sessionTimeout, factory.sessionTimeout) &&
-               canBeReadOnly == factory.canBeReadOnly;
+               canBeReadOnly == factory.canBeReadOnly &&
+               Objects.equals(striped, factory.striped) &&
+               Objects.equals(stripes, factory.stripes) &&
+               Objects.equals(maxBatchSize, factory.maxBatchSize) &&
+               Objects.equals(localTransaction, factory.localTransaction) &&
+               Objects.equals(cachePrefixes, factory.cachePrefixes) &&
+               Objects.equals(cacheMaxSize, factory.cacheMaxSize) &&
+               Objects.equals(coalesceReads, factory.coalesceReads);
     }
 
     /**
@@ -261,7 +531,8 @@ public class ZooKeeperManagedConnectionFactory implements ManagedConnectionFacto
      */
     @Override
     public int hashCode() {
-        return Objects.hash(connectString, sessionTimeout, canBeReadOnly);
+        return Objects.hash(connectString, sessionTimeout, canBeReadOnly, striped, stripes, maxBatchSize, localTransaction,
+                            cachePrefixes, cacheMaxSize, coalesceReads);
     }
 
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooKeeper;
+
+/**
+ * Represents an operation performed with a ZooKeeper client.
+ *
+ * @param <T> the type of the operation result
+ * @author alexa
+ * @see ZooKeeperSession#execute(ZooKeeperOperation)
+ */
+@FunctionalInterface
+public interface ZooKeeperOperation<T> {
+
+    /**
+     * Performs this operation with the given ZooKeeper client.
+     *
+     * @param zooKeeper the ZooKeeper client
+     * @return the operation result
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     */
+    T execute(ZooKeeper zooKeeper) throws KeeperException, InterruptedException;
+
+}
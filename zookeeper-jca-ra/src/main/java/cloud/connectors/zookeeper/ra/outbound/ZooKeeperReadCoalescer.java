@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import org.apache.zookeeper.KeeperException;
+
+import javax.resource.ResourceException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces the concurrent identical reads of a ZooKeeper session. The first
+ * caller sends the read to the server, the callers which issue the same read
+ * while it is in-flight wait for its result instead of sending duplicates.
+ *
+ * <p>A read only joins an in-flight read if no write operation was completed
+ * through the session since the in-flight read was sent, so a caller always
+ * observes its own writes.
+ *
+ * <p>The result is shared between the callers, thus the callers must copy
+ * the mutable parts of the result before returning it.
+ *
+ * @author alexa
+ * @see ZooKeeperSession
+ */
+public class ZooKeeperReadCoalescer implements ZooKeeperReadCoalescerMXBean {
+
+    private final ConcurrentMap<String, Flight> flights;
+
+    /**
+     * Incremented on each completed write operation.
+     */
+    private final AtomicLong writeSequence;
+
+    private final LongAdder sentCount;
+    private final LongAdder coalescedCount;
+
+    /**
+     * Creates new read coalescer.
+     */
+    public ZooKeeperReadCoalescer() {
+        this.flights = new ConcurrentHashMap<>();
+        this.writeSequence = new AtomicLong();
+        this.sentCount = new LongAdder();
+        this.coalescedCount = new LongAdder();
+    }
+
+    /**
+     * Performs the given read or waits for the identical in-flight read.
+     *
+     * @param key the read identity, e.g. the operation name and the path
+     * @param read the read to perform
+     * @param <T> the type of the read result
+     * @return the shared read result
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws ResourceException if the session is not available
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, Read<T> read) throws ResourceException, KeeperException, InterruptedException {
+        long sequence = writeSequence.get();
+        Flight flight = new Flight(sequence);
+        Flight inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            if (inFlight.sequence == sequence) {
+                try {
+                    T result = (T) inFlight.future.get();
+                    coalescedCount.increment();
+                    return result;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof KeeperException) {
+                        coalescedCount.increment();
+                        throw (KeeperException) cause;
+                    }
+                    // the in-flight read was interrupted or failed locally,
+                    // perform the read on behalf of this caller
+                }
+            }
+            // a write was completed since the in-flight read was sent
+            sentCount.increment();
+            return read.read();
+        }
+
+        try {
+            sentCount.increment();
+            T result = read.read();
+            flight.future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            flight.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Notifies this coalescer that a write operation was completed. The reads
+     * in-flight at this moment are not joined anymore.
+     */
+    void written() {
+        writeSequence.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInFlightReads() {
+        return flights.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetStatistics() {
+        sentCount.reset();
+        coalescedCount.reset();
+    }
+
+    /**
+     * A read operation.
+     *
+     * @param <T> the type of the read result
+     */
+    @FunctionalInterface
+    interface Read<T> {
+
+        /**
+         * Performs the read.
+         *
+         * @return the read result
+         * @throws KeeperException if the server returns a non-zero error code
+         * @throws InterruptedException if the operation was interrupted
+         * @throws ResourceException if the session is not available
+         */
+        T read() throws ResourceException, KeeperException, InterruptedException;
+
+    }
+
+    /**
+     * An in-flight read.
+     */
+    private static final class Flight {
+
+        private final long sequence;
+        private final CompletableFuture<Object> future;
+
+        private Flight(long sequence) {
+            this.sequence = sequence;
+            this.future = new CompletableFuture<>();
+        }
+
+    }
+
+}
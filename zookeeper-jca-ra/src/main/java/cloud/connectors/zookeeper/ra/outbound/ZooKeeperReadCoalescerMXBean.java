@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+/**
+ * Management interface for the read coalescer of a ZooKeeper session.
+ * Exposes the number of the reads sent to the server and the number of
+ * the reads which joined an identical in-flight read.
+ *
+ * @author alexa
+ * @see ZooKeeperReadCoalescer
+ */
+@SuppressWarnings("unused")
+public interface ZooKeeperReadCoalescerMXBean {
+
+    /**
+     * Returns the number of the reads currently in-flight.
+     *
+     * @return the number of in-flight reads
+     */
+    int getInFlightReads();
+
+    /**
+     * Returns the number of the reads sent to the ZooKeeper server.
+     *
+     * @return the number of sent reads
+     */
+    long getSentCount();
+
+    /**
+     * Returns the number of the reads served by an identical in-flight read.
+     *
+     * @return the number of coalesced reads
+     */
+    long getCoalescedCount();
+
+    /**
+     * Resets the sent and the coalesced read counters.
+     */
+    void resetStatistics();
+
+}
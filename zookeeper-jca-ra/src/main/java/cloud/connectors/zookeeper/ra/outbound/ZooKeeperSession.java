@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import cloud.connectors.zookeeper.ra.ManagementSupport;
+import org.apache.zookeeper.KeeperException;
+
+import javax.management.ObjectName;
+import javax.resource.ResourceException;
+import javax.resource.spi.CommException;
+import javax.resource.spi.IllegalStateException;
+import javax.resource.spi.UnavailableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents a reference-counted ZooKeeper client session shared by all the
+ * managed connections created by the same managed connection factory.
+ *
+ * <p>The ZooKeeper client is thread-safe, so managed connections are only
+ * lightweight views over this session. The client is created when the first
+ * managed connection acquires the session and is closed when the last one
+ * releases it. An expired session is transparently replaced by a new one
+ * on the next access.
+ *
+ * <p>In the striped mode this session keeps several ZooKeeper clients
+ * (stripes) and routes each operation to the stripe with the fewest
+ * in-flight requests. Each stripe is registered as an MBean so the
+ * queue depth and latency counters may be used to size the number
+ * of stripes.
+ *
+ * <p>If the read coalescing is enabled, the concurrent identical reads are
+ * sent to the server once and share the result, see {@link ZooKeeperReadCoalescer}.
+ *
+ * @author alexa
+ * @see ZooKeeperManagedConnectionFactory
+ * @see ZooKeeperManagedConnection
+ */
+public class ZooKeeperSession {
+
+    private final String connectString;
+    private final ZooKeeperSessionStripe[] stripes;
+    private final ObjectName[] objectNames;
+    private final ZooKeeperReadCoalescer coalescer;
+    private ObjectName coalescerObjectName;
+
+    /**
+     * The number of managed connections that uses this session.
+     */
+    private int references;
+
+    /**
+     * Creates new shared session. The ZooKeeper clients are not created
+     * until the session is acquired.
+     *
+     * @param connectString the connect string
+     * @param sessionTimeout the session timeout in milliseconds
+     * @param canBeReadOnly the read-only flag
+     * @param stripeCount the number of ZooKeeper clients
+     * @param coalesceReads whether the concurrent identical reads are coalesced
+     */
+    public ZooKeeperSession(String connectString, int sessionTimeout, boolean canBeReadOnly, int stripeCount,
+                            boolean coalesceReads) {
+        this.connectString = connectString;
+        this.stripes = new ZooKeeperSessionStripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ZooKeeperSessionStripe(i, connectString, sessionTimeout, canBeReadOnly);
+        }
+        this.objectNames = new ObjectName[stripeCount];
+        this.coalescer = coalesceReads ? new ZooKeeperReadCoalescer() : null;
+    }
+
+    /**
+     * Acquires this session. Creates the ZooKeeper clients if this is
+     * the first reference to the session.
+     *
+     * @return {@code true} if this is the first reference to the session
+     * @throws UnavailableException the ZooKeeper server is unavailable
+     */
+    synchronized boolean acquire() throws ResourceException {
+        if (references == 0) {
+            try {
+                for (ZooKeeperSessionStripe stripe : stripes) {
+                    stripe.open();
+                }
+            } catch (ResourceException e) {
+                closeStripes();
+                throw e;
+            }
+            String id = Integer.toHexString(System.identityHashCode(this));
+            for (int i = 0; i < stripes.length; i++) {
+                objectNames[i] = ManagementSupport.register(stripes[i], "ZooKeeperSession",
+                                                            "name", connectString,
+                                                            "id", id,
+                                                            "stripe", Integer.toString(i));
+            }
+            if (coalescer != null) {
+                coalescerObjectName = ManagementSupport.register(coalescer, "ZooKeeperReadCoalescer",
+                                                                 "name", connectString,
+                                                                 "id", id);
+            }
+        }
+        return references++ == 0;
+    }
+
+    /**
+     * Releases this session. Closes the ZooKeeper clients if this is the
+     * last reference to the session.
+     *
+     * @return {@code true} if this was the last reference to the session
+     * @throws CommException if the operation was interrupted
+     */
+    synchronized boolean release() throws ResourceException {
+        if (references == 0) {
+            return false;
+        }
+
+        if (--references == 0) {
+            for (int i = 0; i < objectNames.length; i++) {
+                ManagementSupport.unregister(objectNames[i]);
+                objectNames[i] = null;
+            }
+            ManagementSupport.unregister(coalescerObjectName);
+            coalescerObjectName = null;
+            closeStripes();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs the given read operation on the stripe with the fewest in-flight
+     * requests. The result is never shared with other callers.
+     *
+     * @param operation the operation to perform
+     * @param <T> the type of the operation result
+     * @return the operation result
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws IllegalStateException if this session was released
+     * @throws UnavailableException the ZooKeeper server is unavailable
+     */
+    <T> T execute(ZooKeeperOperation<T> operation) throws ResourceException, KeeperException, InterruptedException {
+        return perform(operation);
+    }
+
+    /**
+     * Performs the given write operation on the stripe with the fewest in-flight
+     * requests. The operation modifies the ZooKeeper state, so the reads
+     * in-flight at its completion are not coalesced with the later reads.
+     *
+     * @param operation the operation to perform
+     * @param <T> the type of the operation result
+     * @return the operation result
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws IllegalStateException if this session was released
+     * @throws UnavailableException the ZooKeeper server is unavailable
+     */
+    <T> T executeWrite(ZooKeeperOperation<T> operation) throws ResourceException, KeeperException, InterruptedException {
+        try {
+            return perform(operation);
+        } finally {
+            written();
+        }
+    }
+
+    /**
+     * Performs the given read operation on the stripe with the fewest in-flight
+     * requests. If the read coalescing is enabled, waits for the result of an
+     * identical in-flight read instead. The result may be shared with other
+     * callers and must not be modified.
+     *
+     * @param key the read identity, e.g. the operation name and the path
+     * @param operation the read operation to perform
+     * @param <T> the type of the operation result
+     * @return the operation result
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws IllegalStateException if this session was released
+     * @throws UnavailableException the ZooKeeper server is unavailable
+     */
+    <T> T executeShared(String key, ZooKeeperOperation<T> operation) throws ResourceException, KeeperException, InterruptedException {
+        if (coalescer == null) {
+            return perform(operation);
+        }
+        return coalescer.execute(key, () -> perform(operation));
+    }
+
+    /**
+     * Checks whether the concurrent identical reads are coalesced.
+     *
+     * @return {@code true} if the read coalescing is enabled
+     */
+    boolean isCoalescing() {
+        return coalescer != null;
+    }
+
+    /**
+     * Returns the read coalescer of this session.
+     *
+     * @return the read coalescer or {@code null} if the read coalescing is disabled
+     */
+    ZooKeeperReadCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Sends the request of the given asynchronous read operation on the stripe
+     * with the fewest in-flight requests. The request is considered in-flight
+     * until the returned future is completed.
+     *
+     * @param operation the operation to perform
+     * @param <T> the type of the operation result
+     * @return the future completed with the operation result
+     */
+    <T> CompletableFuture<T> executeAsync(ZooKeeperAsyncOperation<T> operation) {
+        return send(operation, false);
+    }
+
+    /**
+     * Sends the request of the given asynchronous write operation on the stripe
+     * with the fewest in-flight requests. The reads in-flight at its completion
+     * are not coalesced with the later reads.
+     *
+     * @param operation the operation to perform
+     * @param <T> the type of the operation result
+     * @return the future completed with the operation result
+     */
+    <T> CompletableFuture<T> executeWriteAsync(ZooKeeperAsyncOperation<T> operation) {
+        return send(operation, true);
+    }
+
+    private <T> CompletableFuture<T> send(ZooKeeperAsyncOperation<T> operation, boolean write) {
+        ZooKeeperSessionStripe stripe = route();
+        long start = stripe.begin();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, throwable) -> {
+            stripe.end(start);
+            if (write) {
+                written();
+            }
+        });
+        try {
+            operation.execute(stripe.getZooKeeper(), future);
+        } catch (ResourceException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Performs the given operation on each stripe and concatenates the results.
+     * Used for the operations which results depend on the session, e.g.
+     * the ephemeral nodes lookup.
+     *
+     * @param operation the operation to perform
+     * @param <T> the type of the operation result elements
+     * @return the concatenated operation results
+     * @throws KeeperException if the server returns a non-zero error code
+     * @throws InterruptedException if the operation was interrupted
+     * @throws IllegalStateException if this session was released
+     * @throws UnavailableException the ZooKeeper server is unavailable
+     */
+    <T> List<T> executeAll(ZooKeeperOperation<List<T>> operation) throws ResourceException, KeeperException, InterruptedException {
+        if (stripes.length == 1) {
+            return perform(operation);
+        }
+
+        List<T> result = new ArrayList<>();
+        for (ZooKeeperSessionStripe stripe : stripes) {
+            long start = stripe.begin();
+            try {
+                result.addAll(operation.execute(stripe.getZooKeeper()));
+            } finally {
+                stripe.end(start);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the stripe of the given {@code index}.
+     *
+     * @param index the stripe index
+     * @return the stripe
+     */
+    ZooKeeperSessionStripe getStripe(int index) {
+        return stripes[index];
+    }
+
+    /**
+     * Returns the identifiers of the current ZooKeeper sessions.
+     *
+     * @return the comma separated hexadecimal session ids
+     */
+    String getSessionId() {
+        StringBuilder sb = new StringBuilder();
+        for (ZooKeeperSessionStripe stripe : stripes) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(stripe.getSessionId());
+        }
+        return sb.toString();
+    }
+
+    private <T> T perform(ZooKeeperOperation<T> operation) throws ResourceException, KeeperException, InterruptedException {
+        ZooKeeperSessionStripe stripe = route();
+        long start = stripe.begin();
+        try {
+            return operation.execute(stripe.getZooKeeper());
+        } finally {
+            stripe.end(start);
+        }
+    }
+
+    private void written() {
+        if (coalescer != null) {
+            coalescer.written();
+        }
+    }
+
+    /**
+     * Selects the stripe with the fewest outstanding requests. The scan starts
+     * from a random stripe to spread the load between equally loaded stripes.
+     *
+     * @return the least loaded stripe
+     */
+    private ZooKeeperSessionStripe route() {
+        if (stripes.length == 1) {
+            return stripes[0];
+        }
+
+        int offset = ThreadLocalRandom.current().nextInt(stripes.length);
+        ZooKeeperSessionStripe selected = stripes[offset];
+        int min = selected.getOutstandingRequests();
+        for (int i = 1; i < stripes.length && min > 0; i++) {
+            ZooKeeperSessionStripe stripe = stripes[(offset + i) % stripes.length];
+            int outstanding = stripe.getOutstandingRequests();
+            if (outstanding < min) {
+                selected = stripe;
+                min = outstanding;
+            }
+        }
+        return selected;
+    }
+
+    private void closeStripes() throws ResourceException {
+        ResourceException exception = null;
+        for (ZooKeeperSessionStripe stripe : stripes) {
+            try {
+                stripe.close();
+            } catch (ResourceException e) {
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import javax.resource.ResourceException;
+
+/**
+ * Provides the shared ZooKeeper session of a connection.
+ *
+ * @author alexa
+ */
+@FunctionalInterface
+interface ZooKeeperSessionProvider {
+
+    /**
+     * Returns the shared ZooKeeper session used by the connection.
+     *
+     * @return the shared ZooKeeper session
+     * @throws javax.resource.spi.IllegalStateException if the connection is closed
+     * @throws ResourceException if the connection cannot be associated with
+     * a physical connection
+     */
+    ZooKeeperSession getSession() throws ResourceException;
+
+}
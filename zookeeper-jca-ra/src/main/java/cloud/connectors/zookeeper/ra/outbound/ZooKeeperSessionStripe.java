@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import org.apache.zookeeper.ZooKeeper;
+
+import javax.resource.ResourceException;
+import javax.resource.spi.CommException;
+import javax.resource.spi.IllegalStateException;
+import javax.resource.spi.UnavailableException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents a single ZooKeeper client of a {@link ZooKeeperSession}.
+ * Keeps track of the in-flight requests and the request latencies.
+ *
+ * @author alexa
+ */
+public class ZooKeeperSessionStripe implements ZooKeeperSessionStripeMXBean {
+
+    private static final Logger logger = Logger.getLogger(ZooKeeperSessionStripe.class.getName());
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int index;
+    private final String connectString;
+    private final int sessionTimeout;
+    private final boolean canBeReadOnly;
+
+    private volatile ZooKeeper zooKeeper;
+
+    private final AtomicInteger outstandingRequests;
+    private final LongAdder requestCount;
+    private final LongAdder totalLatency;
+    private final LongAccumulator maxLatency;
+
+    /**
+     * Creates new stripe. The ZooKeeper client is not created until
+     * the stripe is opened.
+     *
+     * @param index the stripe index
+     * @param connectString the connect string
+     * @param sessionTimeout the session timeout in milliseconds
+     * @param canBeReadOnly the read-only flag
+     */
+    public ZooKeeperSessionStripe(int index, String connectString, int sessionTimeout, boolean canBeReadOnly) {
+        this.index = index;
+        this.connectString = connectString;
+        this.sessionTimeout = sessionTimeout;
+        this.canBeReadOnly = canBeReadOnly;
+        this.outstandingRequests = new AtomicInteger();
+        this.requestCount = new LongAdder();
+        this.totalLatency = new LongAdder();
+        this.maxLatency = new LongAccumulator(Long::max, 0L);
+    }
+
+    /**
+     * Creates the ZooKeeper client of this stripe.
+     *
+     * @throws UnavailableException the ZooKeeper server is unavailable
+     */
+    synchronized void open() throws ResourceException {
+        zooKeeper = connect();
+    }
+
+    /**
+     * Closes the ZooKeeper client of this stripe.
+     *
+     * @throws CommException if the operation was interrupted
+     */
+    synchronized void close() throws ResourceException {
+        ZooKeeper zk = zooKeeper;
+        zooKeeper = null;
+        if (zk != null) {
+            try {
+                zk.close();
+            } catch (InterruptedException e) {
+                throw new CommException("Unable to close the ZooKeeper client connection", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the ZooKeeper client of this stripe. Creates a new client if
+     * the current one was closed, e.g. due to the session expiration.
+     *
+     * @return the ZooKeeper client
+     * @throws IllegalStateException if this stripe is closed
+     * @throws UnavailableException the ZooKeeper server is unavailable
+     */
+    ZooKeeper getZooKeeper() throws ResourceException {
+        ZooKeeper zk = zooKeeper;
+        if (zk != null && zk.getState().isAlive()) {
+            return zk;
+        }
+        return reconnect(zk);
+    }
+
+    /**
+     * Marks the start of a request on this stripe.
+     *
+     * @return the request start time in nanoseconds
+     */
+    long begin() {
+        outstandingRequests.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a request on this stripe.
+     *
+     * @param start the request start time returned by {@link #begin()}
+     */
+    void end(long start) {
+        long latency = System.nanoTime() - start;
+        outstandingRequests.decrementAndGet();
+        requestCount.increment();
+        totalLatency.add(latency);
+        maxLatency.accumulate(latency);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSessionId() {
+        ZooKeeper zk = zooKeeper;
+        return "0x" + Long.toHexString(zk != null ? zk.getSessionId() : 0L);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getState() {
+        ZooKeeper zk = zooKeeper;
+        return zk != null ? zk.getState().name() : ZooKeeper.States.CLOSED.name();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getAverageLatencyMillis() {
+        long count = requestCount.sum();
+        return count == 0 ? 0.0 : totalLatency.sum() / NANOS_PER_MILLI / count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMaxLatencyMillis() {
+        return maxLatency.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetStatistics() {
+        requestCount.reset();
+        totalLatency.reset();
+        maxLatency.reset();
+    }
+
+    private synchronized ZooKeeper reconnect(ZooKeeper closed) throws ResourceException {
+        if (zooKeeper == null) {
+            throw new IllegalStateException("Cannot perform operation on a released ZooKeeper session");
+        }
+
+        if (zooKeeper != closed) {
+            // already reconnected by another thread
+            return zooKeeper;
+        }
+
+        logger.log(Level.WARNING, "ZooKeeper session 0x{0} is closed. Create new ZooKeeper session",
+                   Long.toHexString(closed.getSessionId()));
+        try {
+            closed.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommException("Unable to close the ZooKeeper client connection", e);
+        }
+        zooKeeper = connect();
+        return zooKeeper;
+    }
+
+    private ZooKeeper connect() throws ResourceException {
+        try {
+            return new ZooKeeper(connectString, sessionTimeout, null, canBeReadOnly);
+        } catch (IOException e) {
+            throw new UnavailableException("Unable to create the ZooKeeper client connection", e);
+        }
+    }
+
+}
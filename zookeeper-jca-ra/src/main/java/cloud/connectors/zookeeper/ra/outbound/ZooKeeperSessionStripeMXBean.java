@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+/**
+ * Management interface for a ZooKeeper session stripe. Exposes the
+ * queue depth and the latency counters used to size the number of
+ * striped sessions.
+ *
+ * @author alexa
+ * @see ZooKeeperSessionStripe
+ */
+@SuppressWarnings("unused")
+public interface ZooKeeperSessionStripeMXBean {
+
+    /**
+     * Returns the stripe index.
+     *
+     * @return the stripe index
+     */
+    int getIndex();
+
+    /**
+     * Returns the hexadecimal identifier of the current ZooKeeper session.
+     *
+     * @return the session id
+     */
+    String getSessionId();
+
+    /**
+     * Returns the state of the ZooKeeper client.
+     *
+     * @return the client state or {@code CLOSED} if no client is opened
+     */
+    String getState();
+
+    /**
+     * Returns the number of requests currently in-flight on this stripe.
+     *
+     * @return the number of outstanding requests
+     */
+    int getOutstandingRequests();
+
+    /**
+     * Returns the number of completed requests.
+     *
+     * @return the number of completed requests
+     */
+    long getRequestCount();
+
+    /**
+     * Returns the average request latency in milliseconds.
+     *
+     * @return the average latency or {@code 0} if there were no requests
+     */
+    double getAverageLatencyMillis();
+
+    /**
+     * Returns the maximum request latency in milliseconds.
+     *
+     * @return the maximum latency
+     */
+    double getMaxLatencyMillis();
+
+    /**
+     * Resets the request and the latency counters.
+     */
+    void resetStatistics();
+
+}
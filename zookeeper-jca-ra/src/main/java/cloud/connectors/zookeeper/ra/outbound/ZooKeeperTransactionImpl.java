@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 Alexander Pinchuk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloud.connectors.zookeeper.ra.outbound;
+
+import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperTransaction;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.data.ACL;
+
+import javax.resource.ResourceException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects ZooKeeper operations and commits them with a single
+ * {@link ZooKeeperConnection#multi(Iterable) multi} request.
+ *
+ * @author alexa
+ */
+public class ZooKeeperTransactionImpl implements ZooKeeperTransaction {
+
+    private final ZooKeeperConnection connection;
+    private final List<Op> ops;
+
+    /**
+     * Creates a transaction builder. Must not be used directly.
+     *
+     * @param connection the connection used to commit the transaction
+     */
+    ZooKeeperTransactionImpl(ZooKeeperConnection connection) {
+        this.connection = connection;
+        this.ops = new ArrayList<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperTransaction create(String path, byte[] data, List<ACL> acl, CreateMode createMode) {
+        ops.add(Op.create(path, data, acl, createMode));
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperTransaction create(String path, byte[] data, List<ACL> acl, CreateMode createMode, long ttl) {
+        ops.add(Op.create(path, data, acl, createMode, ttl));
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperTransaction delete(String path, int version) {
+        ops.add(Op.delete(path, version));
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperTransaction check(String path, int version) {
+        ops.add(Op.check(path, version));
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZooKeeperTransaction setData(String path, byte[] data, int version) {
+        ops.add(Op.setData(path, data, version));
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<OpResult> commit() throws ResourceException {
+        return connection.multi(ops);
+    }
+
+}
@@ -1,17 +1,41 @@
 package cloud.connectors.zookeeper.ra;
 
+import cloud.connectors.zookeeper.api.AsyncZooKeeperConnection;
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
 import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.OnZooKeeperEvents;
 import cloud.connectors.zookeeper.api.ZooKeeperConnection;
 import cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory;
 import cloud.connectors.zookeeper.api.ZooKeeperListener;
+import cloud.connectors.zookeeper.api.ZooKeeperResult;
+import cloud.connectors.zookeeper.api.ZooKeeperTransaction;
 import cloud.connectors.zookeeper.ra.inbound.ZooKeeperActivationSpec;
+import cloud.connectors.zookeeper.ra.inbound.ZooKeeperConsumerGroupMXBean;
+import cloud.connectors.zookeeper.ra.inbound.ZooKeeperEndpointPoolMXBean;
+import cloud.connectors.zookeeper.ra.inbound.ZooKeeperListenerInvoker;
 import cloud.connectors.zookeeper.ra.inbound.ZooKeeperResourceAdapter;
+import cloud.connectors.zookeeper.ra.inbound.ZooKeeperWatchSessionMXBean;
 import cloud.connectors.zookeeper.ra.inbound.ZooKeeperWatcher;
+import cloud.connectors.zookeeper.ra.inbound.ZooKeeperWork;
+import cloud.connectors.zookeeper.ra.outbound.AsyncZooKeeperConnectionImpl;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperAsyncOperation;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperCache;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperCacheMXBean;
 import cloud.connectors.zookeeper.ra.outbound.ZooKeeperConnectionFactoryImpl;
 import cloud.connectors.zookeeper.ra.outbound.ZooKeeperConnectionImpl;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperLocalTransaction;
 import cloud.connectors.zookeeper.ra.outbound.ZooKeeperManagedConnection;
 import cloud.connectors.zookeeper.ra.outbound.ZooKeeperManagedConnectionFactory;
 import cloud.connectors.zookeeper.ra.outbound.ZooKeeperManagedConnectionMetadata;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperOperation;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperReadCoalescer;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperReadCoalescerMXBean;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperSession;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperSessionStripe;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperSessionStripeMXBean;
+import cloud.connectors.zookeeper.ra.outbound.ZooKeeperTransactionImpl;
+import org.apache.zookeeper.client.FourLetterWordMain;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
@@ -24,7 +48,15 @@ import org.junit.Rule;
 import org.junit.rules.TestName;
 import org.junit.runner.RunWith;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
 
 @RunWith(Arquillian.class)
 public abstract class AbstractZooKeeperTest {
@@ -60,19 +92,55 @@ public abstract class AbstractZooKeeperTest {
         JavaArchive jcaApi = ShrinkWrap.create(JavaArchive.class, "zookeeper-jca-api.jar")
                                        .addClass(ZooKeeperListener.class)
                                        .addClass(OnZooKeeperEvent.class)
+                                       .addClass(OnZooKeeperEvents.class)
+                                       .addClass(EnrichedZooKeeperEvent.class)
+                                       .addClass(ZooKeeperChildrenEvent.class)
                                        .addClass(ZooKeeperConnection.class)
+                                       .addClass(AsyncZooKeeperConnection.class)
+                                       .addClass(ZooKeeperTransaction.class)
+                                       .addClass(ZooKeeperResult.class)
                                        .addClass(ZooKeeperConnectionFactory.class);
         // JCA implementation
         JavaArchive jcaRa = ShrinkWrap.create(JavaArchive.class, "zookeeper-jca-ra.jar")
                                       .addClass(ZooKeeperResourceAdapter.class)
                                       .addClass(ZooKeeperActivationSpec.class)
                                       .addClass(ZooKeeperWatcher.class)
-                                      .addClass(ZooKeeperWatcher.class)
+                                      .addClass(ZooKeeperWork.class)
+                                      .addClass(ZooKeeperListenerInvoker.class)
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperEndpointPool")
+                                      .addClass(ZooKeeperEndpointPoolMXBean.class)
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperEventDispatcher")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperDispatchTable")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperEventFilter")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperEventEnricher")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperPathMatcher")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperWatchSession")
+                                      .addClass(ZooKeeperWatchSessionMXBean.class)
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperWatchIndex")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperTreeWalker")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperBootstrap")
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperConsumerGroup")
+                                      .addClass(ZooKeeperConsumerGroupMXBean.class)
+                                      .addClass("cloud.connectors.zookeeper.ra.inbound.ZooKeeperEventJournal")
                                       .addClass(ZooKeeperConnectionImpl.class)
                                       .addClass(ZooKeeperConnectionFactoryImpl.class)
                                       .addClass(ZooKeeperManagedConnection.class)
                                       .addClass(ZooKeeperManagedConnectionFactory.class)
-                                      .addClass(ZooKeeperManagedConnectionMetadata.class);
+                                      .addClass(ZooKeeperManagedConnectionMetadata.class)
+                                      .addClass(ZooKeeperSession.class)
+                                      .addClass(ZooKeeperSessionStripe.class)
+                                      .addClass(ZooKeeperSessionStripeMXBean.class)
+                                      .addClass(ZooKeeperOperation.class)
+                                      .addClass(ZooKeeperAsyncOperation.class)
+                                      .addClass(AsyncZooKeeperConnectionImpl.class)
+                                      .addClass(ZooKeeperTransactionImpl.class)
+                                      .addClass(ZooKeeperLocalTransaction.class)
+                                      .addClass(ZooKeeperCache.class)
+                                      .addClass(ZooKeeperCacheMXBean.class)
+                                      .addClass(ZooKeeperReadCoalescer.class)
+                                      .addClass(ZooKeeperReadCoalescerMXBean.class)
+                                      .addClass("cloud.connectors.zookeeper.ra.outbound.ZooKeeperSessionProvider")
+                                      .addClass(ManagementSupport.class);
         // Resource adapter archive
         return ShrinkWrap.create(ResourceAdapterArchive.class, "zookeeper-rar.rar")
                          .addAsLibrary(jcaApi)
@@ -80,4 +148,32 @@ public abstract class AbstractZooKeeperTest {
                          .addAsLibraries(libraries);
     }
 
+    /**
+     * Waits until the watches of the given paths are registered, requires the
+     * {@code wchp} command to be whitelisted.
+     */
+    protected static void awaitWatches(String... paths) throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000L;
+        while (true) {
+            String watches = FourLetterWordMain.send4LetterWord("localhost", port, "wchp");
+            if (Arrays.asList(watches.split("\\s+")).containsAll(Arrays.asList(paths))) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Watches are not registered: " + watches);
+            }
+            Thread.sleep(100L);
+        }
+    }
+
+    /**
+     * Returns the name of the single endpoint pool watching the given base path.
+     */
+    protected static ObjectName endpointPool(String basePath) throws JMException {
+        Set<ObjectName> names = ManagementFactory.getPlatformMBeanServer().queryNames(
+                new ObjectName("cloud.connectors.zookeeper:type=ZooKeeperEndpointPool,basePath=" + basePath + ",*"), null);
+        assertThat(names.size(), is(1));
+        return names.iterator().next();
+    }
+
 }
@@ -0,0 +1,31 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.OnZooKeeperEvents;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+import org.apache.zookeeper.WatchedEvent;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+import java.util.List;
+
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
+    @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/batch"),
+    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "endpointPoolSize", propertyValue = "1"),
+    @ActivationConfigProperty(propertyName = "maxBatchSize", propertyValue = "5"),
+    @ActivationConfigProperty(propertyName = "maxBatchDelayMillis", propertyValue = "1000")
+})
+@SuppressWarnings("unused")
+public class BatchMDB implements ZooKeeperListener {
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @OnZooKeeperEvents
+    public void onEvents(List<WatchedEvent> events) throws Exception {
+        eventHandler.setEvents(events);
+    }
+
+}
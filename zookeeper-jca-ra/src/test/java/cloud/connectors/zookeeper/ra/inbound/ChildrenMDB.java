@@ -0,0 +1,28 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
+    @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/children"),
+    @ActivationConfigProperty(propertyName = "strictOrder", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "childrenDiff", propertyValue = "true")
+})
+@SuppressWarnings("unused")
+public class ChildrenMDB implements ZooKeeperListener {
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @OnZooKeeperEvent
+    public void onEvent(ZooKeeperChildrenEvent event) throws Exception {
+        eventHandler.setEvent(event);
+    }
+
+}
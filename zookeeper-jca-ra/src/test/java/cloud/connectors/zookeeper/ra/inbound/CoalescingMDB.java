@@ -0,0 +1,29 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+import org.apache.zookeeper.WatchedEvent;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
+    @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/coalesce"),
+    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "endpointPoolSize", propertyValue = "1"),
+    @ActivationConfigProperty(propertyName = "coalesceEvents", propertyValue = "true")
+})
+@SuppressWarnings("unused")
+public class CoalescingMDB implements ZooKeeperListener {
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @OnZooKeeperEvent
+    public void onEvent(WatchedEvent event) throws Exception {
+        eventHandler.setEvent(event);
+    }
+
+}
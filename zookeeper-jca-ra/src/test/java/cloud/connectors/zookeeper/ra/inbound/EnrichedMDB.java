@@ -0,0 +1,29 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
+    @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/enriched"),
+    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "strictOrder", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "fetchData", propertyValue = "true")
+})
+@SuppressWarnings("unused")
+public class EnrichedMDB implements ZooKeeperListener {
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @OnZooKeeperEvent
+    public void onEvent(EnrichedZooKeeperEvent event) throws Exception {
+        eventHandler.setEvent(event);
+    }
+
+}
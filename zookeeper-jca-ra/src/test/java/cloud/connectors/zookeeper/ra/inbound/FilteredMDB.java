@@ -0,0 +1,32 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+import org.apache.zookeeper.WatchedEvent;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
+    @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/filtered"),
+    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "endpointPoolSize", propertyValue = "1"),
+    @ActivationConfigProperty(propertyName = "includePaths", propertyValue = "/filtered/included/**"),
+    @ActivationConfigProperty(propertyName = "excludePaths", propertyValue = "/filtered/included/excluded*"),
+    @ActivationConfigProperty(propertyName = "maxDepth", propertyValue = "2"),
+    @ActivationConfigProperty(propertyName = "eventTypes", propertyValue = "NodeCreated")
+})
+@SuppressWarnings("unused")
+public class FilteredMDB implements ZooKeeperListener {
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @OnZooKeeperEvent
+    public void onEvent(WatchedEvent event) throws Exception {
+        eventHandler.setEvent(event);
+    }
+
+}
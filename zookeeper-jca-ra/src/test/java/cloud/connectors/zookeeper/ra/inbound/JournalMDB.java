@@ -0,0 +1,37 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
+    @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/journal"),
+    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "strictOrder", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "journalDirectory", propertyValue = "target/journal"),
+    @ActivationConfigProperty(propertyName = "fetchData", propertyValue = "true")
+})
+@SuppressWarnings("unused")
+public class JournalMDB implements ZooKeeperListener {
+
+    static final String FAILED_PROPERTY = "journal.failed";
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @OnZooKeeperEvent
+    public void onEvent(EnrichedZooKeeperEvent event) throws InterruptedException {
+        // the first delivery fails, so the event is left to replay
+        if (System.getProperty(FAILED_PROPERTY) == null) {
+            System.setProperty(FAILED_PROPERTY, event.getPath());
+            throw new IllegalStateException("Delivery of " + event + " failed");
+        }
+        eventHandler.setEvent(event);
+    }
+
+}
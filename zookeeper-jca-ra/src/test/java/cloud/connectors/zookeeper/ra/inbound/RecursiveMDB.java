@@ -11,7 +11,8 @@ import javax.ejb.MessageDriven;
 @MessageDriven(activationConfig = {
     @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
     @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/recursive"),
-    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true")
+    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "endpointPoolSize", propertyValue = "2")
 })
 @SuppressWarnings("unused")
 public class RecursiveMDB implements ZooKeeperListener {
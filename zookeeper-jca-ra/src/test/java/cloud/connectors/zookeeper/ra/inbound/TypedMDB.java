@@ -0,0 +1,39 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "connectString", propertyValue = "localhost:2182"),
+    @ActivationConfigProperty(propertyName = "basePath", propertyValue = "/typed"),
+    @ActivationConfigProperty(propertyName = "recursive", propertyValue = "true"),
+    @ActivationConfigProperty(propertyName = "strictOrder", propertyValue = "true")
+})
+@SuppressWarnings("unused")
+public class TypedMDB implements ZooKeeperListener {
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @OnZooKeeperEvent(types = EventType.NodeCreated, paths = "/typed/created/*")
+    public void onCreated(WatchedEvent event) throws Exception {
+        eventHandler.setEvent(event);
+    }
+
+    @OnZooKeeperEvent(paths = "/typed/created/*")
+    public void onChanged(WatchedEvent event) throws Exception {
+        eventHandler.setEvent(event);
+    }
+
+    @OnZooKeeperEvent(types = EventType.NodeDeleted)
+    public void onDeleted(WatchedEvent event) throws Exception {
+        eventHandler.setEvent(event);
+    }
+
+}
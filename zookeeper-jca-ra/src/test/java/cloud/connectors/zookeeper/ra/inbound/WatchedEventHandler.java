@@ -1,28 +1,60 @@
 package cloud.connectors.zookeeper.ra.inbound;
 
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
 import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
 
 import javax.ejb.ConcurrencyManagement;
 import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.SynchronousQueue;
+import java.util.stream.Collectors;
 
 @Singleton
 @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
 @ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class WatchedEventHandler {
 
+    // the watches may be added before the test creates their base nodes and the children of /children
+    private static final List<String> BASE_PATHS = Arrays.asList("/recursive", "/nonrecursive", "/batch", "/coalesce", "/partitioned", "/overflow", "/spill", "/filtered", "/enriched", "/bootstrap", "/group", "/journal");
+
     private final BlockingQueue<WatchedEvent> watchedEvents = new SynchronousQueue<>();
 
+    private final BlockingQueue<List<WatchedEvent>> watchedBatches = new SynchronousQueue<>();
+
     public void setEvent(WatchedEvent event) throws InterruptedException {
-        watchedEvents.put(event);
+        if (!isSetUp(event)) {
+            watchedEvents.put(event);
+        }
     }
 
     public WatchedEvent getEvent() throws InterruptedException {
         return watchedEvents.take();
     }
 
+    public void setEvents(List<WatchedEvent> events) throws InterruptedException {
+        List<WatchedEvent> filtered = events.stream()
+                .filter(event -> !isSetUp(event))
+                .collect(Collectors.toList());
+        if (!filtered.isEmpty()) {
+            watchedBatches.put(filtered);
+        }
+    }
+
+    public List<WatchedEvent> getEvents() throws InterruptedException {
+        return watchedBatches.take();
+    }
+
+    private static boolean isSetUp(WatchedEvent event) {
+        if (event instanceof ZooKeeperChildrenEvent) {
+            return ((ZooKeeperChildrenEvent) event).getChildrenAdded().contains("stale");
+        }
+        return event.getType() == Watcher.Event.EventType.NodeCreated && BASE_PATHS.contains(event.getPath());
+    }
+
 }
@@ -0,0 +1,113 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.ra.AbstractZooKeeperTest;
+import cloud.connectors.zookeeper.ra.ZooKeeperTestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.jboss.arquillian.container.test.api.Deployer;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.OperateOnDeployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ejb.EJB;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+@SuppressWarnings("ArquillianTooManyDeployment")
+public class ZooKeeperBootstrapTest extends AbstractZooKeeperTest {
+
+    // deployed once the nodes to bootstrap exist
+    @Deployment(name = "test", order = 2, managed = false)
+    public static JavaArchive createDeployment() {
+        return ShrinkWrap.create(JavaArchive.class)
+                         .addClass(WatchedEventHandler.class)
+                         .addClass(BootstrapMDB.class);
+    }
+
+    @BeforeClass
+    @RunAsClient
+    public static void setUpClass() throws Exception {
+        System.setProperty("zookeeper.4lw.commands.whitelist", "wchp");
+        zooKeeperServer = new ZooKeeperTestingServer(port);
+        zooKeeperServer.start();
+
+        try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
+            zooKeeper.create("/bootstrap", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/bootstrap/a", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/bootstrap/a/b", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/bootstrap/c", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+    }
+
+    @AfterClass
+    @RunAsClient
+    public static void tearDownClass() throws IOException {
+        zooKeeperServer.stop();
+    }
+
+    @ArquillianResource
+    private Deployer deployer;
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @Test
+    @InSequence(1)
+    @RunAsClient
+    public void deploy() throws Exception {
+        deployer.deploy("test");
+        awaitWatches("/bootstrap");
+        // the walk reports the base node and its three descendants
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = endpointPool("/bootstrap");
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while ((Long) server.getAttribute(name, "ReceivedCount") < 4L) {
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(50L);
+        }
+
+        try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
+            zooKeeper.create("/bootstrap/d", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+    }
+
+    @Test
+    @InSequence(2)
+    @OperateOnDeployment("test")
+    public void testBootstrap() throws InterruptedException {
+        // the subtree is walked breadth first, the created node follows without duplicates
+        List<String> expected = Arrays.asList("NodeCreated /bootstrap/a",
+                                              "NodeCreated /bootstrap/c",
+                                              "NodeCreated /bootstrap/a/b",
+                                              "NodeCreated /bootstrap/d");
+        for (String expectedEvent : expected) {
+            WatchedEvent event = eventHandler.getEvent();
+            assertThat(event.getType() + " " + event.getPath(), is(expectedEvent));
+        }
+    }
+
+    @Test
+    @InSequence(3)
+    @RunAsClient
+    public void undeploy() {
+        deployer.undeploy("test");
+    }
+
+}
@@ -0,0 +1,77 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.OnZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperListener;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ZooKeeperDispatchTableTest {
+
+    @Test
+    public void testEventClassOrder() {
+        // the plain listener sorts first by name, but handles the plain events only
+        ZooKeeperDispatchTable table = ZooKeeperDispatchTable.of(MixedListener.class);
+        WatchedEvent changed = event(Watcher.Event.EventType.NodeDataChanged);
+        WatchedEvent children = event(Watcher.Event.EventType.NodeChildrenChanged);
+
+        assertThat(table.lookup(changed).getMethod().getName(), is("onAny"));
+        assertThat(table.lookup(new EnrichedZooKeeperEvent(changed, null, new Stat())).getMethod().getName(),
+                   is("onEnriched"));
+        assertThat(table.lookup(new ZooKeeperChildrenEvent(children, Collections.<String>emptyList(),
+                                                           Collections.<String>emptyList())).getMethod().getName(),
+                   is("onChildren"));
+    }
+
+    @Test
+    public void testRankOrder() {
+        // a typed plain listener is still tried before an untyped enriched one
+        ZooKeeperDispatchTable table = ZooKeeperDispatchTable.of(TypedListener.class);
+        WatchedEvent created = event(Watcher.Event.EventType.NodeCreated);
+        WatchedEvent deleted = event(Watcher.Event.EventType.NodeDeleted);
+
+        assertThat(table.lookup(new EnrichedZooKeeperEvent(created, null, new Stat())).getMethod().getName(),
+                   is("onCreated"));
+        assertThat(table.lookup(new EnrichedZooKeeperEvent(deleted, null, new Stat())).getMethod().getName(),
+                   is("onEnriched"));
+    }
+
+    private static WatchedEvent event(Watcher.Event.EventType type) {
+        return new WatchedEvent(type, Watcher.Event.KeeperState.SyncConnected, "/node");
+    }
+
+    public static class MixedListener implements ZooKeeperListener {
+
+        @OnZooKeeperEvent
+        public void onAny(WatchedEvent event) {
+        }
+
+        @OnZooKeeperEvent
+        public void onEnriched(EnrichedZooKeeperEvent event) {
+        }
+
+        @OnZooKeeperEvent
+        public void onChildren(ZooKeeperChildrenEvent event) {
+        }
+    }
+
+    public static class TypedListener implements ZooKeeperListener {
+
+        @OnZooKeeperEvent(types = Watcher.Event.EventType.NodeCreated)
+        public void onCreated(WatchedEvent event) {
+        }
+
+        @OnZooKeeperEvent
+        public void onEnriched(EnrichedZooKeeperEvent event) {
+        }
+    }
+
+}
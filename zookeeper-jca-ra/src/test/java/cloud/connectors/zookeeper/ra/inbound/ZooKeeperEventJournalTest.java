@@ -0,0 +1,205 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ZooKeeperEventJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplay() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        WatchedEvent delivered = event("/delivered");
+        journal.append(delivered);
+        journal.append(event("/pending"));
+        journal.acknowledge(delivered);
+        journal.close();
+
+        assertThat(replay(directory), is(Arrays.asList("/pending")));
+        // the replayed segments are deleted
+        assertThat(replay(directory), is(Arrays.<String>asList()));
+    }
+
+    @Test
+    public void testRoll() throws IOException {
+        // the events take several segments, while the acknowledged ones are deleted
+        // and the pending ones are compacted into the active segment
+        Path directory = folder.getRoot().toPath();
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        List<String> pending = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            WatchedEvent event = event("/node" + i);
+            journal.append(event);
+            if (i % 100 == 0) {
+                pending.add(event.getPath());
+            } else {
+                journal.acknowledge(event);
+            }
+        }
+        journal.close();
+
+        assertThat(segments(directory).size(), is(1));
+        assertThat(replay(directory), is(pending));
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        // the first segment is kept while full of the pending records, and once most
+        // of them are acknowledged, they are not compacted past the next full segment
+        Path directory = folder.getRoot().toPath();
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        List<WatchedEvent> events = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            events.add(event("/node" + i));
+        }
+        for (int i = 0; i < 130; i++) {
+            journal.append(events.get(i));
+        }
+        for (int i = 20; i < 130; i++) {
+            journal.acknowledge(events.get(i));
+        }
+        for (int i = 130; i < 300; i++) {
+            journal.append(events.get(i));
+        }
+        journal.close();
+
+        List<String> pending = new ArrayList<>();
+        for (WatchedEvent event : events.subList(0, 20)) {
+            pending.add(event.getPath());
+        }
+        for (WatchedEvent event : events.subList(130, 300)) {
+            pending.add(event.getPath());
+        }
+        assertThat(segments(directory).size() > 1, is(true));
+        assertThat(replay(directory), is(pending));
+    }
+
+    @Test
+    public void testSpillCompaction() throws IOException {
+        // the spilled records are moved by the compaction and read back in order
+        Path directory = folder.getRoot().toPath();
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        ZooKeeperEventJournal.Spill spill = journal.newSpill();
+        List<String> read = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            WatchedEvent event = event("/node" + i);
+            journal.append(event);
+            assertThat(spill.add(event), is(true));
+            if (i % 2 == 0) {
+                WatchedEvent spilled = spill.poll();
+                read.add(spilled.getPath());
+                journal.acknowledge(spilled);
+            }
+        }
+        WatchedEvent spilled;
+        while ((spilled = spill.poll()) != null) {
+            read.add(spilled.getPath());
+            journal.acknowledge(spilled);
+        }
+        journal.close();
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(read.get(i), is("/node" + i));
+        }
+        assertThat(segments(directory).size(), is(1));
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        // the length is written last, so the record with no length ends the segment
+        Path directory = folder.getRoot().toPath();
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        journal.append(event("/a"));
+        journal.append(event("/b"));
+        journal.append(event("/c"));
+        journal.close();
+
+        // a record of the two byte path takes 4 + 21 + 2 bytes
+        writeInt(segments(directory).get(0), 2 * 27, 0);
+        assertThat(replay(directory), is(Arrays.asList("/a", "/b")));
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        // the record exceeding the segment is not read
+        Path directory = folder.getRoot().toPath();
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        journal.append(event("/a"));
+        journal.append(event("/b"));
+        journal.close();
+
+        writeInt(segments(directory).get(0), 27, SEGMENT_SIZE);
+        assertThat(replay(directory), is(Arrays.asList("/a")));
+    }
+
+    @Test
+    public void testLock() throws IOException {
+        // a journal is never shared by two activations
+        Path directory = folder.getRoot().toPath();
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        try {
+            ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+            fail("The journal is opened twice");
+        } catch (IOException e) {
+            // expected
+        }
+        ZooKeeperEventJournal.open(directory, "other", SEGMENT_SIZE).close();
+        journal.close();
+        ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE).close();
+    }
+
+    private static WatchedEvent event(String path) {
+        return new WatchedEvent(Watcher.Event.EventType.NodeCreated, Watcher.Event.KeeperState.SyncConnected, path);
+    }
+
+    private static List<String> replay(Path directory) throws IOException {
+        ZooKeeperEventJournal journal = ZooKeeperEventJournal.open(directory, "test", SEGMENT_SIZE);
+        List<String> paths = new ArrayList<>();
+        journal.replay(event -> paths.add(event.getPath()));
+        journal.close();
+        return paths;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "test-*.journal")) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static void writeInt(Path file, int position, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            buffer.putInt(0, value);
+            channel.write(buffer, position);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.ra.AbstractZooKeeperTest;
+import cloud.connectors.zookeeper.ra.ZooKeeperTestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.jboss.arquillian.container.test.api.Deployer;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.OperateOnDeployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.junit.InSequence;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ejb.EJB;
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+@SuppressWarnings("ArquillianTooManyDeployment")
+public class ZooKeeperJournalTest extends AbstractZooKeeperTest {
+
+    // redeployed once the delivery has failed
+    @Deployment(name = "test", order = 2, managed = false)
+    public static JavaArchive createDeployment() {
+        return ShrinkWrap.create(JavaArchive.class)
+                         .addClass(WatchedEventHandler.class)
+                         .addClass(JournalMDB.class);
+    }
+
+    @BeforeClass
+    @RunAsClient
+    public static void setUpClass() throws Exception {
+        System.setProperty("zookeeper.4lw.commands.whitelist", "wchp");
+        System.clearProperty(JournalMDB.FAILED_PROPERTY);
+        File[] segments = new File("target/journal").listFiles();
+        if (segments != null) {
+            for (File segment : segments) {
+                segment.delete();
+            }
+        }
+        zooKeeperServer = new ZooKeeperTestingServer(port);
+        zooKeeperServer.start();
+
+        try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
+            zooKeeper.create("/journal", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+    }
+
+    @AfterClass
+    @RunAsClient
+    public static void tearDownClass() throws IOException {
+        zooKeeperServer.stop();
+    }
+
+    @ArquillianResource
+    private Deployer deployer;
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @Test
+    @InSequence(1)
+    @RunAsClient
+    public void redeploy() throws Exception {
+        deployer.deploy("test");
+        awaitWatches("/journal");
+
+        try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
+            zooKeeper.create("/journal/node", "data".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (System.getProperty(JournalMDB.FAILED_PROPERTY) == null) {
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(100L);
+        }
+
+        deployer.undeploy("test");
+        deployer.deploy("test");
+    }
+
+    @Test
+    @InSequence(2)
+    @OperateOnDeployment("test")
+    public void testReplay() throws InterruptedException {
+        WatchedEvent event = eventHandler.getEvent();
+        assertThat(event.getType(), is(Watcher.Event.EventType.NodeCreated));
+        assertThat(event.getPath(), is("/journal/node"));
+        // the replayed event is enriched again
+        assertThat(event, instanceOf(EnrichedZooKeeperEvent.class));
+        assertThat(new String(((EnrichedZooKeeperEvent) event).getData()), is("data"));
+    }
+
+    @Test
+    @InSequence(3)
+    @RunAsClient
+    public void undeploy() {
+        deployer.undeploy("test");
+    }
+
+}
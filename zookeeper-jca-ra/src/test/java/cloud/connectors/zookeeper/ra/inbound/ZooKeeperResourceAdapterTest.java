@@ -1,11 +1,16 @@
 package cloud.connectors.zookeeper.ra.inbound;
 
+import cloud.connectors.zookeeper.api.EnrichedZooKeeperEvent;
+import cloud.connectors.zookeeper.api.ZooKeeperChildrenEvent;
 import cloud.connectors.zookeeper.ra.AbstractZooKeeperTest;
 import cloud.connectors.zookeeper.ra.ZooKeeperTestingServer;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.client.FourLetterWordMain;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.container.test.api.OperateOnDeployment;
 import org.jboss.arquillian.container.test.api.RunAsClient;
@@ -17,9 +22,23 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.ejb.EJB;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @SuppressWarnings("ArquillianTooManyDeployment")
@@ -30,18 +49,42 @@ public class ZooKeeperResourceAdapterTest extends AbstractZooKeeperTest {
         return ShrinkWrap.create(JavaArchive.class)
                          .addClass(WatchedEventHandler.class)
                          .addClass(RecursiveMDB.class)
-                         .addClass(NonRecursiveMDB.class);
+                         .addClass(NonRecursiveMDB.class)
+                         .addClass(BatchMDB.class)
+                         .addClass(CoalescingMDB.class)
+                         .addClass(PartitionedMDB.class)
+                         .addClass(OverflowMDB.class)
+                         .addClass(SpillMDB.class)
+                         .addClass(FilteredMDB.class)
+                         .addClass(NestedMDB.class)
+                         .addClass(TypedMDB.class)
+                         .addClass(EnrichedMDB.class)
+                         .addClass(ChildrenMDB.class)
+                         .addClass(GroupMDB.class)
+                         .addClass(GroupPeerMDB.class);
     }
 
     @BeforeClass
     @RunAsClient
     public static void setUpClass() throws Exception {
+        System.setProperty("zookeeper.4lw.commands.whitelist", "wchp");
         zooKeeperServer = new ZooKeeperTestingServer(port);
         zooKeeperServer.start();
 
         try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)){
             zooKeeper.create("/recursive", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
             zooKeeper.create("/nonrecursive", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/batch", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/coalesce", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/partitioned", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/overflow", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/spill", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/filtered", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/typed", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/enriched", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/children", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/children/stale", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/group", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
         }
     }
 
@@ -60,6 +103,8 @@ public class ZooKeeperResourceAdapterTest extends AbstractZooKeeperTest {
     @Before
     @RunAsClient
     public void setUp() throws Exception {
+        // the endpoints are activated asynchronously
+        awaitWatches("/recursive", "/nonrecursive", "/batch", "/coalesce", "/partitioned", "/overflow", "/spill", "/filtered", "/typed", "/enriched", "/children", "/group");
         try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
             switch (testName.getMethodName()) {
                 case "testNodeCreatedRecursive":
@@ -71,6 +116,89 @@ public class ZooKeeperResourceAdapterTest extends AbstractZooKeeperTest {
                 case "testNodeDeletedRecursive":
                     zooKeeper.delete("/recursive/node", -1);
                     break;
+                case "testNodeDataChangedRecursiveBurst":
+                    for (int i = 0; i < 10; i++) {
+                        zooKeeper.setData("/recursive", ("value" + i).getBytes(), -1);
+                    }
+                    break;
+                case "testBatch":
+                    for (int i = 0; i < 5; i++) {
+                        zooKeeper.create("/batch/node" + i, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    }
+                    break;
+                case "testCoalesce":
+                    zooKeeper.create("/coalesce/node", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    for (int i = 0; i < 5; i++) {
+                        zooKeeper.setData("/coalesce/node", ("value" + i).getBytes(), -1);
+                    }
+                    zooKeeper.create("/coalesce/transient", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.delete("/coalesce/transient", -1);
+                    zooKeeper.create("/coalesce/last", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    break;
+                case "testPartitionedOrder":
+                    for (String node : PARTITIONED_NODES) {
+                        zooKeeper.create(node, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    }
+                    for (int i = 0; i < 3; i++) {
+                        for (String node : PARTITIONED_NODES) {
+                            zooKeeper.setData(node, ("value" + i).getBytes(), -1);
+                        }
+                    }
+                    for (String node : PARTITIONED_NODES) {
+                        zooKeeper.delete(node, -1);
+                    }
+                    break;
+                case "testOverflow":
+                    ManagementFactory.getPlatformMBeanServer().invoke(endpointPool("/overflow"), "resetStatistics", null, null);
+                    for (int i = 0; i < 5; i++) {
+                        zooKeeper.create("/overflow/node" + i, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    }
+                    break;
+                case "testSpill":
+                    ManagementFactory.getPlatformMBeanServer().invoke(endpointPool("/spill"), "resetStatistics", null, null);
+                    for (int i = 0; i < 5; i++) {
+                        zooKeeper.create("/spill/node" + i, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    }
+                    break;
+                case "testFilter":
+                    zooKeeper.create("/filtered/other", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.create("/filtered/included", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.setData("/filtered/included", "value".getBytes(), -1);
+                    zooKeeper.create("/filtered/included/excluded0", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.create("/filtered/included/node", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.create("/filtered/included/node/deep", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.delete("/filtered/included/node/deep", -1);
+                    zooKeeper.create("/filtered/included/last", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    break;
+                case "testTypedListeners":
+                    ManagementFactory.getPlatformMBeanServer().invoke(endpointPool("/typed"), "resetStatistics", null, null);
+                    zooKeeper.create("/typed/other", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.create("/typed/created", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.create("/typed/created/node", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.setData("/typed/created/node", "value".getBytes(), -1);
+                    zooKeeper.delete("/typed/created/node", -1);
+                    zooKeeper.delete("/typed/other", -1);
+                    break;
+                case "testEnrichedEvents":
+                    zooKeeper.create("/enriched/node", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    zooKeeper.setData("/enriched/node", "value1".getBytes(), -1);
+                    break;
+                case "testChildrenDiff":
+                    awaitChildrenRead(zooKeeper);
+                    zooKeeper.multi(Arrays.asList(
+                            Op.delete("/children/stale", -1),
+                            Op.create("/children/b", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT),
+                            Op.create("/children/a", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT)));
+                    break;
+                case "testConsumerGroup":
+                    awaitGroupRead("test", 2);
+                    for (int i = 0; i < 10; i++) {
+                        zooKeeper.create("/group/node" + i, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    }
+                    break;
+                case "testSharedSession":
+                    zooKeeper.create("/recursive/nested", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    break;
                 case "testNodeCreatedNonRecursive":
                     zooKeeper.create("/nonrecursive/node", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
                     break;
@@ -86,6 +214,57 @@ public class ZooKeeperResourceAdapterTest extends AbstractZooKeeperTest {
         }
     }
 
+    /**
+     * Creates the probe children of {@code /children} until the change of one
+     * is received, so the watcher has read the children. The events are handed
+     * over in order, so no earlier probe is left behind.
+     */
+    private static void awaitChildrenRead(ZooKeeper zooKeeper) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = endpointPool("/children");
+        long deadline = System.currentTimeMillis() + 10_000L;
+        for (int i = 0; ; i++) {
+            long received = (Long) server.getAttribute(name, "ReceivedCount");
+            zooKeeper.create("/children/probe" + i, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            long probeDeadline = System.currentTimeMillis() + 1_000L;
+            while (System.currentTimeMillis() < probeDeadline) {
+                if ((Long) server.getAttribute(name, "ReceivedCount") > received) {
+                    return;
+                }
+                Thread.sleep(50L);
+            }
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+        }
+    }
+
+    /**
+     * Waits until each member of the given consumer group has read the group
+     * of the given number of members, so the events are assigned to a single
+     * member.
+     */
+    private static void awaitGroupRead(String group, int memberCount) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName("cloud.connectors.zookeeper:type=ZooKeeperConsumerGroup,group=" + group + ",*");
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (true) {
+            Set<ObjectName> names = server.queryNames(pattern, null);
+            int read = 0;
+            for (ObjectName name : names) {
+                if ((Integer) server.getAttribute(name, "MemberCount") == memberCount) {
+                    read++;
+                }
+            }
+            if (names.size() == memberCount && read == memberCount) {
+                return;
+            }
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(50L);
+        }
+    }
+
+    private static final List<String> PARTITIONED_NODES =
+            Arrays.asList("/partitioned/node0", "/partitioned/node1", "/partitioned/node2", "/partitioned/node3");
+
     @EJB WatchedEventHandler eventHandler;
 
     @Test
@@ -106,6 +285,222 @@ public class ZooKeeperResourceAdapterTest extends AbstractZooKeeperTest {
         assertThat(eventHandler.getEvent().getType(), is(Watcher.Event.EventType.NodeDeleted));
     }
 
+    @Test
+    @OperateOnDeployment("test")
+    public void testNodeDataChangedRecursiveBurst() throws Exception {
+        // the events are delivered by the reused endpoints of the pool
+        for (int i = 0; i < 10; i++) {
+            assertThat(eventHandler.getEvent().getType(), is(Watcher.Event.EventType.NodeDataChanged));
+        }
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testBatch() throws Exception {
+        List<WatchedEvent> events = new ArrayList<>();
+        List<WatchedEvent> batch = eventHandler.getEvents();
+        // the events created within the batch delay are delivered together
+        assertThat(batch.size(), greaterThan(1));
+        events.addAll(batch);
+        while (events.size() < 5) {
+            events.addAll(eventHandler.getEvents());
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThat(events.get(i).getType(), is(Watcher.Event.EventType.NodeCreated));
+            assertThat(events.get(i).getPath(), is("/batch/node" + i));
+        }
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testCoalesce() throws Exception {
+        // the single worker is blocked delivering the first event until it is taken,
+        // so the later data changes and the transient node are collapsed meanwhile
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = endpointPool("/coalesce");
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while ((Long) server.getAttribute(name, "CollapsedCount") < 6) {
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(50L);
+        }
+
+        WatchedEvent event = eventHandler.getEvent();
+        assertThat(event.getType(), is(Watcher.Event.EventType.NodeCreated));
+        assertThat(event.getPath(), is("/coalesce/node"));
+        event = eventHandler.getEvent();
+        assertThat(event.getType(), is(Watcher.Event.EventType.NodeDataChanged));
+        assertThat(event.getPath(), is("/coalesce/node"));
+        event = eventHandler.getEvent();
+        assertThat(event.getType(), is(Watcher.Event.EventType.NodeCreated));
+        assertThat(event.getPath(), is("/coalesce/last"));
+        assertThat(server.getAttribute(name, "CollapsedCount"), is(6L));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testPartitionedOrder() throws Exception {
+        // the lanes are delivered concurrently, but the events of a node are delivered in order
+        Map<String, List<Watcher.Event.EventType>> types = new HashMap<>();
+        for (int i = 0; i < PARTITIONED_NODES.size() * 5; i++) {
+            WatchedEvent event = eventHandler.getEvent();
+            types.computeIfAbsent(event.getPath(), path -> new ArrayList<>()).add(event.getType());
+        }
+        assertThat(types.keySet(), is(new HashSet<>(PARTITIONED_NODES)));
+        for (List<Watcher.Event.EventType> nodeTypes : types.values()) {
+            assertThat(nodeTypes, is(Arrays.asList(Watcher.Event.EventType.NodeCreated,
+                                                   Watcher.Event.EventType.NodeDataChanged,
+                                                   Watcher.Event.EventType.NodeDataChanged,
+                                                   Watcher.Event.EventType.NodeDataChanged,
+                                                   Watcher.Event.EventType.NodeDeleted)));
+        }
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testOverflow() throws Exception {
+        // the single worker is blocked delivering the first event until it is taken
+        // and the queue holds one event, so the rest of the events are dropped
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = endpointPool("/overflow");
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while ((Long) server.getAttribute(name, "ReceivedCount") < 5) {
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(50L);
+        }
+        long dropped = (Long) server.getAttribute(name, "DroppedCount");
+        assertThat(dropped, greaterThanOrEqualTo(3L));
+
+        String previous = "";
+        for (int i = 0; i < 5 - dropped; i++) {
+            WatchedEvent event = eventHandler.getEvent();
+            assertThat(event.getType(), is(Watcher.Event.EventType.NodeCreated));
+            assertThat(event.getPath(), greaterThan(previous));
+            previous = event.getPath();
+        }
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testSpill() throws Exception {
+        // the single worker is blocked delivering the first event until it is taken
+        // and the queue holds one event, so the rest of the events are spilled
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = endpointPool("/spill");
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while ((Long) server.getAttribute(name, "ReceivedCount") < 5) {
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(50L);
+        }
+        assertThat((Long) server.getAttribute(name, "SpilledCount"), greaterThanOrEqualTo(3L));
+
+        // all the events are delivered in order
+        for (int i = 0; i < 5; i++) {
+            WatchedEvent event = eventHandler.getEvent();
+            assertThat(event.getType() + " " + event.getPath(), is("NodeCreated /spill/node" + i));
+        }
+        assertThat(server.getAttribute(name, "SpilledEvents"), is(0));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testFilter() throws Exception {
+        // only the creations of the included, not excluded nodes up to the maximum depth are delivered
+        for (String path : Arrays.asList("/filtered/included", "/filtered/included/node", "/filtered/included/last")) {
+            WatchedEvent event = eventHandler.getEvent();
+            assertThat(event.getType(), is(Watcher.Event.EventType.NodeCreated));
+            assertThat(event.getPath(), is(path));
+        }
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testTypedListeners() throws Exception {
+        // the creations of the other nodes are handled by no method, thus not queued
+        List<String> expected = Arrays.asList("NodeCreated /typed/created/node",
+                                              "NodeDataChanged /typed/created/node",
+                                              "NodeDeleted /typed/created/node",
+                                              "NodeDeleted /typed/other");
+        for (String expectedEvent : expected) {
+            WatchedEvent event = eventHandler.getEvent();
+            assertThat(event.getType() + " " + event.getPath(), is(expectedEvent));
+        }
+        long received = (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(endpointPool("/typed"), "ReceivedCount");
+        assertThat(received, is(4L));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testEnrichedEvents() throws Exception {
+        // the created node may be read after its data is changed
+        EnrichedZooKeeperEvent created = (EnrichedZooKeeperEvent) eventHandler.getEvent();
+        assertThat(created.getType(), is(Watcher.Event.EventType.NodeCreated));
+        assertThat(created.getPath(), is("/enriched/node"));
+        assertThat(created.getZxid(), is(created.getStat().getMzxid()));
+        assertThat(created.getStat().getVersion(), lessThan(2));
+
+        EnrichedZooKeeperEvent changed = (EnrichedZooKeeperEvent) eventHandler.getEvent();
+        assertThat(changed.getType(), is(Watcher.Event.EventType.NodeDataChanged));
+        assertThat(changed.getPath(), is("/enriched/node"));
+        assertThat(new String(changed.getData()), is("value1"));
+        assertThat(changed.getStat().getVersion(), is(1));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testChildrenDiff() throws Exception {
+        // the probes are skipped, while the events of the later creations find no more changes
+        ZooKeeperChildrenEvent event;
+        do {
+            event = (ZooKeeperChildrenEvent) eventHandler.getEvent();
+        } while (event.getChildrenRemoved().isEmpty());
+        assertThat(event.getType(), is(Watcher.Event.EventType.NodeChildrenChanged));
+        assertThat(event.getPath(), is("/children"));
+        assertThat(event.getChildrenAdded(), is(Arrays.asList("a", "b")));
+        assertThat(event.getChildrenRemoved(), is(Collections.singletonList("stale")));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testConsumerGroup() throws Exception {
+        // each event is delivered by a single member of the group
+        Set<String> paths = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            WatchedEvent event = eventHandler.getEvent();
+            assertThat(event.getType(), is(Watcher.Event.EventType.NodeCreated));
+            paths.add(event.getPath());
+        }
+        assertThat(paths.size(), is(10));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testSharedSession() throws Exception {
+        // all the activations share a session and the nested recursive watch is merged
+        Map<String, Set<String>> sessions = new HashMap<>();
+        String path = null;
+        for (String line : FourLetterWordMain.send4LetterWord("localhost", port, "wchp").split("\\n")) {
+            if (line.startsWith("/")) {
+                path = line.trim();
+            } else if (!line.trim().isEmpty()) {
+                sessions.computeIfAbsent(path, p -> new HashSet<>()).add(line.trim());
+            }
+        }
+        assertThat(sessions.containsKey("/recursive/nested"), is(false));
+        Set<String> ids = new HashSet<>();
+        for (String basePath : Arrays.asList("/recursive", "/nonrecursive", "/batch", "/coalesce",
+                                             "/partitioned", "/overflow", "/filtered", "/typed", "/enriched", "/children", "/group")) {
+            ids.addAll(sessions.get(basePath));
+        }
+        assertThat(ids.size(), is(1));
+
+        // both the recursive and the nested activations get the event
+        for (int i = 0; i < 2; i++) {
+            WatchedEvent event = eventHandler.getEvent();
+            assertThat(event.getType(), is(Watcher.Event.EventType.NodeCreated));
+            assertThat(event.getPath(), is("/recursive/nested"));
+        }
+    }
+
     @Test
     @OperateOnDeployment("test")
     public void testNodeCreatedNonRecursive() throws Exception {
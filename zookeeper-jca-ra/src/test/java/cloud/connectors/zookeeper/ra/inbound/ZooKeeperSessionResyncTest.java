@@ -0,0 +1,110 @@
+package cloud.connectors.zookeeper.ra.inbound;
+
+import cloud.connectors.zookeeper.ra.AbstractZooKeeperTest;
+import cloud.connectors.zookeeper.ra.ZooKeeperTestingServer;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.api.OperateOnDeployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ejb.EJB;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+@SuppressWarnings("ArquillianTooManyDeployment")
+public class ZooKeeperSessionResyncTest extends AbstractZooKeeperTest {
+
+    @Deployment(name = "test", order = 2)
+    public static JavaArchive createDeployment() {
+        return ShrinkWrap.create(JavaArchive.class)
+                         .addClass(WatchedEventHandler.class)
+                         .addClass(ResyncMDB.class);
+    }
+
+    @BeforeClass
+    @RunAsClient
+    public static void setUpClass() throws Exception {
+        System.setProperty("zookeeper.4lw.commands.whitelist", "wchp");
+        zooKeeperServer = new ZooKeeperTestingServer(port);
+        zooKeeperServer.start();
+
+        try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
+            zooKeeper.create("/resync", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            zooKeeper.create("/resync/stale", null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+    }
+
+    @AfterClass
+    @RunAsClient
+    public static void tearDownClass() throws IOException {
+        zooKeeperServer.stop();
+    }
+
+    /**
+     * The nodes are deleted while no session exists: the new server does not
+     * know the session of the watcher and has none of the indexed nodes. The
+     * new server refuses the session until its zxid is ahead of the zxid seen
+     * by the watcher.
+     */
+    @Before
+    @RunAsClient
+    public void setUp() throws Exception {
+        awaitWatches("/resync");
+        // the watch session indexes /resync and /resync/stale
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = server.queryNames(new ObjectName("cloud.connectors.zookeeper:type=ZooKeeperWatchSession,*"), null)
+                                .iterator().next();
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while ((Integer) server.getAttribute(name, "IndexedNodes") < 2) {
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(50L);
+        }
+
+        long zxid;
+        try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
+            zxid = zooKeeper.setData("/", null, -1).getMzxid();
+        }
+
+        zooKeeperServer.stop();
+        zooKeeperServer = new ZooKeeperTestingServer(port);
+        zooKeeperServer.start();
+
+        try (ZooKeeper zooKeeper = new ZooKeeper(connectString, sessionTimeout, null)) {
+            while (zooKeeper.setData("/", null, -1).getMzxid() <= zxid + 1) {
+                // advance the zxid of the new server
+            }
+        }
+    }
+
+    @EJB
+    private WatchedEventHandler eventHandler;
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testResyncOnExpiry() throws InterruptedException {
+        WatchedEvent event = eventHandler.getEvent();
+        assertThat(event.getType(), is(Watcher.Event.EventType.NodeDeleted));
+        assertThat(event.getPath(), is("/resync/stale"));
+
+        event = eventHandler.getEvent();
+        assertThat(event.getType(), is(Watcher.Event.EventType.NodeDeleted));
+        assertThat(event.getPath(), is("/resync"));
+    }
+
+}
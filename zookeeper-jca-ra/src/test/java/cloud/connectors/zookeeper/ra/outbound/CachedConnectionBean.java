@@ -0,0 +1,70 @@
+package cloud.connectors.zookeeper.ra.outbound;
+
+import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+import javax.annotation.Resource;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.resource.ResourceException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+@Stateless
+@LocalBean
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class CachedConnectionBean {
+
+    @Resource(name = "java:comp/env/CachedZooKeeperConnectionFactory")
+    private ZooKeeperConnectionFactory connectionFactory;
+
+    @Resource(name = "java:comp/env/BoundedCacheZooKeeperConnectionFactory")
+    private ZooKeeperConnectionFactory boundedConnectionFactory;
+
+    public byte[] getData(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.getData(path);
+        }
+    }
+
+    public byte[] getBoundedData(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = boundedConnectionFactory.getConnection()) {
+            return connection.getData(path);
+        }
+    }
+
+    public Stat exists(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.exists(path);
+        }
+    }
+
+    public List<String> getChildren(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.getChildren(path);
+        }
+    }
+
+    public List<ACL> getACL(String path, Stat stat) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.getACL(path, stat);
+        }
+    }
+
+    public Stat setData(String path, byte[] data) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.setData(path, data);
+        }
+    }
+
+    public Stat setDataAsync(String path, byte[] data) throws ResourceException, ExecutionException, InterruptedException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.async().setData(path, data).toCompletableFuture().get();
+        }
+    }
+
+}
@@ -3,17 +3,61 @@ package cloud.connectors.zookeeper.ra.outbound;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.resource.ConnectionFactoryDefinition;
+import javax.resource.ConnectionFactoryDefinitions;
+import javax.resource.spi.TransactionSupport;
 
 @Singleton
 @Startup
-@ConnectionFactoryDefinition(
-    name = "java:comp/env/ZooKeeperConnectionFactory",
-    interfaceName = "cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory",
-    resourceAdapter = "zookeeper-rar",
-    properties = {
-            "connectString=localhost:2182"
-    }
-)
+@ConnectionFactoryDefinitions({
+    @ConnectionFactoryDefinition(
+        name = "java:comp/env/ZooKeeperConnectionFactory",
+        interfaceName = "cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory",
+        resourceAdapter = "zookeeper-rar",
+        properties = {
+                "connectString=localhost:2182"
+        }
+    ),
+    @ConnectionFactoryDefinition(
+        name = "java:comp/env/TransactionalZooKeeperConnectionFactory",
+        interfaceName = "cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory",
+        resourceAdapter = "zookeeper-rar",
+        transactionSupport = TransactionSupport.TransactionSupportLevel.LocalTransaction,
+        properties = {
+                "connectString=localhost:2182",
+                "localTransaction=true"
+        }
+    ),
+    @ConnectionFactoryDefinition(
+        name = "java:comp/env/CachedZooKeeperConnectionFactory",
+        interfaceName = "cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory",
+        resourceAdapter = "zookeeper-rar",
+        properties = {
+                "connectString=localhost:2182",
+                "cachePrefixes=/cached",
+                "coalesceReads=true"
+        }
+    ),
+    @ConnectionFactoryDefinition(
+        name = "java:comp/env/BoundedCacheZooKeeperConnectionFactory",
+        interfaceName = "cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory",
+        resourceAdapter = "zookeeper-rar",
+        properties = {
+                "connectString=localhost:2182",
+                "cachePrefixes=/bounded",
+                "cacheMaxSize=3"
+        }
+    ),
+    @ConnectionFactoryDefinition(
+        name = "java:comp/env/StripedZooKeeperConnectionFactory",
+        interfaceName = "cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory",
+        resourceAdapter = "zookeeper-rar",
+        properties = {
+                "connectString=localhost:2182",
+                "striped=true",
+                "stripes=3"
+        }
+    )
+})
 public class ConnectionFactoryConfigBean {
 
 }
@@ -0,0 +1,49 @@
+package cloud.connectors.zookeeper.ra.outbound;
+
+import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.ZooDefs;
+
+import javax.annotation.Resource;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.resource.ResourceException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Stateless
+@LocalBean
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class StripedConnectionBean {
+
+    @Resource(name = "java:comp/env/StripedZooKeeperConnectionFactory")
+    private ZooKeeperConnectionFactory connectionFactory;
+
+    public byte[] getData(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.getData(path);
+        }
+    }
+
+    public Set<Long> createEphemerals(String... paths) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            Set<Long> owners = new HashSet<>();
+            for (String path : paths) {
+                connection.create(path, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
+                owners.add(connection.exists(path).getEphemeralOwner());
+            }
+            return owners;
+        }
+    }
+
+    public List<String> getEphemerals(String prefixPath) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.getEphemerals(prefixPath);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package cloud.connectors.zookeeper.ra.outbound;
+
+import cloud.connectors.zookeeper.api.ZooKeeperConnection;
+import cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.data.Stat;
+
+import javax.annotation.Resource;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.resource.ResourceException;
+import java.util.Arrays;
+import java.util.List;
+
+@Stateless
+@LocalBean
+@TransactionAttribute(TransactionAttributeType.REQUIRED)
+public class TransactionalConnectionBean {
+
+    @Resource(name = "java:comp/env/TransactionalZooKeeperConnectionFactory")
+    private ZooKeeperConnectionFactory connectionFactory;
+
+    @Resource
+    private SessionContext context;
+
+    public Stat createAll(String... paths) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            for (String path : paths) {
+                connection.create(path, path.getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            }
+            // the buffered nodes are not visible until the commit
+            return connection.exists(paths[0]);
+        }
+    }
+
+    public String createSequential(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.create(path, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+        }
+    }
+
+    public List<OpResult> multi(Op... ops) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.multi(Arrays.asList(ops));
+        }
+    }
+
+    public void createAllAndRollback(String... paths) throws ResourceException {
+        createAll(paths);
+        context.setRollbackOnly();
+    }
+
+}
@@ -1,8 +1,14 @@
 package cloud.connectors.zookeeper.ra.outbound;
 
+import cloud.connectors.zookeeper.api.AsyncZooKeeperConnection;
 import cloud.connectors.zookeeper.api.ZooKeeperConnection;
 import cloud.connectors.zookeeper.api.ZooKeeperConnectionFactory;
+import cloud.connectors.zookeeper.api.ZooKeeperResult;
+import cloud.connectors.zookeeper.api.ZooKeeperTransaction;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 
@@ -12,152 +18,250 @@ import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.resource.ResourceException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 @Stateless
 @LocalBean
 @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
-public class ZooKeeperConnectionBean implements ZooKeeperConnection {
+public class ZooKeeperConnectionBean {
 
     @Resource(name = "java:comp/env/ZooKeeperConnectionFactory")
     private ZooKeeperConnectionFactory connectionFactory;
 
-    @Override
     public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.create(path, data, acl, createMode);
         }
     }
 
-    @Override
     public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.create(path, data, acl, createMode, stat);
         }
     }
 
-    @Override
     public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode, Stat stat, long ttl) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.create(path, data, acl, createMode, stat, ttl);
         }
     }
 
-    @Override
     public void delete(String path) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             connection.delete(path);
         }
     }
 
-    @Override
     public void delete(String path, int version) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             connection.delete(path, version);
         }
     }
 
-    @Override
     public Stat exists(String path) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.exists(path);
         }
     }
 
-    @Override
     public List<ACL> getACL(String path) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getACL(path);
         }
     }
 
-    @Override
     public List<ACL> getACL(String path, Stat stat) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getACL(path, stat);
         }
     }
 
-    @Override
     public int getAllChildrenNumber(String path) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getAllChildrenNumber(path);
         }
     }
 
-    @Override
     public List<String> getChildren(String path) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getChildren(path);
         }
     }
 
-    @Override
     public List<String> getChildren(String path, Stat stat) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getChildren(path, stat);
         }
     }
 
-    @Override
     public byte[] getData(String path) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getData(path);
         }
     }
 
-    @Override
     public byte[] getData(String path, Stat stat) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getData(path, stat);
         }
     }
 
-    @Override
     public List<String> getEphemerals() throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getEphemerals();
         }
     }
 
-    @Override
     public List<String> getEphemerals(String prefixPath) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.getEphemerals(prefixPath);
         }
     }
 
-    @Override
     public Stat setACL(String path, List<ACL> acl) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.setACL(path, acl);
         }
     }
 
-    @Override
     public Stat setACL(String path, List<ACL> acl, int version) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.setACL(path, acl, version);
         }
     }
 
-    @Override
     public Stat setData(String path, byte[] data) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.setData(path, data);
         }
     }
 
-    @Override
     public Stat setData(String path, byte[] data, int version) throws ResourceException {
         try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
             return connection.setData(path, data, version);
         }
     }
 
-    @Override
+    public ZooKeeperResult<String> tryCreate(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.tryCreate(path, data, acl, createMode);
+        }
+    }
+
+    public ZooKeeperResult<Void> tryDelete(String path, int version) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.tryDelete(path, version);
+        }
+    }
+
+    public ZooKeeperResult<byte[]> tryGetData(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.tryGetData(path);
+        }
+    }
+
+    public ZooKeeperResult<Void> trySetData(String path, byte[] data, int version) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.trySetData(path, data, version);
+        }
+    }
+
+    public Map<String, ZooKeeperResult<byte[]>> getDataBatch(Collection<String> paths) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.getDataBatch(paths);
+        }
+    }
+
+    public Map<String, ZooKeeperResult<List<String>>> getChildrenBatch(Collection<String> paths) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.getChildrenBatch(paths);
+        }
+    }
+
+    public List<OpResult> multi(Iterable<Op> ops) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return connection.multi(ops);
+        }
+    }
+
     public void close() {
         // do nothing
     }
 
+    public String createAsync(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return join(connection.async().create(path, data, acl, createMode));
+        }
+    }
+
+    public Stat existsAsync(String path) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            return join(connection.async().exists(path));
+        }
+    }
+
+    public List<byte[]> getDataAsync(String... paths) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            AsyncZooKeeperConnection async = connection.async();
+            // pipeline all requests before awaiting the responses
+            List<CompletionStage<byte[]>> stages = new ArrayList<>();
+            for (String path : paths) {
+                stages.add(async.getData(path));
+            }
+            List<byte[]> result = new ArrayList<>();
+            for (CompletionStage<byte[]> stage : stages) {
+                result.add(join(stage));
+            }
+            return result;
+        }
+    }
+
+    public List<OpResult> createAll(String... paths) throws ResourceException {
+        try (ZooKeeperConnection connection = connectionFactory.getConnection()) {
+            ZooKeeperTransaction transaction = connection.transaction();
+            for (String path : paths) {
+                transaction.create(path, path.getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            }
+            return transaction.commit();
+        }
+    }
+
+    public Set<Long> getEphemeralOwners(String... paths) throws ResourceException {
+        // keep all handles open, so each one is backed by a distinct managed connection
+        List<ZooKeeperConnection> connections = new ArrayList<>();
+        try {
+            Set<Long> owners = new HashSet<>();
+            for (String path : paths) {
+                ZooKeeperConnection connection = connectionFactory.getConnection();
+                connections.add(connection);
+                connection.create(path, null, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
+                owners.add(connection.exists(path).getEphemeralOwner());
+                connection.delete(path);
+            }
+            return owners;
+        } finally {
+            for (ZooKeeperConnection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private static <T> T join(CompletionStage<T> stage) throws ResourceException {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ResourceException) {
+                throw (ResourceException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
 }
@@ -1,9 +1,12 @@
 package cloud.connectors.zookeeper.ra.outbound;
 
+import cloud.connectors.zookeeper.api.ZooKeeperResult;
 import cloud.connectors.zookeeper.ra.AbstractZooKeeperTest;
 import cloud.connectors.zookeeper.ra.ZooKeeperTestingServer;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.ZKUtil;
 import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.ZooKeeper;
@@ -20,18 +23,38 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.resource.NotSupportedException;
 import javax.resource.ResourceException;
 import javax.resource.spi.EISSystemException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThrows;
 
@@ -48,7 +71,10 @@ public class ZooKeeperConnectionTest extends AbstractZooKeeperTest {
     public static JavaArchive createDeployment() {
         return ShrinkWrap.create(JavaArchive.class)
                          .addClass(ConnectionFactoryConfigBean.class)
-                         .addClass(ZooKeeperConnectionBean.class);
+                         .addClass(ZooKeeperConnectionBean.class)
+                         .addClass(TransactionalConnectionBean.class)
+                         .addClass(CachedConnectionBean.class)
+                         .addClass(StripedConnectionBean.class);
     }
 
     @BeforeClass
@@ -75,22 +101,68 @@ public class ZooKeeperConnectionTest extends AbstractZooKeeperTest {
                 zooKeeper.close();
                 break;
             case "testDeleteVersion":
+            case "testTryDelete":
                 zooKeeper = new ZooKeeper(connectString, sessionTimeout, null);
                 zooKeeper.create("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
                 zooKeeper.create("/node1", "value1".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
                 zooKeeper.close();
                 break;
             case "testExists":
+            case "testExistsAsync":
             case "testGetACL":
             case "testGetACLStat":
             case "testGetData":
+            case "testGetDataAsync":
             case "testGetDataStat":
             case "testSetACL":
             case "testSetACLVersion":
             case "testSetData":
             case "testSetDataVersion":
+            case "testStriped":
+            case "testTryGetData":
+            case "testTrySetData":
+                zooKeeper = new ZooKeeper(connectString, sessionTimeout, null);
+                nodes.add(zooKeeper.create("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+                zooKeeper.close();
+                break;
+            case "testCoalesceReads":
+                zooKeeper = new ZooKeeper(connectString, sessionTimeout, null);
+                nodes.add(zooKeeper.create("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+                zooKeeper.create("/node0/node00", "value00".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                zooKeeper.close();
+                break;
+            case "testGetDataBatch":
+            case "testGetChildrenBatch":
                 zooKeeper = new ZooKeeper(connectString, sessionTimeout, null);
                 nodes.add(zooKeeper.create("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+                for (int i = 0; i < 250; i++) {
+                    zooKeeper.create("/node0/node" + i, ("value" + i).getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                }
+                zooKeeper.close();
+                break;
+            case "testGetDataBatchLarge":
+                zooKeeper = new ZooKeeper(connectString, sessionTimeout, null);
+                nodes.add(zooKeeper.create("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+                for (int i = 0; i < 3; i++) {
+                    // the response of the three nodes exceeds the jute.maxbuffer limit
+                    byte[] data = new byte[512 * 1024];
+                    Arrays.fill(data, (byte) i);
+                    zooKeeper.create("/node0/node" + i, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                }
+                zooKeeper.close();
+                break;
+            case "testCacheEviction":
+                zooKeeper = new ZooKeeper(connectString, sessionTimeout, null);
+                nodes.add(zooKeeper.create("/bounded", "value".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+                for (int i = 0; i < 4; i++) {
+                    zooKeeper.create("/bounded/node" + i, ("value" + i).getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                }
+                zooKeeper.close();
+                break;
+            case "testCache":
+                zooKeeper = new ZooKeeper(connectString, sessionTimeout, null);
+                nodes.add(zooKeeper.create("/cached", "value".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+                zooKeeper.create("/cached/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
                 zooKeeper.close();
                 break;
             case "testGetAllChildrenNumber":
@@ -108,6 +180,31 @@ public class ZooKeeperConnectionTest extends AbstractZooKeeperTest {
 
     }
 
+    private static Object mbeanAttribute(String type, String attribute) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames(new ObjectName("cloud.connectors.zookeeper:type=" + type + ",*"), null);
+        assertThat(names.size(), is(1));
+        return server.getAttribute(names.iterator().next(), attribute);
+    }
+
+    private static Object cacheAttribute(String prefixes, String attribute) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : server.queryNames(new ObjectName("cloud.connectors.zookeeper:type=ZooKeeperCache,*"), null)) {
+            if (prefixes.equals(server.getAttribute(name, "Prefixes"))) {
+                return server.getAttribute(name, attribute);
+            }
+        }
+        throw new AssertionError("No cache of " + prefixes);
+    }
+
+    private static void awaitCondition(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.call()) {
+            assertThat(System.currentTimeMillis(), lessThan(deadline));
+            Thread.sleep(50);
+        }
+    }
+
     @After
     @RunAsClient
     public void tearDown() throws Exception {
@@ -130,6 +227,15 @@ public class ZooKeeperConnectionTest extends AbstractZooKeeperTest {
     @EJB
     private ZooKeeperConnectionBean connection;
 
+    @EJB
+    private TransactionalConnectionBean transactionalConnection;
+
+    @EJB
+    private CachedConnectionBean cachedConnection;
+
+    @EJB
+    private StripedConnectionBean stripedConnection;
+
     @Test
     @OperateOnDeployment("test")
     public void testCreate() throws ResourceException {
@@ -441,6 +547,344 @@ public class ZooKeeperConnectionTest extends AbstractZooKeeperTest {
                    instanceOf(KeeperException.class));
     }
 
+    @Test
+    @OperateOnDeployment("test")
+    public void testCreateAsync() throws ResourceException {
+        nodes.add(connection.createAsync("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+        assertThat(connection.getData("/node0"), is("value0".getBytes()));
+        assertThat(assertThrows(EISSystemException.class,
+                                () -> connection.createAsync("/node0",
+                                                             "value0".getBytes(),
+                                                             ZooDefs.Ids.OPEN_ACL_UNSAFE,
+                                                             CreateMode.PERSISTENT)).getCause(),
+                   instanceOf(KeeperException.NodeExistsException.class));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testExistsAsync() throws ResourceException {
+        assertThat(connection.existsAsync("/node0"), notNullValue());
+        assertThat(connection.existsAsync("/node1"), nullValue());
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testGetDataAsync() throws ResourceException {
+        List<byte[]> data = connection.getDataAsync("/node0", "/node0", "/node0");
+        assertThat(data.size(), is(3));
+        data.forEach(value -> assertThat(value, is("value0".getBytes())));
+        assertThat(assertThrows(EISSystemException.class,
+                                () -> connection.getDataAsync("/node0", "/node1")).getCause(),
+                   instanceOf(KeeperException.NoNodeException.class));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testGetDataBatch() throws ResourceException {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            paths.add("/node0/node" + i);
+        }
+        paths.add("/node1");
+        Map<String, ZooKeeperResult<byte[]>> results = connection.getDataBatch(paths);
+        assertThat(new ArrayList<>(results.keySet()), is(paths));
+        for (int i = 0; i < 250; i++) {
+            ZooKeeperResult<byte[]> result = results.get("/node0/node" + i);
+            assertThat(result.isOk(), is(true));
+            assertThat(result.getValue(), is(("value" + i).getBytes()));
+            assertThat(result.getStat(), notNullValue());
+        }
+        ZooKeeperResult<byte[]> missing = results.get("/node1");
+        assertThat(missing.getCode(), is(KeeperException.Code.NONODE));
+        assertThat(missing.getValue(), nullValue());
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testGetDataBatchLarge() throws ResourceException {
+        List<String> paths = Arrays.asList("/node0/node0", "/node0/node1", "/node0/node2", "/node1");
+        Map<String, ZooKeeperResult<byte[]>> results = connection.getDataBatch(paths);
+        assertThat(new ArrayList<>(results.keySet()), is(paths));
+        for (int i = 0; i < 3; i++) {
+            byte[] data = new byte[512 * 1024];
+            Arrays.fill(data, (byte) i);
+            assertThat(results.get("/node0/node" + i).getValue(), is(data));
+        }
+        assertThat(results.get("/node1").getCode(), is(KeeperException.Code.NONODE));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testGetChildrenBatch() throws ResourceException {
+        Map<String, ZooKeeperResult<List<String>>> results = connection.getChildrenBatch(Arrays.asList("/node0", "/node1"));
+        assertThat(results.get("/node0").getValue().size(), is(250));
+        assertThat(results.get("/node1").getCode(), is(KeeperException.Code.NONODE));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testTryCreate() throws ResourceException {
+        ZooKeeperResult<String> result = connection.tryCreate("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        nodes.add("/node0");
+        assertThat(result.isOk(), is(true));
+        assertThat(result.getValue(), is("/node0"));
+
+        result = connection.tryCreate("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        assertThat(result.getCode(), is(KeeperException.Code.NODEEXISTS));
+        assertThat(result.getValue(), nullValue());
+
+        result = connection.tryCreate("/node1/node10", "value10".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        assertThat(result.getCode(), is(KeeperException.Code.NONODE));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testTryDelete() throws ResourceException {
+        assertThat(connection.tryDelete("/node1", 1).getCode(), is(KeeperException.Code.BADVERSION));
+        assertThat(connection.tryDelete("/node0", 0).isOk(), is(true));
+        assertThat(connection.tryDelete("/node0", 0).getCode(), is(KeeperException.Code.NONODE));
+        assertThat(connection.tryDelete("/node1", -1).isOk(), is(true));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testTryGetData() throws ResourceException {
+        ZooKeeperResult<byte[]> result = connection.tryGetData("/node0");
+        assertThat(result.isOk(), is(true));
+        assertThat(result.getValue(), is("value0".getBytes()));
+        assertThat(result.getStat().getVersion(), is(0));
+
+        result = connection.tryGetData("/node1");
+        assertThat(result.getCode(), is(KeeperException.Code.NONODE));
+        assertThat(result.getValue(), nullValue());
+        assertThat(result.getStat(), nullValue());
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testTrySetData() throws ResourceException {
+        ZooKeeperResult<Void> result = connection.trySetData("/node0", "value0".getBytes(), 0);
+        assertThat(result.isOk(), is(true));
+        assertThat(result.getStat().getVersion(), is(1));
+
+        assertThat(connection.trySetData("/node0", "value0".getBytes(), 0).getCode(), is(KeeperException.Code.BADVERSION));
+        assertThat(connection.trySetData("/node1", "value1".getBytes(), -1).getCode(), is(KeeperException.Code.NONODE));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testMulti() throws ResourceException {
+        List<OpResult> results = connection.multi(Arrays.asList(
+                Op.create("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT),
+                Op.create("/node0/node1", "value1".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT)));
+        nodes.add("/node0");
+        assertThat(results.size(), is(2));
+        assertThat(((OpResult.CreateResult) results.get(1)).getPath(), is("/node0/node1"));
+        assertThat(connection.getData("/node0/node1"), is("value1".getBytes()));
+
+        EISSystemException e = assertThrows(EISSystemException.class, () -> connection.multi(Arrays.asList(
+                Op.create("/node2", "value2".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT),
+                Op.delete("/node3", -1))));
+        assertThat(e.getCause(), instanceOf(KeeperException.NoNodeException.class));
+        assertThat(e.getMessage(), startsWith("Cannot perform multi operation #1 on node /node3"));
+        assertThat(connection.exists("/node2"), nullValue());
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testTransaction() throws ResourceException {
+        assertThat(connection.createAll("/node0", "/node1").size(), is(2));
+        nodes.add("/node0");
+        nodes.add("/node1");
+        assertThat(connection.getData("/node1"), is("/node1".getBytes()));
+
+        assertThat(assertThrows(EISSystemException.class,
+                                () -> connection.createAll("/node2", "/node1")).getCause(),
+                   instanceOf(KeeperException.NodeExistsException.class));
+        assertThat(connection.exists("/node2"), nullValue());
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testLocalTransaction() throws ResourceException {
+        assertThat(transactionalConnection.createAll("/node0", "/node1"), nullValue());
+        nodes.add("/node0");
+        nodes.add("/node1");
+        assertThat(connection.getData("/node0"), is("/node0".getBytes()));
+        assertThat(connection.getData("/node1"), is("/node1".getBytes()));
+
+        assertThrows(EJBException.class, () -> transactionalConnection.createAll("/node2", "/node1"));
+        assertThat(connection.exists("/node2"), nullValue());
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testLocalTransactionRollback() throws ResourceException {
+        transactionalConnection.createAllAndRollback("/node0");
+        assertThat(connection.exists("/node0"), nullValue());
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testLocalTransactionUnsupported() throws ResourceException {
+        assertThrows(NotSupportedException.class, () -> transactionalConnection.createSequential("/node0"));
+        assertThrows(NotSupportedException.class, () -> transactionalConnection.multi(
+                Op.create("/node0", "value0".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT)));
+        assertThat(connection.getChildren("/").contains("node0"), is(false));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testCache() throws Exception {
+        assertThat(cachedConnection.getData("/cached/node0"), is("value0".getBytes()));
+        assertThat(cachedConnection.getData("/cached/node0"), is("value0".getBytes()));
+        assertThat(cacheAttribute("/cached", "HitCount"), is(1L));
+        assertThat(cachedConnection.exists("/cached/node1"), nullValue());
+        assertThat(cachedConnection.getChildren("/cached"), is(Arrays.asList("node0")));
+
+        // changes made by other sessions are visible after the watch events
+        connection.setData("/cached/node0", "value1".getBytes());
+        connection.create("/cached/node1", "value".getBytes(), ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        awaitCondition(() -> Arrays.equals(cachedConnection.getData("/cached/node0"), "value1".getBytes()));
+        awaitCondition(() -> cachedConnection.exists("/cached/node1") != null);
+        awaitCondition(() -> cachedConnection.getChildren("/cached").size() == 2);
+
+        // changes made through the cached connections are visible immediately
+        cachedConnection.setData("/cached/node0", "value2".getBytes());
+        assertThat(cachedConnection.getData("/cached/node0"), is("value2".getBytes()));
+        cachedConnection.setDataAsync("/cached/node0", "value3".getBytes());
+        assertThat(cachedConnection.getData("/cached/node0"), is("value3".getBytes()));
+        assertThat((Long) cacheAttribute("/cached", "InvalidationCount"), greaterThan(0L));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testCacheEviction() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(cachedConnection.getBoundedData("/bounded/node" + i), is(("value" + i).getBytes()));
+        }
+        assertThat(cachedConnection.getBoundedData("/bounded/node0"), is("value0".getBytes()));
+        assertThat(cacheAttribute("/bounded", "Size"), is(3));
+        assertThat(cacheAttribute("/bounded", "EvictionCount"), is(0L));
+
+        // node1 is the least recently used
+        assertThat(cachedConnection.getBoundedData("/bounded/node3"), is("value3".getBytes()));
+        assertThat(cacheAttribute("/bounded", "Size"), is(3));
+        assertThat(cacheAttribute("/bounded", "EvictionCount"), is(1L));
+        assertThat(cachedConnection.getBoundedData("/bounded/node0"), is("value0".getBytes()));
+        assertThat(cachedConnection.getBoundedData("/bounded/node2"), is("value2".getBytes()));
+        assertThat(cacheAttribute("/bounded", "HitCount"), is(3L));
+        assertThat(cacheAttribute("/bounded", "MissCount"), is(4L));
+
+        // node3 is the least recently used
+        assertThat(cachedConnection.getBoundedData("/bounded/node1"), is("value1".getBytes()));
+        assertThat(cachedConnection.getBoundedData("/bounded/node0"), is("value0".getBytes()));
+        assertThat(cachedConnection.getBoundedData("/bounded/node2"), is("value2".getBytes()));
+        assertThat(cacheAttribute("/bounded", "HitCount"), is(5L));
+        assertThat(cachedConnection.getBoundedData("/bounded/node3"), is("value3".getBytes()));
+        assertThat(cacheAttribute("/bounded", "MissCount"), is(6L));
+        assertThat(cacheAttribute("/bounded", "EvictionCount"), is(3L));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testCoalesceReads() throws Exception {
+        // the coalescer is registered with the session of the first connection
+        cachedConnection.exists("/node0");
+        long sent = (Long) mbeanAttribute("ZooKeeperReadCoalescer", "SentCount");
+        Stat stat = new Stat();
+        assertThat(cachedConnection.getACL("/node0", stat), is(ZooDefs.Ids.OPEN_ACL_UNSAFE));
+        assertThat(stat.getNumChildren(), is(1));
+        assertThat(cachedConnection.getChildren("/node0"), is(Arrays.asList("node00")));
+        assertThat(cachedConnection.exists("/node0").getVersion(), is(0));
+        assertThat(cachedConnection.exists("/node1"), nullValue());
+        assertThat(cachedConnection.getData("/node0"), is("value0".getBytes()));
+        assertThat(assertThrows(EISSystemException.class,
+                                () -> cachedConnection.getData("/node1")).getCause(),
+                   instanceOf(KeeperException.NoNodeException.class));
+        assertThat((Long) mbeanAttribute("ZooKeeperReadCoalescer", "SentCount"), is(sent + 6));
+
+        // the own writes are always visible
+        cachedConnection.setData("/node0", "value1".getBytes());
+        assertThat(cachedConnection.getData("/node0"), is("value1".getBytes()));
+
+        // the concurrent identical reads share a request, but not the result
+        long coalesced = (Long) mbeanAttribute("ZooKeeperReadCoalescer", "CoalescedCount");
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while ((Long) mbeanAttribute("ZooKeeperReadCoalescer", "CoalescedCount") == coalesced) {
+                assertThat(System.currentTimeMillis(), lessThan(deadline));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<byte[]>> futures = new ArrayList<>();
+                for (int i = 0; i < 16; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return cachedConnection.getData("/node0");
+                    }));
+                }
+                start.countDown();
+                Set<byte[]> results = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Future<byte[]> future : futures) {
+                    byte[] data = future.get();
+                    assertThat(data, is("value1".getBytes()));
+                    results.add(data);
+                }
+                assertThat(results.size(), is(futures.size()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testStriped() throws Exception {
+        for (int i = 0; i < 60; i++) {
+            assertThat(stripedConnection.getData("/node0"), is("value0".getBytes()));
+        }
+
+        // the reads are spread among all stripes of the factory
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<ObjectName> names = server.queryNames(new ObjectName("cloud.connectors.zookeeper:type=ZooKeeperSession,stripe=2,*"), null);
+        assertThat(names.size(), is(1));
+        String id = names.iterator().next().getKeyProperty("id");
+        Set<ObjectName> stripes = server.queryNames(new ObjectName("cloud.connectors.zookeeper:type=ZooKeeperSession,id=" + id + ",*"), null);
+        assertThat(stripes.size(), is(3));
+        long requests = 0L;
+        for (ObjectName stripe : stripes) {
+            long count = (Long) server.getAttribute(stripe, "RequestCount");
+            assertThat(count, greaterThan(0L));
+            assertThat(server.getAttribute(stripe, "OutstandingRequests"), is(0));
+            requests += count;
+        }
+        assertThat(requests, is(60L));
+
+        // the ephemeral nodes of all stripes are listed
+        String[] paths = new String[12];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = "/striped" + i;
+            nodes.add(paths[i]);
+        }
+        assertThat(stripedConnection.createEphemerals(paths).size(), greaterThan(1));
+        assertThat(stripedConnection.getEphemerals("/striped").size(), is(paths.length));
+    }
+
+    @Test
+    @OperateOnDeployment("test")
+    public void testSharedSession() throws Exception {
+        Set<Long> owners = connection.getEphemeralOwners("/node0", "/node1", "/node2", "/node3", "/node4");
+        assertThat(owners.size(), is(1));
+
+        // the single session of the factory is the registered one
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Set<Object> sessionIds = new HashSet<>();
+        for (ObjectName name : server.queryNames(new ObjectName("cloud.connectors.zookeeper:type=ZooKeeperSession,*"), null)) {
+            sessionIds.add(server.getAttribute(name, "SessionId"));
+        }
+        assertThat(sessionIds, hasItem("0x" + Long.toHexString(owners.iterator().next())));
+    }
+
     @Test
     @OperateOnDeployment("test")
     public void testClose() {